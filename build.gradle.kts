@@ -44,8 +44,105 @@ tasks.withType<Test> {
 
 jlink {
     imageZip.set(layout.buildDirectory.file("/distributions/app-${javafx.platform.classifier}.zip"))
-    options.set(listOf("--strip-debug", "--compress", "2", "--no-header-files", "--no-man-pages"))
+    options.set(listOf("--strip-debug", "--compress", "2", "--no-header-files", "--no-man-pages",
+            "--generate-cds-archive"))
     launcher {
         name = "app"
+        // Class data sharing archive of the game classes, trained by cdsArchive
+        jvmArgs = listOf("-XX:SharedArchiveFile={{BIN_DIR}}/../lib/app.jsa")
     }
 }
+
+// Starts the linked image to its first level once and archives the classes it loaded.
+// Needs a display, e.g. xvfb-run ./gradlew jlinkZip on machines without one.
+val cdsArchive = tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    description = "Trains the class data sharing archive of the jlink image with a start to the first level."
+    dependsOn(tasks.named("jlink"))
+    val image = layout.buildDirectory.dir("image").get().asFile
+    val java = if (System.getProperty("os.name").startsWith("Windows")) "java.exe" else "java"
+    executable = image.resolve("bin/$java").path
+    args = listOf(
+        "-XX:ArchiveClassesAtExit=" + image.resolve("lib/app.jsa").path,
+        "-Dlabyrinth.startup=level",
+        "-Dlabyrinth.record=false",
+        "-Dlabyrinth.autosave=0",
+        "-m", "${application.mainModule.get()}/${application.mainClass.get()}"
+    )
+    outputs.file(image.resolve("lib/app.jsa"))
+}
+
+tasks.named("jlinkZip") {
+    dependsOn(cdsArchive)
+}
+
+tasks.register<JavaExec>("simulationServer") {
+    group = "application"
+    description = "Runs the headless simulation server on the loopback interface."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationServer")
+    classpath = sourceSets["main"].runtimeClasspath
+}
+
+tasks.register<JavaExec>("simulationLoadTest") {
+    group = "verification"
+    description = "Runs many headless sessions and reports sessions per core and tick latency."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationLoadTest")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("loadTestArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("soakBenchmark") {
+    group = "verification"
+    description = "Lets bots play thousands of growing levels and checks gameplay throughput and allocation."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.SoakBenchmark")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("soakArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("creatureBenchmark") {
+    group = "verification"
+    description = "Chases a bot with thousands of creatures and checks the swarm update fits into a tick."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.sim.creature.CreatureBenchmark")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("creatureArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("renderBenchmark") {
+    group = "verification"
+    description = "Flies through the game scene across maze sizes and renderer options and reports frame times."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.bench.RenderBenchmark")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("renderArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("mazeAnalytics") {
+    group = "verification"
+    description = "Generates batches of labyrinths in parallel and reports their shape by size and algorithm."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.analytics.MazeAnalytics")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("analyticsArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("importMaze") {
+    group = "application"
+    description = "Imports hand-made ASCII or PNG mazes and reports their size, start, exit and import cost."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.importer.MazeImporter")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("mazeArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
+
+tasks.register<JavaExec>("startupBenchmark") {
+    group = "verification"
+    description = "Starts the game repeatedly in fresh JVMs and reports the time to the first menu frame."
+    mainModule.set(application.mainModule)
+    mainClass.set("com.kayar.yetanotherlabyrinth.labyrinth.bench.StartupBenchmark")
+    classpath = sourceSets["main"].runtimeClasspath
+    args = (project.findProperty("startupArgs") as String? ?: "").split(" ").filter { it.isNotBlank() }
+}
@@ -7,19 +7,26 @@ import com.almasb.fxgl.entity.SpawnData;
 import com.almasb.fxgl.entity.Spawns;
 import com.almasb.fxgl.physics.BoundingShape;
 import com.almasb.fxgl.physics.HitBox;
+import com.kayar.yetanotherlabyrinth.labyrinth.components.CreatureSwarmComponent;
 import com.kayar.yetanotherlabyrinth.labyrinth.components.PlayerComponent;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.SharedWallMesh;
+import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
-import javafx.scene.shape.Cylinder;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import static com.almasb.fxgl.dsl.FXGL.*;
 import static com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGame.EntityType.*;
 
 /**
- * Factory for creating game entities like player, walls, floor, ceiling, and exit.
+ * Factory for creating game entities like player, walls, floor, ceiling, exit, and creatures.
  */
 public class LabyrinthFactory implements EntityFactory {
+    // Materials of the exit and stairwell markers by color
+    private final Map<Color, PhongMaterial> markerMaterials = new HashMap<>();
 
     /**
      * Creates a player entity.
@@ -45,111 +52,139 @@ public class LabyrinthFactory implements EntityFactory {
     }
 
     /**
-     * Creates a wall entity.
+     * Creates a wall entity from the shared wall geometry.
+     * Collisions are resolved against the grid, so walls only keep a bounding box
+     * and take no part in collision detection.
      *
-     * @param data spawn data
+     * @param data spawn data with the shared wall mesh and the index of the wall material
      * @return the wall entity
      */
     @Spawns("wall")
     public Entity newWall(SpawnData data) {
-        double size = data.get("size");
-        double height = data.get("height");
-        
-        // Create wall material
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.GRAY);
+        SharedWallMesh mesh = data.get("mesh");
+        int material = data.get("material");
         
-        // Create wall box
-        Box box = new Box(size, height, size);
-        box.setMaterial(material);
+        // Create wall entity at its placement, the spawn data is not copied into every wall
+        return entityBuilder()
+                .type(WALL)
+                .at(data.getX(), data.getY(), data.getZ())
+                .viewWithBBox(mesh.createView(material))
+                .build();
+    }
         
-        // Create wall entity
+    /**
+     * Creates an entity holding the walls of one material merged into a single mesh.
+     *
+     * @param data spawn data with the merged wall view
+     * @return the wall entity
+     */
+    @Spawns("mergedWalls")
+    public Entity newMergedWalls(SpawnData data) {
         return entityBuilder(data)
                 .type(WALL)
-                .viewWithBBox(box)
-                .collidable()
+                .view((Node) data.get("view"))
                 .build();
     }
 
     /**
      * Creates a floor entity.
      *
-     * @param data spawn data
+     * @param data spawn data with the lit surface view
      * @return the floor entity
      */
     @Spawns("floor")
     public Entity newFloor(SpawnData data) {
-        double width = data.get("width");
-        double depth = data.get("depth");
-        
-        // Create floor material
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.DARKGRAY);
-        
-        // Create floor box
-        Box box = new Box(width, 0.1, depth);
-        box.setMaterial(material);
-        
-        // Create floor entity
         return entityBuilder(data)
                 .type(FLOOR)
-                .view(box)
-                .collidable()
+                .view((Node) data.get("surface"))
                 .build();
     }
 
     /**
      * Creates a ceiling entity.
      *
-     * @param data spawn data
+     * @param data spawn data with the lit surface view
      * @return the ceiling entity
      */
     @Spawns("ceiling")
     public Entity newCeiling(SpawnData data) {
-        double width = data.get("width");
-        double depth = data.get("depth");
-        
-        // Create ceiling material
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.DARKGRAY);
-        
-        // Create ceiling box
-        Box box = new Box(width, 0.1, depth);
-        box.setMaterial(material);
-        
-        // Create ceiling entity
         return entityBuilder(data)
                 .type(CEILING)
-                .view(box)
-                .collidable()
+                .view((Node) data.get("surface"))
                 .build();
     }
 
     /**
      * Creates an exit entity.
      *
-     * @param data spawn data
+     * @param data spawn data with the cell size and the exit cell
      * @return the exit entity
      */
     @Spawns("exit")
     public Entity newExit(SpawnData data) {
         double size = data.get("size");
         
-        // Create exit material
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.GREEN);
-        
-        // Create exit cylinder
-        Cylinder cylinder = new Cylinder(size / 2, 0.1);
-        cylinder.setMaterial(material);
+        // Create exit marker
+        Box box = new Box(size, 0.1, size);
+        box.setMaterial(getMarkerMaterial(Color.GREEN));
         
-        // Create exit entity
+        // Create exit entity, the exit cell is kept from the spawn data
         return entityBuilder(data)
                 .type(EXIT)
-                .view(cylinder)
+                .view(box)
                 .collidable()
-                .with("exitX", data.getX())
-                .with("exitZ", data.getZ())
+                .build();
+    }
+
+    /**
+     * Creates a stairwell marker entity.
+     *
+     * @param data spawn data with the cell size
+     * @return the stairwell entity
+     */
+    @Spawns("stairs")
+    public Entity newStairs(SpawnData data) {
+        double size = data.get("size");
+        
+        // Create stairwell marker, the way up is through the ceiling
+        Box box = new Box(size, 0.1, size);
+        box.setMaterial(getMarkerMaterial(Color.ORANGE));
+        
+        return entityBuilder(data)
+                .type(STAIRS)
+                .view(box)
+                .build();
+    }
+
+    /**
+     * Gets the material of a marker color, shared by all markers of that color.
+     *
+     * @param color the marker color
+     * @return the material
+     */
+    private PhongMaterial getMarkerMaterial(Color color) {
+        return markerMaterials.computeIfAbsent(color, PhongMaterial::new);
+    }
+    
+    /**
+     * Creates the entity rendering all creatures of a level.
+     * The creatures themselves are simulated by the game simulation.
+     *
+     * @param data spawn data
+     * @return the creature swarm entity
+     */
+    @Spawns("creatures")
+    public Entity newCreatures(SpawnData data) {
+        int count = data.get("count");
+        
+        // Create one mesh for the whole swarm
+        CreatureSwarmComponent swarm = new CreatureSwarmComponent(count);
+        
+        // Create creature swarm entity
+        return entityBuilder(data)
+                .type(CREATURE)
+                .view(swarm.getView())
+                .with(swarm)
                 .build();
     }
 }
\ No newline at end of file
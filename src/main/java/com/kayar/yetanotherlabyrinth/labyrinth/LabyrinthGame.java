@@ -3,15 +3,47 @@ package com.kayar.yetanotherlabyrinth.labyrinth;
 import com.almasb.fxgl.app.GameApplication;
 import com.almasb.fxgl.app.GameSettings;
 import com.almasb.fxgl.app.scene.Camera3D;
+import com.almasb.fxgl.app.scene.FXGLDefaultMenu;
 import com.almasb.fxgl.app.scene.FXGLMenu;
+import com.almasb.fxgl.app.scene.MenuType;
 import com.almasb.fxgl.app.scene.SceneFactory;
+import com.almasb.fxgl.core.EngineService;
 import com.almasb.fxgl.entity.Entity;
+import com.almasb.fxgl.entity.SpawnData;
+import com.almasb.fxgl.logging.Logger;
+import com.almasb.fxgl.scene.Scene;
+import com.kayar.yetanotherlabyrinth.labyrinth.analytics.ExplorationTracker;
+import com.kayar.yetanotherlabyrinth.labyrinth.audio.SpatialAudio;
+import com.kayar.yetanotherlabyrinth.labyrinth.bench.Flythrough;
+import com.kayar.yetanotherlabyrinth.labyrinth.bench.StartupTimer;
+import com.kayar.yetanotherlabyrinth.labyrinth.components.CreatureSwarmComponent;
+import com.kayar.yetanotherlabyrinth.labyrinth.diag.LevelDiagnostics;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.QualityGovernor;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.QualityLevel;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.RaycastRenderer;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.WallCuller;
+import com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayPlayer;
+import com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayRecorder;
+import com.kayar.yetanotherlabyrinth.labyrinth.save.AutoSaver;
+import com.kayar.yetanotherlabyrinth.labyrinth.save.SaveFile;
+import com.kayar.yetanotherlabyrinth.labyrinth.save.SaveGame;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.GameSimulation;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.GameSnapshot;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.LevelPlanner;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationSession;
 import com.kayar.yetanotherlabyrinth.labyrinth.ui.LabyrinthMainMenu;
+import com.kayar.yetanotherlabyrinth.labyrinth.ui.Minimap;
 import javafx.application.Platform;
 import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
 import static com.almasb.fxgl.dsl.FXGL.*;
 
 /**
@@ -22,19 +54,99 @@ public class LabyrinthGame extends GameApplication {
 
     // Game entity types
     public enum EntityType {
-        PLAYER, WALL, FLOOR, CEILING, EXIT
+        PLAYER, WALL, FLOOR, CEILING, EXIT, CREATURE, STAIRS
     }
 
+    // Progress messages, shown on the console outside of release mode
+    private static final Logger LOG = Logger.get(LabyrinthGame.class);
+
+    // Keys that move the camera and their simulation input flags
+    private static final KeyCode[] MOVEMENT_KEYS = {KeyCode.W, KeyCode.S, KeyCode.A, KeyCode.D};
+    private static final int[] MOVEMENT_FLAGS = {
+            SimulationSession.FORWARD, SimulationSession.BACKWARD, SimulationSession.LEFT, SimulationSession.RIGHT
+    };
+    
+    // Resolution of the raycast image relative to the window
+    private static final double RAYCAST_RESOLUTION = 0.5;
+    
+    // Entity types that belong to a level and are removed when the next one is loaded
+    private static final EntityType[] LEVEL_ENTITY_TYPES = {
+            EntityType.WALL, EntityType.FLOOR, EntityType.CEILING, EntityType.EXIT, EntityType.CREATURE, EntityType.STAIRS
+    };
+    
+    // Entity types that belong to the built storeys and are rebuilt when the player changes storey
+    private static final EntityType[] LAYER_ENTITY_TYPES = {
+            EntityType.WALL, EntityType.FLOOR, EntityType.CEILING, EntityType.EXIT, EntityType.STAIRS
+    };
+    
     // Game variables
     private int currentLevel = 1;
     private boolean isGameOver = false;
     private Camera3D camera3D;
+    private LabyrinthGenerator labyrinth;
+    
+    // Game rules running on their own thread
+    private GameSimulation simulation;
+    
+    // Labyrinth size and wall rendering, set with -Dlabyrinth.size=cells and -Dlabyrinth.walls=boxes|merged
+    private final int labyrinthSize = Integer.getInteger("labyrinth.size", 20);
+    
+    // Growing levels within the load time budget unless the size is set, and the rows of a large level built so far
+    private LevelPlanner planner;
+    private int builtFromRow = 0;
+    private int builtToRow = 0;
+    
+    // Storeys per level, set with -Dlabyrinth.layers=count, and the storey the player is on
+    private final int labyrinthLayers = Integer.getInteger("labyrinth.layers", 1);
+    private int currentLayer = 0;
+    
+    // Hand-made maze played instead of generated levels, set with -Dlabyrinth.maze=file.txt|file.png
+    private final String mazeFile = System.getProperty("labyrinth.maze");
+    private final boolean mergedWalls = "merged".equals(System.getProperty("labyrinth.walls"));
+    
+    // Grid raycaster drawing instead of the 3D scene, selected with -Dlabyrinth.renderer=raycast
+    private final boolean raycast = "raycast".equals(System.getProperty("labyrinth.renderer"));
+    private RaycastRenderer raycaster;
+    private float[] creaturePositions;
+    
+    // Creatures chasing the player, set with -Dlabyrinth.creatures=count
+    private final int creatureCount = Integer.getInteger("labyrinth.creatures", 64);
+    private CreatureSwarmComponent creatureSwarm;
+    
+    // Visual quality, adapted to the frame time unless pinned with -Dlabyrinth.quality=preset
+    private QualityGovernor quality;
+    private WallCuller wallCuller;
+    
+    // Leak detection across level transitions, enabled with -Dlabyrinth.diagnostics=true
+    private LevelDiagnostics diagnostics;
+    
+    // Exploration heatmaps of every level, enabled with -Dlabyrinth.exploration=dir
+    private ExplorationTracker explorationTracker;
+    
+    // Scripted rendering benchmark, enabled with -Dlabyrinth.flythrough=seconds
+    private final Flythrough flythrough = Flythrough.fromSystemProperties();
+    
+    // Startup time measurement, enabled with -Dlabyrinth.startup=menu|level
+    private final StartupTimer startup = StartupTimer.fromSystemProperties();
+    
+    // Replay recording and playback
+    private ReplayRecorder replayRecorder;
+    private ReplayPlayer replayPlayer;
+    
+    // Autosave of the game in progress, set with -Dlabyrinth.save=file and -Dlabyrinth.autosave=seconds
+    private final Path saveFile = Path.of(System.getProperty("labyrinth.save", "saves/autosave.lsav"));
+    private final int autosaveSeconds = Integer.getInteger("labyrinth.autosave", 5);
+    private AutoSaver autoSaver;
+    private SaveGame savedGame;
+    private double sinceAutosave = 0;
     
     // Sound variables
     private boolean isWalkingSoundPlaying = false;
+    private SpatialAudio spatialAudio;
     
     // UI elements
     private Text levelText;
+    private Minimap minimap;
 
     /**
      * Initializes game settings.
@@ -47,18 +159,55 @@ public class LabyrinthGame extends GameApplication {
         settings.setHeight(720);
         settings.setTitle("3D Labyrinth");
         settings.setVersion("1.0");
-        settings.setMainMenuEnabled(true);
+        settings.setMainMenuEnabled(flythrough == null);
         settings.setGameMenuEnabled(true);
         settings.setFullScreenAllowed(true);
         settings.setManualResizeEnabled(false);
         settings.set3D(true);
+        settings.addEngineService(ExitService.class);
+        
+        // The game stops updating while a menu is shown, so the looping sounds are silenced
         settings.setSceneFactory(new SceneFactory() {
             @Override
             public FXGLMenu newMainMenu() {
-                return new LabyrinthMainMenu();
+                LabyrinthMainMenu menu = new LabyrinthMainMenu();
+                if (startup != null) {
+                    menu.setOnFirstFrame(LabyrinthGame.this::onFirstMenuFrame);
+                }
+                menu.setOnShown(LabyrinthGame.this::muteAudio);
+                return menu;
+            }
+            
+            @Override
+            public FXGLMenu newGameMenu() {
+                return new FXGLDefaultMenu(MenuType.GAME_MENU) {
+                    @Override
+                    public void onEnteredFrom(Scene prevState) {
+                        super.onEnteredFrom(prevState);
+                        muteAudio();
+                    }
+                };
             }
         });
     }
+    
+    /**
+     * Releases what the game holds when the application exits.
+     */
+    public static class ExitService extends EngineService {
+        
+        /**
+         * Stops the looping sounds and releases their media players.
+         */
+        @Override
+        public void onExit() {
+            LabyrinthGame game = getAppCast();
+            if (game.spatialAudio != null) {
+                game.spatialAudio.dispose();
+                game.spatialAudio = null;
+            }
+        }
+    }
 
     /**
      * Initializes the game using Camera3DSample approach.
@@ -72,13 +221,71 @@ public class LabyrinthGame extends GameApplication {
 
         getGameScene().setBackgroundColor(Color.DARKCYAN);
 
-        getGameScene().setFPSCamera(true);
+        // Stop the previous game before finishing its recording, the simulation writes to it
+        if (simulation != null) {
+            simulation.stop();
+            simulation = null;
+        }
+        if (replayRecorder != null) {
+            replayRecorder.close();
+            replayRecorder = null;
+        }
+        
+        // Set up saving, recording or playback before the first level is generated
+        initSave();
+        initReplay();
+        
+        // Mouse look is driven by the replay or the flythrough when one is playing
+        getGameScene().setFPSCamera(replayPlayer == null && flythrough == null);
         getGameScene().setCursorInvisible();
 
         getGameWorld().addEntityFactory(new LabyrinthFactory());
         
-        // Load the first level
-        loadLevel(currentLevel);
+        // Subsystems only a game needs are created on the first PLAY, so they stay off the way to the menu
+        if (wallCuller == null) {
+            wallCuller = new WallCuller();
+            diagnostics = LevelDiagnostics.fromSystemProperties();
+            planner = LevelPlanner.fromSystemProperties(labyrinthLayers);
+            explorationTracker = ExplorationTracker.fromSystemProperties(1.0 / SimulationSession.TICKS_PER_SECOND);
+            
+            // The exit beacon and the creatures are heard through the corridors
+            spatialAudio = SpatialAudio.create();
+        }
+        
+        // The raycast image is shown behind the HUD instead of building the 3D scene
+        if (raycast) {
+            raycaster = new RaycastRenderer((int) (getAppWidth() * RAYCAST_RESOLUTION),
+                    (int) (getAppHeight() * RAYCAST_RESOLUTION));
+            raycaster.getView().setFitWidth(getAppWidth());
+            raycaster.getView().setFitHeight(getAppHeight());
+        }
+        
+        // Start at the preset quality, aiming for 60 frames per second
+        quality = QualityGovernor.fromSystemProperty(1.0 / 60);
+        applyQuality();
+        
+        // Start the simulation, the first level is shown with its first snapshot
+        simulation = new GameSimulation(labyrinthSize, camera3D.getMoveSpeed(), creatureCount,
+                replayRecorder, replayPlayer);
+        simulation.setLayers(labyrinthLayers);
+        if (planner != null) {
+            simulation.setPlanner(planner);
+        }
+        if (explorationTracker != null) {
+            simulation.setExplorationTracker(explorationTracker);
+        }
+        if (mazeFile != null) {
+            simulation.setMaze(Path.of(mazeFile));
+        }
+        if (flythrough != null && replayPlayer == null) {
+            flythrough.attach(simulation);
+        }
+        if (savedGame != null) {
+            simulation.restore(savedGame);
+            camera3D.getTransform().setRotationX(savedGame.rotationX());
+            camera3D.getTransform().setRotationY(savedGame.rotationY());
+        }
+        simulation.start();
     }
 
     /**
@@ -86,28 +293,25 @@ public class LabyrinthGame extends GameApplication {
      */
     @Override
     protected void initInput() {
-        // Movement with walking sound
-        onKey(KeyCode.W, () -> {
-            camera3D.moveForward();
-            startWalkingSound();
-        });
-        onKey(KeyCode.S, () -> {
-            camera3D.moveBack();
-            startWalkingSound();
-        });
-        onKey(KeyCode.A, () -> {
-            camera3D.moveLeft();
-            startWalkingSound();
-        });
-        onKey(KeyCode.D, () -> {
-            camera3D.moveRight();
-            startWalkingSound();
-        });
+        // Movement is held as input flags until the key is released
+        for (int i = 0; i < MOVEMENT_KEYS.length; i++) {
+            int flag = MOVEMENT_FLAGS[i];
+            onKeyBuilder(MOVEMENT_KEYS[i])
+                    .onActionBegin(() -> onMovementKey(flag, true))
+                    .onActionEnd(() -> onMovementKey(flag, false));
+        }
 
 
         onKey(KeyCode.L, () -> {
             getGameController().exit();
         });
+        
+        // Minimap zoom
+        onKeyDown(KeyCode.M, () -> {
+            if (minimap != null) {
+                minimap.cycleZoom();
+            }
+        });
     }
 
     /**
@@ -115,12 +319,27 @@ public class LabyrinthGame extends GameApplication {
      */
     @Override
     protected void initUI() {
+        if (raycaster != null) {
+            getGameScene().addUINode(raycaster.getView());
+        }
+        
         // Add level indicator
         levelText = getUIFactoryService().newText("Level: " + currentLevel, Color.WHITE, 24);
         levelText.setTranslateX(20);
         levelText.setTranslateY(30);
         
         getGameScene().addUINode(levelText);
+        
+        // Add minimap in the top right corner
+        minimap = new Minimap();
+        minimap.setTranslateX(getAppWidth() - 220);
+        minimap.setTranslateY(20);
+        if (labyrinth != null) {
+            minimap.setLabyrinth(labyrinth);
+        }
+        minimap.setVisible(quality == null || quality.getLevel().hasOverlays());
+        
+        getGameScene().addUINode(minimap);
     }
     
     /**
@@ -130,34 +349,166 @@ public class LabyrinthGame extends GameApplication {
      */
     @Override
     protected void onUpdate(double tpf) {
+        // Apply the latest simulation state and hand it the current look direction
+        GameSnapshot snapshot = simulation.pollSnapshot();
+        if (snapshot != null) {
+            applySnapshot(snapshot);
+        }
+        if (!simulation.isScripted()) {
+            simulation.look(camera3D.getTransform().getRotationX(), camera3D.getTransform().getRotationY());
+        }
+
+        // Save the game in progress now and then, the file is written in the background
+        sinceAutosave += tpf;
+        if (autoSaver != null && snapshot != null && !snapshot.finished() && sinceAutosave >= autosaveSeconds) {
+            sinceAutosave = 0;
+            autoSaver.save(new SaveGame(snapshot.level(), snapshot.labyrinth(), snapshot.x(), snapshot.z(),
+                    snapshot.layer(), camera3D.getTransform().getRotationX(), camera3D.getTransform().getRotationY(),
+                    minimap != null ? (BitSet) minimap.getExplored().clone() : new BitSet()));
+        }
+
+        // Adapt the visual quality to the frame time
+        if (quality.onFrame(tpf)) {
+            applyQuality();
+        }
+        buildNextRows();
+        wallCuller.update(camera3D.getTransform().getX(), camera3D.getTransform().getZ(),
+                quality.getLevel().getCullRadius());
+        
+        // Draw the frame from the grid when raycasting, the camera holds the pose
+        if (raycaster != null) {
+            raycaster.render(camera3D.getTransform().getX(), camera3D.getTransform().getZ(),
+                    camera3D.getTransform().getRotationY(), quality.getLevel().getViewDistance(), creaturePositions);
+        }
+        
+        if (spatialAudio != null) {
+            spatialAudio.update(camera3D.getTransform().getX(), camera3D.getTransform().getZ(), currentLayer,
+                    camera3D.getTransform().getRotationY(), creaturePositions);
+        }
+        
+        if (flythrough != null && flythrough.onFrame()) {
+            getGameController().exit();
+        }
+        if (startup != null && labyrinth != null && startup.onLevelFrame()) {
+            getGameController().exit();
+        }
+
         // Update level text if needed
         if (levelText != null) {
             levelText.setText("Level: " + currentLevel);
         }
+        
+        // Update minimap with the current player position, exploration is tracked while it is hidden too
+        if (minimap != null) {
+            minimap.update(camera3D.getTransform().getX(), camera3D.getTransform().getZ());
+        }
     }
 
     /**
-     * Loads a level with the specified level number.
+     * Renders the state of the latest simulation tick.
+     *
+     * @param snapshot the snapshot to apply
+     */
+    private void applySnapshot(GameSnapshot snapshot) {
+        if (snapshot.finished()) {
+            LOG.info("Replay finished");
+            replayPlayer = null;
+            getGameController().exit();
+            return;
+        }
+        
+        // Move the camera first, large levels are built outwards from it
+        camera3D.getTransform().setX(snapshot.x());
+        camera3D.getTransform().setY(LabyrinthGenerator.getLayerY(snapshot.layer()));
+        camera3D.getTransform().setZ(snapshot.z());
+        
+        // A new labyrinth was generated by the simulation
+        if (snapshot.labyrinth() != labyrinth) {
+            currentLevel = snapshot.level();
+            loadLevel(snapshot.level(), snapshot.labyrinth());
+            
+            // Show what was explored before the game was saved, and save a new level right away
+            if (savedGame != null && snapshot.labyrinth() == savedGame.labyrinth() && minimap != null) {
+                minimap.setExplored(savedGame.explored());
+            }
+            sinceAutosave = autosaveSeconds;
+        }
+        
+        // The player went up or down a stairwell
+        if (snapshot.layer() != currentLayer) {
+            showLayer(snapshot.layer());
+        }
+        
+        creaturePositions = snapshot.creatures();
+        if (creatureSwarm != null) {
+            creatureSwarm.setPositions(creaturePositions);
+        }
+        
+        // Mouse look is driven by the replay or the bot when one is playing
+        if (simulation.isScripted()) {
+            camera3D.getTransform().setRotationX(snapshot.rotationX());
+            camera3D.getTransform().setRotationY(snapshot.rotationY());
+        }
+        
+        if (snapshot.moving()) {
+            startWalkingSound();
+        }
+    }
+    
+    /**
+     * Applies the current quality level to the camera, the wall textures and the HUD.
+     */
+    private void applyQuality() {
+        QualityLevel level = quality.getLevel();
+        camera3D.getPerspectiveCamera().setFarClip(level.getViewDistance());
+        if (labyrinth != null) {
+            labyrinth.setTextureScale(level.getTextureScale());
+        }
+        if (minimap != null) {
+            minimap.setVisible(level.hasOverlays());
+        }
+        LOG.debug("Quality: " + level + (quality.isPinned() ? " (pinned)" : ""));
+        quality.reset();
+    }
+    
+    /**
+     * Shows a level generated by the simulation thread.
      *
      * @param levelNumber the level number to load
+     * @param labyrinth the generated labyrinth
      */
-    private void loadLevel(int levelNumber) {
+    private void loadLevel(int levelNumber, LabyrinthGenerator labyrinth) {
         // Clear existing level
-        getGameWorld().getEntitiesByType(EntityType.WALL, EntityType.FLOOR, 
-                                         EntityType.CEILING, EntityType.EXIT)
+        getGameWorld().getEntitiesByType(LEVEL_ENTITY_TYPES)
                       .forEach(Entity::removeFromWorld);
         
-        // Create new labyrinth
-        LabyrinthGenerator generator = new LabyrinthGenerator(20, 20); // 20x20 grid
-        generator.generate();
+        // Build the labyrinth
+        this.labyrinth = labyrinth;
+        labyrinth.setTextureScale(quality.getLevel().getTextureScale());
+        labyrinth.setMergedWalls(mergedWalls);
+        long buildStart = System.nanoTime();
+        showLayer(0);
+        if (flythrough != null) {
+            flythrough.onLevelBuilt(System.nanoTime() - buildStart);
+        }
+        LOG.debugf("Level %d: %dx%d %s, lighting baked in %.2f ms (%d chunks)", levelNumber,
+                labyrinth.getWidth(), labyrinth.getHeight(), labyrinth.getAlgorithm(),
+                labyrinth.getLightmap().getBakeNanos() / 1e6, labyrinth.getLightmap().getChunks());
         
-        // Position camera at start location
-        camera3D.getTransform().setX(generator.getStartX());
-        camera3D.getTransform().setY(0);
-        camera3D.getTransform().setZ(generator.getStartZ());
+        // Add the creatures, they are moved by the snapshots
+        if (raycaster == null) {
+            creatureSwarm = spawn("creatures", new SpawnData(0, 0).put("count", creatureCount))
+                    .getComponent(CreatureSwarmComponent.class);
+        }
         
-        // Build the labyrinth
-        generator.build();
+        if (spatialAudio != null) {
+            spatialAudio.setLabyrinth(labyrinth);
+        }
+        
+        // Render the new labyrinth into the minimap
+        if (minimap != null) {
+            minimap.setLabyrinth(labyrinth);
+        }
         
         // Update level text
         if (levelText != null) {
@@ -167,6 +518,11 @@ public class LabyrinthGame extends GameApplication {
         // Ensure input processing is enabled for the new level
         getInput().setProcessInput(true);
         
+        // Look for anything that survives level transitions
+        if (diagnostics != null) {
+            diagnostics.onLevelLoaded(levelNumber, getGameWorld(), getGameScene().getRoot());
+        }
+        
         // Display level start message and ensure focus
         Platform.runLater(() -> {
             getNotificationService().pushNotification("Level " + currentLevel + " - Find the exit!");
@@ -175,6 +531,176 @@ public class LabyrinthGame extends GameApplication {
         });
     }
 
+    /**
+     * Builds the storey the player is on and the storeys right above and below it,
+     * replacing the ones built before.
+     *
+     * @param layer the storey the player is on
+     */
+    private void showLayer(int layer) {
+        getGameWorld().getEntitiesByType(LAYER_ENTITY_TYPES)
+                      .forEach(Entity::removeFromWorld);
+        
+        currentLayer = layer;
+        if (raycaster != null) {
+            raycaster.setLabyrinth(labyrinth, layer);
+        } else {
+            // A level that cannot be built within the budget gets the rows around the player first
+            int rows = planner != null
+                    ? planner.getLoadRows(labyrinth.getWidth(), labyrinth.getBuiltLayers(layer))
+                    : labyrinth.getHeight();
+            long start = System.nanoTime();
+            if (rows >= labyrinth.getHeight()) {
+                labyrinth.build(layer);
+                builtFromRow = 0;
+                builtToRow = labyrinth.getHeight();
+            } else {
+                labyrinth.buildSurfaces(layer);
+                int row = LabyrinthGenerator.toCell(camera3D.getTransform().getZ());
+                builtFromRow = Math.max(0, Math.min(labyrinth.getHeight() - rows, row - rows / 2));
+                builtToRow = builtFromRow + rows;
+                labyrinth.buildRows(layer, builtFromRow, builtToRow);
+            }
+            recordBuild(layer, builtToRow - builtFromRow, System.nanoTime() - start);
+        }
+        
+        // Merged walls span the whole labyrinth, so there is nothing to cull
+        wallCuller.setWalls(mergedWalls ? List.of() : getGameWorld().getEntitiesByType(EntityType.WALL));
+        
+        if (minimap != null) {
+            minimap.setLayer(layer);
+        }
+        
+        // The frame building the storeys is not a sign of the quality being too high
+        quality.reset();
+    }
+    
+    /**
+     * Streams in the next rows of a level too large to build at once,
+     * growing the built rows on both sides of the player.
+     */
+    private void buildNextRows() {
+        if (labyrinth == null || raycaster != null || planner == null
+                || (builtFromRow == 0 && builtToRow >= labyrinth.getHeight())) {
+            return;
+        }
+        
+        int half = Math.max(1, planner.getFrameRows(labyrinth.getWidth(), labyrinth.getBuiltLayers(currentLayer)) / 2);
+        int fromRow = Math.max(0, builtFromRow - half);
+        int toRow = Math.min(labyrinth.getHeight(), builtToRow + half);
+        long start = System.nanoTime();
+        labyrinth.buildRows(currentLayer, fromRow, builtFromRow);
+        labyrinth.buildRows(currentLayer, builtToRow, toRow);
+        recordBuild(currentLayer, builtFromRow - fromRow + toRow - builtToRow, System.nanoTime() - start);
+        builtFromRow = fromRow;
+        builtToRow = toRow;
+        
+        if (!mergedWalls) {
+            wallCuller.setWalls(getGameWorld().getEntitiesByType(EntityType.WALL));
+        }
+    }
+    
+    /**
+     * Tells the planner how long some rows of the storeys around the player took to build.
+     *
+     * @param layer the storey the player is on
+     * @param rows the number of rows built
+     * @param nanos the build time in nanoseconds
+     */
+    private void recordBuild(int layer, int rows, long nanos) {
+        if (planner != null) {
+            planner.recordBuild((long) rows * labyrinth.getWidth() * labyrinth.getBuiltLayers(layer), nanos);
+        }
+    }
+
+    /**
+     * Silences the looping sounds while no game is being played.
+     */
+    private void muteAudio() {
+        if (spatialAudio != null) {
+            spatialAudio.mute();
+        }
+    }
+    
+    /**
+     * Records the first frame of the main menu when measuring startup time,
+     * then exits or presses PLAY to go on measuring until the first level.
+     */
+    private void onFirstMenuFrame() {
+        if (startup.onMenuFrame()) {
+            getGameController().exit();
+        } else {
+            Platform.runLater(() -> getGameController().startNewGame());
+        }
+    }
+    
+    /**
+     * Restores the saved game, if there is one, and starts saving the game in progress.
+     * Use -Dlabyrinth.save=file to change the save file, -Dlabyrinth.autosave=seconds to change
+     * how often it is written, 0 to disable saving, and -Dlabyrinth.resume=false to start a new game.
+     * Replays, flythroughs and startup measurements neither resume nor overwrite the saved game.
+     */
+    private void initSave() {
+        savedGame = null;
+        if (autosaveSeconds <= 0 || flythrough != null || startup != null
+                || System.getProperty("labyrinth.replay") != null) {
+            return;
+        }
+        
+        if (!"false".equals(System.getProperty("labyrinth.resume")) && Files.exists(saveFile)) {
+            try {
+                long start = System.nanoTime();
+                savedGame = SaveFile.read(saveFile);
+                LOG.infof("Restored level %d from %s in %.2f ms", savedGame.level(), saveFile,
+                        (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                // If the save cannot be read, just start a new game
+                System.err.println("Could not restore saved game: " + e.getMessage());
+            }
+        }
+        if (autoSaver == null) {
+            autoSaver = new AutoSaver(saveFile);
+        }
+    }
+    
+    /**
+     * Starts recording the session, or opens a replay when one was requested.
+     * Use -Dlabyrinth.replay=file to play back a session, -Dlabyrinth.record=false
+     * to disable recording and -Dlabyrinth.record.dir=dir to change where sessions are saved.
+     */
+    private void initReplay() {
+        String replayFile = System.getProperty("labyrinth.replay");
+        try {
+            if (replayFile != null) {
+                replayPlayer = ReplayPlayer.open(Path.of(replayFile));
+            } else if (savedGame == null && !"false".equals(System.getProperty("labyrinth.record"))) {
+                // A restored game does not start from a level seed, so it cannot be replayed
+                Path dir = Path.of(System.getProperty("labyrinth.record.dir", "replays"));
+                replayRecorder = ReplayRecorder.start(dir.resolve("session-" + System.currentTimeMillis() + ".lrp"));
+            }
+        } catch (IOException e) {
+            // If the replay cannot be set up, just continue without it
+            System.err.println("Could not initialize replay: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Handles pressing or releasing a movement key.
+     *
+     * @param flag the input flag of the key
+     * @param held true if the key was pressed, false if it was released
+     */
+    private void onMovementKey(int flag, boolean held) {
+        if (simulation == null) {
+            return;
+        }
+        if (held) {
+            simulation.press(flag);
+        } else {
+            simulation.release(flag);
+        }
+    }
+
     /**
      * Starts playing the walking sound if not already playing.
      */
@@ -210,8 +736,7 @@ public class LabyrinthGame extends GameApplication {
      * Advances towthe next level.
      */
     public void nextLevel() {
-        currentLevel++;
-        loadLevel(currentLevel);
+        simulation.skipLevel();
     }
 
     /**
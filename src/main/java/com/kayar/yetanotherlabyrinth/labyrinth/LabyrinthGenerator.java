@@ -1,12 +1,20 @@
 package com.kayar.yetanotherlabyrinth.labyrinth;
 
 import com.almasb.fxgl.dsl.FXGL;
-import com.almasb.fxgl.entity.Entity;
+import com.almasb.fxgl.entity.SpawnData;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.LightingBaker;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.Lightmap;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.MergedWallMesh;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.SharedWallMesh;
+import com.kayar.yetanotherlabyrinth.labyrinth.render.WallTextures;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Box;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Random;
 import java.util.Stack;
 
@@ -14,33 +22,71 @@ import static com.almasb.fxgl.dsl.FXGL.*;
 import static com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGame.EntityType.*;
 
 /**
- * Generates a random labyrinth using a depth-first search algorithm.
+ * Generates a random labyrinth using a depth-first search algorithm, or randomized Prim's algorithm.
  * The labyrinth consists of walls, floors, and an exit point.
+ * It can have several storeys stacked on top of each other, joined by stairwells;
+ * every storey is stored as one byte per cell, and only the storeys around the
+ * player are built into the scene.
  */
 public class LabyrinthGenerator {
+    
+    // Carving algorithms: depth-first search makes long winding corridors with few dead ends,
+    // randomized Prim's algorithm short corridors with many short dead ends
+    public enum Algorithm {
+        DEPTH_FIRST, PRIM
+    }
+    
     // Cell states
-    private static final int WALL = 0;
-    private static final int PATH = 1;
-    private static final int START = 2;
-    private static final int EXIT = 3;
+    private static final byte WALL = 0;
+    private static final byte PATH = 1;
+    private static final byte START = 2;
+    private static final byte EXIT = 3;
+    private static final byte STAIRS_UP = 4;
+    private static final byte STAIRS_DOWN = 5;
     
     // Cell size in 3D world
     private static final double CELL_SIZE = 2.0;
     private static final double WALL_HEIGHT = 3.0;
     
+    // Distance between two storeys, from floor to floor
+    private static final double STOREY_HEIGHT = CELL_SIZE + WALL_HEIGHT;
+    
+    // Open cells per stairwell between two storeys
+    private static final int CELLS_PER_STAIRWELL = 400;
+    
+    // Wall texture files
+    private static final String[] WALL_TEXTURES = {"wall-1.png", "wall-2.png"};
+    
     // Grid dimensions
     private final int width;
     private final int height;
+    private final int layers;
     
-    // The grid representing the labyrinth
-    private int[][] grid;
+    // The cells of every storey, row by row
+    private final byte[][] cells;
     
-    // Start and exit positions
+    // Start position on the ground storey and exit position on any storey
     private int startX, startZ;
     private int exitX, exitZ;
+    private int exitLayer;
     
     // Random number generator
-    private final Random random = new Random();
+    private final long seed;
+    private final Random random;
+    
+    // Algorithm generate() carves with
+    private Algorithm algorithm = Algorithm.DEPTH_FIRST;
+    
+    // Lighting baked when the labyrinth is built, one lightmap per storey
+    private Lightmap[] lightmaps;
+    
+    // Wall materials created by build(), and the wall box mesh sharing them
+    private PhongMaterial[][] wallMaterials;
+    private SharedWallMesh wallMesh;
+    private double textureScale = 1.0;
+    
+    // Whether build() merges the walls into one mesh per material
+    private boolean mergedWalls = false;
     
     /**
      * Creates a new labyrinth generator with the specified dimensions.
@@ -49,29 +95,193 @@ public class LabyrinthGenerator {
      * @param height the height of the labyrinth
      */
     public LabyrinthGenerator(int width, int height) {
+        this(width, height, new Random().nextLong());
+    }
+    
+    /**
+     * Creates a new labyrinth generator with the specified dimensions and seed.
+     * The same seed always produces the same labyrinth.
+     *
+     * @param width the width of the labyrinth
+     * @param height the height of the labyrinth
+     * @param seed the random seed
+     */
+    public LabyrinthGenerator(int width, int height, long seed) {
+        this(width, height, 1, seed);
+    }
+    
+    /**
+     * Creates a new labyrinth generator with several storeys.
+     * The same seed always produces the same labyrinth, and a single storey
+     * is the same labyrinth as without storeys.
+     *
+     * @param width the width of the labyrinth
+     * @param height the height of the labyrinth
+     * @param layers the number of storeys
+     * @param seed the random seed
+     */
+    public LabyrinthGenerator(int width, int height, int layers, long seed) {
         // Ensure odd dimensions for proper maze generation
         this.width = width % 2 == 0 ? width + 1 : width;
         this.height = height % 2 == 0 ? height + 1 : height;
-        this.grid = new int[this.height][this.width];
+        this.layers = Math.max(1, layers);
+        this.cells = new byte[this.layers][this.width * this.height];
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Creates a single storey labyrinth from an existing grid, e.g. one made by hand.
+     * The grid is used as is and any size is allowed, so {@link #generate()} must not be called.
+     *
+     * @param width the width of the grid
+     * @param height the height of the grid
+     * @param open the open cells, indexed row by row; all other cells are walls
+     * @param startX the x-coordinate of the start cell
+     * @param startZ the z-coordinate of the start cell
+     * @param exitX the x-coordinate of the exit cell
+     * @param exitZ the z-coordinate of the exit cell
+     * @param seed the seed the wall textures are chosen with
+     * @return the labyrinth
+     */
+    public static LabyrinthGenerator fromGrid(int width, int height, BitSet open,
+                                              int startX, int startZ, int exitX, int exitZ, long seed) {
+        LabyrinthGenerator labyrinth = new LabyrinthGenerator(width, height, seed, new byte[1][width * height]);
+        byte[] grid = labyrinth.cells[0];
+        for (int cell = open.nextSetBit(0); cell >= 0 && cell < grid.length; cell = open.nextSetBit(cell + 1)) {
+            grid[cell] = PATH;
+        }
+        
+        labyrinth.startX = startX;
+        labyrinth.startZ = startZ;
+        labyrinth.exitX = exitX;
+        labyrinth.exitZ = exitZ;
+        grid[startZ * width + startX] = START;
+        grid[exitZ * width + exitX] = EXIT;
+        return labyrinth;
+    }
+    
+    /**
+     * Restores a labyrinth packed by {@link #packOpenCells()} and {@link #getStairwells()}, e.g. from a save file.
+     * The grid is used as is, so {@link #generate()} must not be called.
+     *
+     * @param width the width of the grid
+     * @param height the height of the grid
+     * @param layers the number of storeys
+     * @param open the open cells of every storey, 64 per word, indexed by (layer * height + z) * width + x
+     * @param stairwells the stairwells going up, indexed the same way
+     * @param startX the x-coordinate of the start cell on the ground storey
+     * @param startZ the z-coordinate of the start cell on the ground storey
+     * @param exitX the x-coordinate of the exit cell
+     * @param exitZ the z-coordinate of the exit cell
+     * @param exitLayer the storey of the exit cell
+     * @param seed the seed the labyrinth was generated from
+     * @return the labyrinth
+     */
+    public static LabyrinthGenerator fromPacked(int width, int height, int layers, long[] open, int[] stairwells,
+                                                int startX, int startZ, int exitX, int exitZ, int exitLayer,
+                                                long seed) {
+        int size = width * height;
+        LabyrinthGenerator labyrinth = new LabyrinthGenerator(width, height, seed, new byte[layers][size]);
+        byte[][] cells = labyrinth.cells;
+        
+        // Every bit is either WALL or PATH, so it can be stored without branching
+        long bit = 0;
+        for (int layer = 0; layer < layers; layer++) {
+            byte[] grid = cells[layer];
+            for (int cell = 0; cell < size; cell++, bit++) {
+                grid[cell] = (byte) ((open[(int) (bit >>> 6)] >>> bit) & PATH);
+            }
+        }
+        for (int cell : stairwells) {
+            cells[cell / size][cell % size] = STAIRS_UP;
+            cells[cell / size + 1][cell % size] = STAIRS_DOWN;
+        }
+        
+        labyrinth.startX = startX;
+        labyrinth.startZ = startZ;
+        labyrinth.exitX = exitX;
+        labyrinth.exitZ = exitZ;
+        labyrinth.exitLayer = exitLayer;
+        cells[0][startZ * width + startX] = START;
+        cells[exitLayer][exitZ * width + exitX] = EXIT;
+        return labyrinth;
+    }
+    
+    /**
+     * Creates a labyrinth holding the specified cells, without adjusting the size.
+     *
+     * @param width the width of the grid
+     * @param height the height of the grid
+     * @param seed the random seed
+     * @param cells the cells of every storey, row by row
+     */
+    private LabyrinthGenerator(int width, int height, long seed, byte[][] cells) {
+        this.width = width;
+        this.height = height;
+        this.layers = cells.length;
+        this.cells = cells;
+        this.seed = seed;
+        this.random = new Random(seed);
     }
     
     /**
-     * Generates a random labyrinth using a depth-first search algorithm.
+     * Generates a random labyrinth with the selected algorithm, depth-first search by default.
+     * Every storey is carved on its own, then neighboring storeys are joined by stairwells.
      */
     public void generate() {
         // Initialize grid with walls
-        for (int z = 0; z < height; z++) {
-            for (int x = 0; x < width; x++) {
-                grid[z][x] = WALL;
-            }
+        for (byte[] layer : cells) {
+            Arrays.fill(layer, WALL);
         }
         
         // Start at a random odd position
         int startX = random.nextInt(width / 2) * 2 + 1;
         int startZ = random.nextInt(height / 2) * 2 + 1;
+        carve(0, startX, startZ);
+        
+        // Carve the upper storeys from random positions as well
+        for (int layer = 1; layer < layers; layer++) {
+            carve(layer, random.nextInt(width / 2) * 2 + 1, random.nextInt(height / 2) * 2 + 1);
+        }
+        
+        // Set start position
+        this.startX = startX;
+        this.startZ = startZ;
+        cells[0][startZ * width + startX] = START;
+        
+        // Join the storeys, then set exit position (farthest from start)
+        connectLayers();
+        setExitPosition();
+    }
+    
+    /**
+     * Carves the paths of a storey with the selected algorithm.
+     *
+     * @param layer the storey
+     * @param startX the x-coordinate to start carving at, odd
+     * @param startZ the z-coordinate to start carving at, odd
+     */
+    private void carve(int layer, int startX, int startZ) {
+        if (algorithm == Algorithm.PRIM) {
+            carvePrim(layer, startX, startZ);
+        } else {
+            carveDepthFirst(layer, startX, startZ);
+        }
+    }
+    
+    /**
+     * Carves the paths of a storey with a depth-first search.
+     *
+     * @param layer the storey
+     * @param startX the x-coordinate to start carving at, odd
+     * @param startZ the z-coordinate to start carving at, odd
+     */
+    private void carveDepthFirst(int layer, int startX, int startZ) {
+        byte[] grid = cells[layer];
         
         // Mark as path
-        grid[startZ][startX] = PATH;
+        grid[startZ * width + startX] = PATH;
         
         // Use depth-first search to carve paths
         Stack<int[]> stack = new Stack<>();
@@ -83,7 +293,7 @@ public class LabyrinthGenerator {
             int z = current[1];
             
             // Find unvisited neighbors
-            int[][] neighbors = getUnvisitedNeighbors(x, z);
+            int[][] neighbors = getUnvisitedNeighbors(grid, x, z);
             
             if (neighbors.length > 0) {
                 // Choose a random neighbor
@@ -92,10 +302,10 @@ public class LabyrinthGenerator {
                 int nextZ = next[1];
                 
                 // Remove wall between current and next
-                grid[(z + nextZ) / 2][(x + nextX) / 2] = PATH;
+                grid[(z + nextZ) / 2 * width + (x + nextX) / 2] = PATH;
                 
                 // Mark next as path
-                grid[nextZ][nextX] = PATH;
+                grid[nextZ * width + nextX] = PATH;
                 
                 // Push next to stack
                 stack.push(new int[]{nextX, nextZ});
@@ -104,24 +314,80 @@ public class LabyrinthGenerator {
                 stack.pop();
             }
         }
+    }
+    
+    /**
+     * Carves the paths of a storey with randomized Prim's algorithm.
+     * The maze grows from the start by joining a random frontier cell to a random
+     * carved neighbor, so it branches everywhere instead of running off in one corridor.
+     *
+     * @param layer the storey
+     * @param startX the x-coordinate to start carving at, odd
+     * @param startZ the z-coordinate to start carving at, odd
+     */
+    private void carvePrim(int layer, int startX, int startZ) {
+        byte[] grid = cells[layer];
+        boolean[] inFrontier = new boolean[width * height];
+        int[] frontier = new int[(width / 2) * (height / 2)];
+        int frontierSize = 0;
         
-        // Set start position
-        this.startX = startX;
-        this.startZ = startZ;
-        grid[startZ][startX] = START;
+        // Possible directions: right, down, left, up
+        int[][] directions = {{2, 0}, {0, 2}, {-2, 0}, {0, -2}};
+        int[] carved = new int[directions.length];
         
-        // Set exit position (farthest from start)
-        setExitPosition();
+        int cell = startZ * width + startX;
+        grid[cell] = PATH;
+        while (true) {
+            // Add the uncarved neighbors of the cell just carved to the frontier
+            int x = cell % width;
+            int z = cell / width;
+            for (int[] dir : directions) {
+                int nextX = x + dir[0];
+                int nextZ = z + dir[1];
+                int next = nextZ * width + nextX;
+                if (nextX > 0 && nextX < width - 1 && nextZ > 0 && nextZ < height - 1
+                        && grid[next] == WALL && !inFrontier[next]) {
+                    inFrontier[next] = true;
+                    frontier[frontierSize++] = next;
+                }
+            }
+            
+            if (frontierSize == 0) {
+                return;
+            }
+            
+            // Take a random frontier cell
+            int index = random.nextInt(frontierSize);
+            cell = frontier[index];
+            frontier[index] = frontier[--frontierSize];
+            x = cell % width;
+            z = cell / width;
+            
+            // Join it to a random carved neighbor
+            int carvedCount = 0;
+            for (int i = 0; i < directions.length; i++) {
+                int nextX = x + directions[i][0];
+                int nextZ = z + directions[i][1];
+                if (nextX > 0 && nextX < width - 1 && nextZ > 0 && nextZ < height - 1
+                        && grid[nextZ * width + nextX] != WALL) {
+                    carved[carvedCount++] = i;
+                }
+            }
+            int[] dir = directions[carved[random.nextInt(carvedCount)]];
+            grid[(z + dir[1] / 2) * width + x + dir[0] / 2] = PATH;
+            grid[cell] = PATH;
+        }
     }
     
     /**
      * Gets unvisited neighbors of the specified position.
      *
+     * @param grid the cells of the storey being carved
      * @param x the x-coordinate
      * @param z the z-coordinate
      * @return an array of unvisited neighbors
      */
-    private int[][] getUnvisitedNeighbors(int x, int z) {
+    private int[][] getUnvisitedNeighbors(byte[] grid, int x, int z) {
         // Possible directions: right, down, left, up
         int[][] directions = {{2, 0}, {0, 2}, {-2, 0}, {0, -2}};
         
@@ -134,7 +400,7 @@ public class LabyrinthGenerator {
             
             // Check if within bounds and unvisited
             if (nextX > 0 && nextX < width - 1 && nextZ > 0 && nextZ < height - 1
-                    && grid[nextZ][nextX] == WALL) {
+                    && grid[nextZ * width + nextX] == WALL) {
                 neighbors.push(new int[]{nextX, nextZ});
             }
         }
@@ -149,43 +415,65 @@ public class LabyrinthGenerator {
     }
     
     /**
-     * Sets the exit position at the farthest point from the start.
+     * Joins every storey to the one above with stairwells at random cells that are open on both.
+     * A storey is a perfect maze, so a single stairwell already connects everything;
+     * larger storeys get more of them to offer alternative routes.
      */
-    private void setExitPosition() {
-        // Use breadth-first search to find the farthest point
-        boolean[][] visited = new boolean[height][width];
-        int[][] distance = new int[height][width];
+    private void connectLayers() {
+        int stairwells = Math.max(1, (width / 2) * (height / 2) / CELLS_PER_STAIRWELL);
         
-        // Initialize
-        for (int z = 0; z < height; z++) {
-            for (int x = 0; x < width; x++) {
-                visited[z][x] = false;
-                distance[z][x] = 0;
+        for (int layer = 0; layer < layers - 1; layer++) {
+            byte[] below = cells[layer];
+            byte[] above = cells[layer + 1];
+            
+            int placed = 0;
+            for (int attempt = 0; placed < stairwells && attempt < stairwells * 100; attempt++) {
+                int cell = (random.nextInt(height / 2) * 2 + 1) * width + random.nextInt(width / 2) * 2 + 1;
+                if (below[cell] == PATH && above[cell] == PATH) {
+                    below[cell] = STAIRS_UP;
+                    above[cell] = STAIRS_DOWN;
+                    placed++;
+                }
             }
         }
+    }
+    
+    /**
+     * Sets the exit position at the farthest point from the start.
+     * Walking distances are searched across all storeys, stairwells count as one step.
+     */
+    private void setExitPosition() {
+        int size = width * height;
+        
+        // Use breadth-first search to find the farthest point
+        int[] distance = new int[layers * size];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[layers * size];
+        int head = 0;
+        int tail = 0;
         
         // Start BFS from start position
-        java.util.Queue<int[]> queue = new java.util.LinkedList<>();
-        queue.add(new int[]{startX, startZ});
-        visited[startZ][startX] = true;
+        int start = startZ * width + startX;
+        distance[start] = 0;
+        queue[tail++] = start;
         
         // Possible directions: right, down, left, up
         int[][] directions = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
         
         int maxDistance = 0;
-        int maxX = startX;
-        int maxZ = startZ;
+        int maxCell = start;
         
-        while (!queue.isEmpty()) {
-            int[] current = queue.poll();
-            int x = current[0];
-            int z = current[1];
+        while (head < tail) {
+            int current = queue[head++];
+            int layer = current / size;
+            int x = current % size % width;
+            int z = current % size / width;
+            byte state = cells[layer][current % size];
             
             // Check if this is the farthest point so far
-            if (distance[z][x] > maxDistance && grid[z][x] == PATH) {
-                maxDistance = distance[z][x];
-                maxX = x;
-                maxZ = z;
+            if (distance[current] > maxDistance && state == PATH) {
+                maxDistance = distance[current];
+                maxCell = current;
             }
             
             // Visit neighbors
@@ -194,93 +482,628 @@ public class LabyrinthGenerator {
                 int nextZ = z + dir[1];
                 
                 // Check if within bounds, not visited, and is a path
-                if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < height
-                        && !visited[nextZ][nextX] && grid[nextZ][nextX] != WALL) {
-                    visited[nextZ][nextX] = true;
-                    distance[nextZ][nextX] = distance[z][x] + 1;
-                    queue.add(new int[]{nextX, nextZ});
+                if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < height) {
+                    int next = layer * size + nextZ * width + nextX;
+                    if (distance[next] < 0 && cells[layer][nextZ * width + nextX] != WALL) {
+                        distance[next] = distance[current] + 1;
+                        queue[tail++] = next;
+                    }
                 }
             }
+            
+            // Climb or descend through a stairwell
+            int stairs = state == STAIRS_UP ? 1 : state == STAIRS_DOWN ? -1 : 0;
+            int next = current + stairs * size;
+            if (stairs != 0 && distance[next] < 0) {
+                distance[next] = distance[current] + 1;
+                queue[tail++] = next;
+            }
         }
         
         // Set exit position
-        exitX = maxX;
-        exitZ = maxZ;
-        grid[exitZ][exitX] = EXIT;
+        exitLayer = maxCell / size;
+        exitX = maxCell % size % width;
+        exitZ = maxCell % size / width;
+        cells[exitLayer][exitZ * width + exitX] = EXIT;
     }
     
     /**
-     * Builds the 3D representation of the labyrinth.
+     * Builds the 3D representation of the labyrinth around the ground storey.
+     * Lighting is baked first if needed and applied through the floor and ceiling meshes
+     * and a small set of shared wall materials, so it costs nothing at runtime.
      */
     public void build() {
-        // Calculate centered position for floor and ceiling
-        double centerX = (width - 1) * CELL_SIZE / 2.0;
-        double centerZ = (height - 1) * CELL_SIZE / 2.0;
-        
-        // Create floor
-        Entity floor = entityBuilder()
-                .type(FLOOR)
-                .at(centerX, CELL_SIZE, centerZ)
-                .view(new Box(width * CELL_SIZE + 2 * CELL_SIZE, 0.1, height * CELL_SIZE + 2 * CELL_SIZE))
-                .buildAndAttach();
-        
-        // Create ceiling
-        Entity ceiling = entityBuilder()
-                .type(CEILING)
-                .at(centerX, -WALL_HEIGHT, centerZ)
-                .view(new Box(width * CELL_SIZE + 2 * CELL_SIZE, 0.1, height * CELL_SIZE + 2 * CELL_SIZE))
-                .buildAndAttach();
-        
-        // Create walls
-        Random random = new Random();
-        String[] wallTextures = {"wall-1.png", "wall-2.png"};
-        
-        for (int z = 0; z < height; z++) {
+        build(0);
+    }
+    
+    /**
+     * Builds the 3D representation of the specified storey and the storeys right above and below it.
+     * Storeys further away cannot be seen through a single stairwell, so they are left out
+     * and the scene stays the same size no matter how many storeys there are.
+     *
+     * @param layer the storey the player is on
+     */
+    public void build(int layer) {
+        buildSurfaces(layer);
+        buildRows(layer, 0, height);
+    }
+    
+    /**
+     * Builds the floors and ceilings of the specified storey and the storeys right above and below it.
+     * Together with {@link #buildRows} a large level can be built over several frames.
+     *
+     * @param layer the storey the player is on
+     */
+    public void buildSurfaces(int layer) {
+        prepareBuild();
+        for (int built = getLowestBuiltLayer(layer); built <= getHighestBuiltLayer(layer); built++) {
+            buildSurfaces(built, lightmaps[built]);
+        }
+    }
+    
+    /**
+     * Builds the walls and markers in some rows of the specified storey and the storeys right above and below it.
+     * A wall looks the same no matter which rows it is built with.
+     *
+     * @param layer the storey the player is on
+     * @param fromZ the first row to build
+     * @param toZ the row after the last one to build
+     */
+    public void buildRows(int layer, int fromZ, int toZ) {
+        prepareBuild();
+        for (int built = getLowestBuiltLayer(layer); built <= getHighestBuiltLayer(layer); built++) {
+            buildRows(built, Math.max(0, fromZ), Math.min(height, toZ), lightmaps[built]);
+        }
+    }
+    
+    /**
+     * Gets the number of storeys built together with the specified one.
+     *
+     * @param layer the storey the player is on
+     * @return the number of storeys built
+     */
+    public int getBuiltLayers(int layer) {
+        return getHighestBuiltLayer(layer) - getLowestBuiltLayer(layer) + 1;
+    }
+    
+    /**
+     * Gets the lowest storey built together with the specified one.
+     *
+     * @param layer the storey the player is on
+     * @return the lowest storey built
+     */
+    private int getLowestBuiltLayer(int layer) {
+        return Math.max(0, layer - 1);
+    }
+    
+    /**
+     * Gets the highest storey built together with the specified one.
+     *
+     * @param layer the storey the player is on
+     * @return the highest storey built
+     */
+    private int getHighestBuiltLayer(int layer) {
+        return Math.min(layers - 1, layer + 1);
+    }
+    
+    /**
+     * Bakes the lighting and creates the wall materials unless already done.
+     */
+    private void prepareBuild() {
+        // Bake ambient occlusion and light falloff unless already done
+        if (lightmaps == null) {
+            bakeLighting();
+        }
+        
+        // Materials and the wall geometry are shared by all storeys
+        if (wallMaterials == null) {
+            wallMaterials = createWallMaterials();
+            wallMesh = new SharedWallMesh(CELL_SIZE, WALL_HEIGHT,
+                    Arrays.stream(wallMaterials).flatMap(Arrays::stream).toArray(PhongMaterial[]::new));
+        }
+    }
+    
+    /**
+     * Builds the floor and ceiling of a single storey.
+     *
+     * @param layer the storey
+     * @param lightmap the lightmap of the storey
+     */
+    private void buildSurfaces(int layer, Lightmap lightmap) {
+        double base = getLayerY(layer);
+        
+        // Create floor with holes above the stairwells going down
+        spawn("floor", new SpawnData(0, base + CELL_SIZE, 0)
+                .put("surface", createSurface(lightmap, -0.05f, stairwells(layer, STAIRS_DOWN))));
+        
+        // Create ceiling with holes below the stairwells going up
+        spawn("ceiling", new SpawnData(0, base - WALL_HEIGHT, 0)
+                .put("surface", createSurface(lightmap, 0.05f, stairwells(layer, STAIRS_UP))));
+    }
+        
+    /**
+     * Builds the walls and markers in some rows of a single storey.
+     *
+     * @param layer the storey
+     * @param fromZ the first row to build
+     * @param toZ the row after the last one to build
+     * @param lightmap the lightmap of the storey
+     */
+    private void buildRows(int layer, int fromZ, int toZ, Lightmap lightmap) {
+        byte[] grid = cells[layer];
+        double base = getLayerY(layer);
+        
+        // Spawn the walls as views of the shared box, or collect them into one mesh per material
+        MergedWallMesh[][] wallMeshes = mergedWalls
+                ? new MergedWallMesh[WALL_TEXTURES.length][Lightmap.WALL_LEVELS]
+                : null;
+        
+        for (int z = fromZ; z < toZ; z++) {
             for (int x = 0; x < width; x++) {
-                if (grid[z][x] == WALL) {
-                    // Select random texture
-                    String randomTexture = wallTextures[random.nextInt(wallTextures.length)];
+                byte state = grid[z * width + x];
+                if (state == WALL) {
+                    // Select random texture, lit by the baked light of the wall
+                    int randomTexture = getWallTexture(x, z, layer);
+                    int level = lightmap.getWallLevel(x, z);
                     
-                    // Create wall material with random texture
-                    PhongMaterial wallMaterial = new PhongMaterial();
-                    try {
-                        Image textureImage = new Image(getClass().getResourceAsStream("/assets/textures/" + randomTexture));
-                        wallMaterial.setDiffuseMap(textureImage);
-                    } catch (Exception e) {
-                        // Fallback to gray color if texture loading fails
-                        wallMaterial.setDiffuseColor(Color.GRAY);
+                    if (wallMeshes != null) {
+                        if (wallMeshes[randomTexture][level] == null) {
+                            wallMeshes[randomTexture][level] = new MergedWallMesh();
+                        }
+                        addVisibleFaces(wallMeshes[randomTexture][level], x, z, layer);
+                    } else {
+                        spawn("wall", new SpawnData(x * CELL_SIZE, base, z * CELL_SIZE)
+                                .put("mesh", wallMesh)
+                                .put("material", randomTexture * Lightmap.WALL_LEVELS + level));
                     }
-                    
-                    // Create wall box with material
-                    Box wallBox = new Box(CELL_SIZE, WALL_HEIGHT, CELL_SIZE);
-                    wallBox.setMaterial(wallMaterial);
-                    
-                    // Create wall
-                    Entity wall = entityBuilder()
-                            .type(LabyrinthGame.EntityType.WALL)
-                            .at(x * CELL_SIZE, 0, z * CELL_SIZE)
-                            .viewWithBBox(wallBox)
-                            .collidable()
-                            .buildAndAttach();
-                } else if (grid[z][x] == EXIT) {
+                } else if (state == EXIT) {
                     // Create exit marker
-                    PhongMaterial exitMaterial = new PhongMaterial();
-                    exitMaterial.setDiffuseColor(Color.GREEN);
-                    
-                    Box exitBox = new Box(CELL_SIZE, 0.1, CELL_SIZE);
-                    exitBox.setMaterial(exitMaterial);
-                    
-                    Entity exit = entityBuilder()
-                            .type(LabyrinthGame.EntityType.EXIT)
-                            .at(x * CELL_SIZE, CELL_SIZE - 0.05, z * CELL_SIZE)
-                            .view(exitBox)
-                            .with("exitX", x)
-                            .with("exitZ", z)
-                            .collidable()
-                            .buildAndAttach();
+                    spawn("exit", new SpawnData(x * CELL_SIZE, base + CELL_SIZE - 0.05, z * CELL_SIZE)
+                            .put("size", CELL_SIZE)
+                            .put("exitX", x)
+                            .put("exitZ", z));
+                } else if (state == STAIRS_UP) {
+                    // Create stairwell marker, the way up is through the ceiling
+                    spawn("stairs", new SpawnData(x * CELL_SIZE, base + CELL_SIZE - 0.05, z * CELL_SIZE)
+                            .put("size", CELL_SIZE));
                 }
             }
         }
+        
+        if (wallMeshes != null) {
+            buildMergedWalls(wallMeshes);
+        }
+    }
+    
+    /**
+     * Picks the texture of a wall cell. Every wall always gets the same texture,
+     * no matter in which order the rows are built.
+     *
+     * @param x the x-coordinate of the wall cell
+     * @param z the z-coordinate of the wall cell
+     * @param layer the storey of the wall cell
+     * @return the index into the wall textures
+     */
+    private int getWallTexture(int x, int z, int layer) {
+        long hash = ((seed * 31 + layer) * height + z) * width + x;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ hash >>> 32, (long) WALL_TEXTURES.length);
+    }
+    
+    /**
+     * Finds the stairwells of a storey.
+     *
+     * @param layer the storey
+     * @param direction STAIRS_UP or STAIRS_DOWN
+     * @return true for every cell holding a stairwell in that direction
+     */
+    private boolean[] stairwells(int layer, byte direction) {
+        byte[] grid = cells[layer];
+        boolean[] stairwells = new boolean[grid.length];
+        for (int i = 0; i < grid.length; i++) {
+            stairwells[i] = grid[i] == direction;
+        }
+        return stairwells;
+    }
+    
+    /**
+     * Adds the faces of a wall cell that border open cells to a merged wall mesh.
+     * Faces between two walls and on the outer border can never be seen and are left out.
+     *
+     * @param mesh the mesh of the wall's material
+     * @param x the x-coordinate of the wall cell
+     * @param z the z-coordinate of the wall cell
+     * @param layer the storey of the wall cell
+     */
+    private void addVisibleFaces(MergedWallMesh mesh, int x, int z, int layer) {
+        float half = (float) (CELL_SIZE / 2);
+        float top = (float) (getLayerY(layer) - WALL_HEIGHT / 2);
+        float bottom = (float) (getLayerY(layer) + WALL_HEIGHT / 2);
+        float left = (float) (x * CELL_SIZE) - half;
+        float right = (float) (x * CELL_SIZE) + half;
+        float near = (float) (z * CELL_SIZE) - half;
+        float far = (float) (z * CELL_SIZE) + half;
+        
+        // Corners are ordered so every face points towards its open neighbor
+        if (!isWall(x + 1, z, layer)) {
+            mesh.addFace(right, near, right, far, top, bottom);
+        }
+        if (!isWall(x - 1, z, layer)) {
+            mesh.addFace(left, far, left, near, top, bottom);
+        }
+        if (!isWall(x, z + 1, layer)) {
+            mesh.addFace(right, far, left, far, top, bottom);
+        }
+        if (!isWall(x, z - 1, layer)) {
+            mesh.addFace(left, near, right, near, top, bottom);
+        }
+    }
+    
+    /**
+     * Creates one wall entity per material from the merged wall meshes.
+     * Collisions are resolved against the grid, so the merged walls need no bounding boxes.
+     *
+     * @param wallMeshes the meshes indexed by texture and light level, entries may be null
+     */
+    private void buildMergedWalls(MergedWallMesh[][] wallMeshes) {
+        for (int i = 0; i < WALL_TEXTURES.length; i++) {
+            for (int level = 0; level < Lightmap.WALL_LEVELS; level++) {
+                MergedWallMesh mesh = wallMeshes[i][level];
+                if (mesh == null || mesh.isEmpty()) {
+                    continue;
+                }
+                
+                MeshView view = new MeshView(mesh.toMesh());
+                view.setMaterial(wallMaterials[i][level]);
+                
+                spawn("mergedWalls", new SpawnData(0, 0, 0).put("view", view));
+            }
+        }
+    }
+    
+    /**
+     * Creates a floor or ceiling surface lit by the baked lightmap.
+     *
+     * @param lightmap the lightmap of the storey
+     * @param y the height of the surface relative to its entity
+     * @param holes the cells left open for stairwells
+     * @return the surface view
+     */
+    private MeshView createSurface(Lightmap lightmap, float y, boolean[] holes) {
+        PhongMaterial material = new PhongMaterial(Color.LIGHTGRAY);
+        material.setDiffuseMap(Lightmap.getRampTexture());
+        
+        MeshView surface = new MeshView(lightmap.createSurfaceMesh(CELL_SIZE, y, holes));
+        surface.setMaterial(material);
+        
+        // Seen from above as floor and from below as ceiling
+        surface.setCullFace(CullFace.NONE);
+        return surface;
+    }
+    
+    /**
+     * Creates the wall materials, one per texture and baked light level.
+     * Every texture is loaded only once and shared by all its materials.
+     *
+     * @return the materials indexed by texture and light level
+     */
+    private PhongMaterial[][] createWallMaterials() {
+        PhongMaterial[][] materials = new PhongMaterial[WALL_TEXTURES.length][Lightmap.WALL_LEVELS];
+        
+        for (int i = 0; i < WALL_TEXTURES.length; i++) {
+            // Fallback to gray color if texture loading fails
+            Image textureImage = WallTextures.get(WALL_TEXTURES[i], textureScale);
+            
+            for (int level = 0; level < Lightmap.WALL_LEVELS; level++) {
+                Color light = Color.gray(Lightmap.getWallBrightness(level));
+                PhongMaterial material = new PhongMaterial();
+                if (textureImage != null) {
+                    material.setDiffuseMap(textureImage);
+                    material.setDiffuseColor(light);
+                } else {
+                    material.setDiffuseColor(light.interpolate(Color.BLACK, 0.5));
+                }
+                materials[i][level] = material;
+            }
+        }
+        
+        return materials;
+    }
+    
+    /**
+     * Sets the wall texture resolution, relative to the texture files.
+     * Applies to the built walls right away, since they share their materials.
+     *
+     * @param textureScale the texture scale, at most 1
+     */
+    public void setTextureScale(double textureScale) {
+        this.textureScale = textureScale;
+        if (wallMaterials == null) {
+            return;
+        }
+        
+        for (int i = 0; i < WALL_TEXTURES.length; i++) {
+            Image textureImage = WallTextures.get(WALL_TEXTURES[i], textureScale);
+            if (textureImage != null) {
+                for (PhongMaterial material : wallMaterials[i]) {
+                    material.setDiffuseMap(textureImage);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sets whether {@link #build()} merges the visible wall faces into one mesh per material
+     * instead of creating a box entity per wall cell.
+     *
+     * @param mergedWalls true to merge the walls
+     */
+    public void setMergedWalls(boolean mergedWalls) {
+        this.mergedWalls = mergedWalls;
+    }
+    
+    /**
+     * Checks whether {@link #build()} merges the walls.
+     *
+     * @return true if the walls are merged
+     */
+    public boolean isMergedWalls() {
+        return mergedWalls;
+    }
+    
+    /**
+     * Sets the algorithm {@link #generate()} carves the paths with.
+     *
+     * @param algorithm the algorithm
+     */
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+    
+    /**
+     * Gets the algorithm {@link #generate()} carves the paths with.
+     *
+     * @return the algorithm
+     */
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+    
+    /**
+     * Bakes the lighting of the generated labyrinth.
+     * Does not touch the scene graph, so it can run on any thread before {@link #build()}.
+     */
+    public void bakeLighting() {
+        Lightmap[] baked = new Lightmap[layers];
+        for (int layer = 0; layer < layers; layer++) {
+            baked[layer] = LightingBaker.bake(this, layer);
+        }
+        lightmaps = baked;
+    }
+    
+    /**
+     * Gets the baked lighting of the ground storey.
+     *
+     * @return the lightmap, or null if the lighting has not been baked yet
+     */
+    public Lightmap getLightmap() {
+        return getLightmap(0);
+    }
+    
+    /**
+     * Gets the baked lighting of a storey.
+     *
+     * @param layer the storey
+     * @return the lightmap, or null if the lighting has not been baked yet
+     */
+    public Lightmap getLightmap(int layer) {
+        return lightmaps != null ? lightmaps[layer] : null;
+    }
+    
+    /**
+     * Gets the seed this labyrinth was generated from.
+     *
+     * @return the random seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * Gets the width of the grid in cells.
+     *
+     * @return the grid width
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the height (depth along z) of the grid in cells.
+     *
+     * @return the grid height
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Gets the number of storeys.
+     *
+     * @return the storey count
+     */
+    public int getLayers() {
+        return layers;
+    }
+    
+    /**
+     * Packs the open cells of every storey into bits, indexed by (layer * height + z) * width + x.
+     * Together with the stairwells, the start and the exit that is the whole labyrinth,
+     * at one bit per cell instead of one byte.
+     *
+     * @return the open cells, 64 per word
+     * @see #fromPacked
+     */
+    public long[] packOpenCells() {
+        int size = width * height;
+        long[] words = new long[(int) (((long) layers * size + 63) >>> 6)];
+        
+        // Collect 64 cells in a register before storing them, without branching on the walls
+        int index = 0;
+        int bit = 0;
+        long word = 0;
+        for (int layer = 0; layer < layers; layer++) {
+            byte[] grid = cells[layer];
+            for (int cell = 0; cell < size; cell++) {
+                word |= (long) (-grid[cell] >>> 31) << bit;
+                if (++bit == 64) {
+                    words[index++] = word;
+                    word = 0;
+                    bit = 0;
+                }
+            }
+        }
+        if (bit > 0) {
+            words[index] = word;
+        }
+        return words;
+    }
+    
+    /**
+     * Gets the stairwells going up, indexed by (layer * height + z) * width + x.
+     * The cell above each of them is the stairwell going down.
+     *
+     * @return the stairwell cells
+     * @see #fromPacked
+     */
+    public int[] getStairwells() {
+        int size = width * height;
+        int count = 0;
+        for (int layer = 0; layer < layers - 1; layer++) {
+            for (byte state : cells[layer]) {
+                if (state == STAIRS_UP) {
+                    count++;
+                }
+            }
+        }
+        
+        int[] stairwells = new int[count];
+        int next = 0;
+        for (int layer = 0; layer < layers - 1; layer++) {
+            byte[] grid = cells[layer];
+            for (int cell = 0; cell < size; cell++) {
+                if (grid[cell] == STAIRS_UP) {
+                    stairwells[next++] = layer * size + cell;
+                }
+            }
+        }
+        return stairwells;
+    }
+    
+    /**
+     * Checks whether the specified cell of the ground storey is a wall.
+     * Cells outside the grid are treated as walls.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return true if the cell is a wall
+     */
+    public boolean isWall(int x, int z) {
+        return isWall(x, z, 0);
+    }
+    
+    /**
+     * Checks whether the specified cell is a wall.
+     * Cells outside the grid are treated as walls.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param layer the storey of the cell
+     * @return true if the cell is a wall
+     */
+    public boolean isWall(int x, int z, int layer) {
+        if (x < 0 || x >= width || z < 0 || z >= height) {
+            return true;
+        }
+        return cells[layer][z * width + x] == WALL;
+    }
+    
+    /**
+     * Checks whether the specified cell of the ground storey is the exit.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return true if the cell is the exit
+     */
+    public boolean isExit(int x, int z) {
+        return isExit(x, z, 0);
+    }
+    
+    /**
+     * Checks whether the specified cell is the exit.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param layer the storey of the cell
+     * @return true if the cell is the exit
+     */
+    public boolean isExit(int x, int z, int layer) {
+        return x == exitX && z == exitZ && layer == exitLayer;
+    }
+    
+    /**
+     * Gets the stairwell at the specified cell.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param layer the storey of the cell
+     * @return 1 for a stairwell going up, -1 for one going down, 0 for none
+     */
+    public int getStairs(int x, int z, int layer) {
+        if (x < 0 || x >= width || z < 0 || z >= height) {
+            return 0;
+        }
+        byte state = cells[layer][z * width + x];
+        return state == STAIRS_UP ? 1 : state == STAIRS_DOWN ? -1 : 0;
+    }
+    
+    /**
+     * Gets the storey the exit is on.
+     *
+     * @return the exit storey
+     */
+    public int getExitLayer() {
+        return exitLayer;
+    }
+    
+    /**
+     * Gets the y-coordinate of the center of a storey in the 3D world.
+     * Y points down, so higher storeys have smaller values.
+     *
+     * @param layer the storey
+     * @return the y-coordinate the walls of the storey are centered on
+     */
+    public static double getLayerY(int layer) {
+        return -layer * STOREY_HEIGHT;
+    }
+    
+    /**
+     * Gets the size of a single cell in the 3D world.
+     *
+     * @return the cell size
+     */
+    public static double getCellSize() {
+        return CELL_SIZE;
+    }
+    
+    /**
+     * Converts a 3D world coordinate to a grid cell index.
+     *
+     * @param world the world coordinate (x or z)
+     * @return the cell index along the same axis
+     */
+    public static int toCell(double world) {
+        return (int) Math.round(world / CELL_SIZE);
     }
     
     /**
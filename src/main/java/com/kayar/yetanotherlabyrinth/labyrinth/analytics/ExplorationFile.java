@@ -0,0 +1,129 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import static com.kayar.yetanotherlabyrinth.labyrinth.analytics.ExplorationFormat.*;
+
+/**
+ * Writes the exploration of a level as a binary heatmap of every cell and a CSV table of its regions.
+ * The heatmap is written with bulk buffer copies and takes two bytes per cell; the table has one line
+ * per region with the time spent in it, for spreadsheets and plotting.
+ */
+public final class ExplorationFile {
+    
+    /**
+     * Prevents instantiation.
+     */
+    private ExplorationFile() {
+    }
+    
+    /**
+     * Writes the heatmap and the region table of a level.
+     * Parent directories are created as needed.
+     *
+     * @param level the level
+     * @param heatmap the binary heatmap file
+     * @param regions the CSV region table file
+     * @throws IOException if a file cannot be written
+     */
+    public static void write(ExplorationLevel level, Path heatmap, Path regions) throws IOException {
+        Path parent = heatmap.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writeHeatmap(level, heatmap);
+        writeRegions(level, regions);
+    }
+    
+    /**
+     * Writes the binary heatmap.
+     *
+     * @param level the level
+     * @param file the heatmap file
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeHeatmap(ExplorationLevel level, Path file) throws IOException {
+        long size = HEADER_SIZE + level.visits().length * 2L + level.regionTicks().length * 4L;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Heatmap too large: " + level.width() + "x" + level.height());
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(level.level());
+        buffer.putLong(level.seed());
+        buffer.putInt(level.width());
+        buffer.putInt(level.height());
+        buffer.putInt(level.layers());
+        buffer.putInt(level.regionSize());
+        buffer.putInt(level.completed() ? 1 : 0);
+        buffer.putDouble(level.tickSeconds());
+        buffer.putLong(level.ticks());
+        buffer.putLong(level.revisits());
+        buffer.putInt(level.visitedCells());
+        buffer.putInt(level.deadEnds());
+        buffer.putInt(level.deadEndsEntered());
+        
+        // Bulk copies of the arrays
+        buffer.asShortBuffer().put(level.visits());
+        buffer.position(buffer.position() + level.visits().length * 2);
+        buffer.asIntBuffer().put(level.regionTicks());
+        buffer.clear();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+    
+    /**
+     * Writes the region table, with the visited cells and visits of every region counted from the heatmap.
+     *
+     * @param level the level
+     * @param file the CSV file
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeRegions(ExplorationLevel level, Path file) throws IOException {
+        int columns = level.regionColumns();
+        int rows = level.regionRows();
+        int regions = columns * rows * level.layers();
+        int[] visitedCells = new int[regions];
+        long[] visits = new long[regions];
+        
+        short[] cellVisits = level.visits();
+        for (int layer = 0; layer < level.layers(); layer++) {
+            for (int z = 0; z < level.height(); z++) {
+                int rowStart = (layer * level.height() + z) * level.width();
+                int regionRow = (layer * rows + z / level.regionSize()) * columns;
+                for (int x = 0; x < level.width(); x++) {
+                    int count = cellVisits[rowStart + x];
+                    int region = regionRow + x / level.regionSize();
+                    visits[region] += count;
+                    visitedCells[region] += count > 0 ? 1 : 0;
+                }
+            }
+        }
+        
+        try (Writer csv = Files.newBufferedWriter(file)) {
+            csv.write("layer,region_x,region_z,seconds,open_cells,visited_cells,visits\n");
+            for (int region = 0; region < regions; region++) {
+                int layer = region / (columns * rows);
+                int regionX = region % columns * level.regionSize();
+                int regionZ = region % (columns * rows) / columns * level.regionSize();
+                double seconds = level.regionTicks()[region] * level.tickSeconds();
+                csv.write(layer + "," + regionX + "," + regionZ + "," + String.format(Locale.ROOT, "%.2f", seconds)
+                        + "," + level.regionOpen()[region] + "," + visitedCells[region] + "," + visits[region] + "\n");
+            }
+        }
+    }
+}
\ No newline at end of file
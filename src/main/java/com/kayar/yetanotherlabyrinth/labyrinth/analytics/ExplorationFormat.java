@@ -0,0 +1,25 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants describing the binary exploration heatmap format.
+ * A heatmap file is a header with the level summary followed by the visit count of
+ * every cell as a short, storey by storey and row by row, then the ticks spent in
+ * every region as an int, in the same order.
+ */
+final class ExplorationFormat {
+    // File header
+    static final int MAGIC = 0x4C455850; // "LEXP"
+    static final int VERSION = 1;
+    
+    // int magic, version, level, long seed, int width, height, layers, region size, completed,
+    // double tick seconds, long ticks, revisits, int visited cells, dead ends, dead ends entered
+    static final int HEADER_SIZE = 76;
+    
+    // Byte order of the whole file
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    private ExplorationFormat() {
+    }
+}
\ No newline at end of file
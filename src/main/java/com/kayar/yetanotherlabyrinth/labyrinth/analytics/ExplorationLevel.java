@@ -0,0 +1,46 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+/**
+ * How the player moved through one level, handed from the tracker to the file writer.
+ * The arrays are owned by this record once the level is over.
+ *
+ * @param level the level number
+ * @param seed the labyrinth seed
+ * @param width the grid width
+ * @param height the grid height
+ * @param layers the number of storeys
+ * @param regionSize the width and height of a region in cells
+ * @param completed whether the level was left through the exit, false if the game ended on it
+ * @param tickSeconds the duration of a tick in seconds
+ * @param ticks the number of ticks spent on the level
+ * @param revisits the number of times a cell was entered again
+ * @param visitedCells the number of cells entered at least once
+ * @param deadEnds the number of dead ends in the labyrinth
+ * @param deadEndsEntered the number of dead ends entered at least once
+ * @param visits the number of times every cell was entered, storey by storey and row by row
+ * @param regionTicks the ticks spent in every region, storey by storey and row by row
+ * @param regionOpen the open cells of every region
+ */
+public record ExplorationLevel(int level, long seed, int width, int height, int layers, int regionSize,
+                               boolean completed, double tickSeconds, long ticks, long revisits, int visitedCells,
+                               int deadEnds, int deadEndsEntered, short[] visits, int[] regionTicks,
+                               int[] regionOpen) {
+    
+    /**
+     * Gets the number of region columns of a storey.
+     *
+     * @return the region columns
+     */
+    public int regionColumns() {
+        return (width + regionSize - 1) / regionSize;
+    }
+    
+    /**
+     * Gets the number of region rows of a storey.
+     *
+     * @return the region rows
+     */
+    public int regionRows() {
+        return (height + regionSize - 1) / regionSize;
+    }
+}
\ No newline at end of file
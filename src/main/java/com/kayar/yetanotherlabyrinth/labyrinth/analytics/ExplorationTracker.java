@@ -0,0 +1,294 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how the player moves through every level, to tune generation: which cells were
+ * visited and how often, how long the player spent in every region of the labyrinth, and
+ * which dead ends were entered.
+ * It is fed the player's cell on every simulation tick. Visited cells are kept in a bitset
+ * and visit counts in a short per cell, allocated when a level starts, so a tick only
+ * updates primitive arrays and never allocates.
+ *
+ * <p>When a level ends its arrays are handed to a background thread, which writes a binary
+ * heatmap and a CSV region table per level with {@link ExplorationFile}.
+ * Enabled with {@code -Dlabyrinth.exploration=dir}. All methods except {@link #close()}
+ * must be called from the simulation thread.
+ */
+public class ExplorationTracker {
+    // Width and height of a region in cells
+    private static final int REGION_SIZE = 8;
+    
+    // How often the writer thread checks whether it should stop
+    private static final long POLL_MILLIS = 200;
+    
+    // In-plane directions: right, down, left, up
+    private static final int[] DIRECTION_X = {1, 0, -1, 0};
+    private static final int[] DIRECTION_Z = {0, 1, 0, -1};
+    
+    // Output files are named after the session and level
+    private final Path directory;
+    private final String session;
+    private final double tickSeconds;
+    
+    // Level being tracked, null arrays between levels
+    private int level;
+    private long seed;
+    private int width;
+    private int height;
+    private int layers;
+    private int regionColumns;
+    private int regionRows;
+    private BitSet visited;
+    private BitSet deadEnds;
+    private short[] visits;
+    private int[] regionTicks;
+    private int[] regionOpen;
+    private int deadEndCount;
+    
+    // Counters of the level being tracked
+    private int lastCell = -1;
+    private long ticks;
+    private long revisits;
+    private int visitedCells;
+    private int deadEndsEntered;
+    
+    // Finished levels waiting to be written
+    private final BlockingQueue<ExplorationLevel> finished = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    /**
+     * Creates a tracker and starts its writer thread.
+     * Levels still waiting to be written are written when the application exits.
+     *
+     * @param directory the directory the heatmaps are written to
+     * @param tickSeconds the duration of a simulation tick in seconds
+     */
+    public ExplorationTracker(Path directory, double tickSeconds) {
+        this.directory = directory;
+        this.session = "session-" + System.currentTimeMillis();
+        this.tickSeconds = tickSeconds;
+        this.writer = new Thread(this::writeLoop, "exploration-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "exploration-shutdown"));
+    }
+    
+    /**
+     * Creates a tracker from the system properties.
+     *
+     * @param tickSeconds the duration of a simulation tick in seconds
+     * @return the tracker, or null if tracking is disabled
+     */
+    public static ExplorationTracker fromSystemProperties(double tickSeconds) {
+        String directory = System.getProperty("labyrinth.exploration");
+        return directory != null ? new ExplorationTracker(Path.of(directory), tickSeconds) : null;
+    }
+    
+    /**
+     * Starts tracking a level, finding its dead ends and the open cells of every region.
+     *
+     * @param levelNumber the level number
+     * @param labyrinth the labyrinth of the level
+     */
+    public void startLevel(int levelNumber, LabyrinthGenerator labyrinth) {
+        level = levelNumber;
+        seed = labyrinth.getSeed();
+        width = labyrinth.getWidth();
+        height = labyrinth.getHeight();
+        layers = labyrinth.getLayers();
+        regionColumns = (width + REGION_SIZE - 1) / REGION_SIZE;
+        regionRows = (height + REGION_SIZE - 1) / REGION_SIZE;
+        
+        int cells = width * height * layers;
+        visited = new BitSet(cells);
+        deadEnds = new BitSet(cells);
+        visits = new short[cells];
+        regionTicks = new int[regionColumns * regionRows * layers];
+        regionOpen = new int[regionTicks.length];
+        deadEndCount = 0;
+        
+        // The start and the exit are where every player goes, they do not count as dead ends
+        int start = cellIndex(0, LabyrinthGenerator.toCell(labyrinth.getStartX()),
+                LabyrinthGenerator.toCell(labyrinth.getStartZ()));
+        int exit = cellIndex(labyrinth.getExitLayer(), LabyrinthGenerator.toCell(labyrinth.getExitX()),
+                LabyrinthGenerator.toCell(labyrinth.getExitZ()));
+        for (int layer = 0; layer < layers; layer++) {
+            for (int z = 0; z < height; z++) {
+                for (int x = 0; x < width; x++) {
+                    if (labyrinth.isWall(x, z, layer)) {
+                        continue;
+                    }
+                    regionOpen[regionIndex(layer, x, z)]++;
+                    
+                    // A cell with a single way out and no stairwell is a dead end
+                    int ways = labyrinth.getStairs(x, z, layer) != 0 ? 2 : 0;
+                    for (int dir = 0; dir < DIRECTION_X.length; dir++) {
+                        ways += labyrinth.isWall(x + DIRECTION_X[dir], z + DIRECTION_Z[dir], layer) ? 0 : 1;
+                    }
+                    int cell = cellIndex(layer, x, z);
+                    if (ways == 1 && cell != start && cell != exit) {
+                        deadEnds.set(cell);
+                        deadEndCount++;
+                    }
+                }
+            }
+        }
+        
+        lastCell = -1;
+        ticks = 0;
+        revisits = 0;
+        visitedCells = 0;
+        deadEndsEntered = 0;
+    }
+    
+    /**
+     * Records the cell the player is in during a tick.
+     *
+     * @param layer the storey of the player
+     * @param x the x-coordinate of the player's cell
+     * @param z the z-coordinate of the player's cell
+     */
+    public void onTick(int layer, int x, int z) {
+        if (visits == null || x < 0 || x >= width || z < 0 || z >= height || layer < 0 || layer >= layers) {
+            return;
+        }
+        ticks++;
+        regionTicks[regionIndex(layer, x, z)]++;
+        
+        // A visit starts when the player enters a cell
+        int cell = cellIndex(layer, x, z);
+        if (cell == lastCell) {
+            return;
+        }
+        lastCell = cell;
+        if (visited.get(cell)) {
+            revisits++;
+        } else {
+            visited.set(cell);
+            visitedCells++;
+            if (deadEnds.get(cell)) {
+                deadEndsEntered++;
+            }
+        }
+        if (visits[cell] < Short.MAX_VALUE) {
+            visits[cell]++;
+        }
+    }
+    
+    /**
+     * Ends the level being tracked and queues it to be written.
+     * Once the tracker is closed, while the application exits, the level is written right away instead.
+     *
+     * @param completed whether the level was left through the exit
+     */
+    public void finishLevel(boolean completed) {
+        if (visits == null) {
+            return;
+        }
+        finished.add(new ExplorationLevel(level, seed, width, height, layers, REGION_SIZE, completed, tickSeconds,
+                ticks, revisits, visitedCells, deadEndCount, deadEndsEntered, visits, regionTicks, regionOpen));
+        
+        // The arrays now belong to the writer
+        visits = null;
+        regionTicks = null;
+        regionOpen = null;
+        visited = null;
+        deadEnds = null;
+        
+        // The writer is gone when the simulation is stopped on exit
+        if (!running) {
+            writePending();
+        }
+    }
+    
+    /**
+     * Gets the index of a cell in the per-cell arrays.
+     *
+     * @param layer the storey
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the cell index
+     */
+    private int cellIndex(int layer, int x, int z) {
+        return (layer * height + z) * width + x;
+    }
+    
+    /**
+     * Gets the index of the region holding a cell.
+     *
+     * @param layer the storey
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the region index
+     */
+    private int regionIndex(int layer, int x, int z) {
+        return (layer * regionRows + z / REGION_SIZE) * regionColumns + x / REGION_SIZE;
+    }
+    
+    /**
+     * Main loop of the writer thread.
+     */
+    private void writeLoop() {
+        try {
+            while (running) {
+                ExplorationLevel finishedLevel = finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (finishedLevel != null) {
+                    write(finishedLevel);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Writes a finished level.
+     *
+     * @param finishedLevel the level
+     */
+    private void write(ExplorationLevel finishedLevel) {
+        String name = session + "-level-" + finishedLevel.level();
+        try {
+            ExplorationFile.write(finishedLevel, directory.resolve(name + ".lexp"), directory.resolve(name + ".csv"));
+        } catch (IOException e) {
+            System.err.println("Could not write exploration heatmap: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stops the writer thread and writes the levels still waiting.
+     * A level being written is finished first, the writer is not interrupted.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePending();
+    }
+        
+    /**
+     * Writes the levels still waiting on the calling thread.
+     */
+    private synchronized void writePending() {
+        ExplorationLevel finishedLevel;
+        while ((finishedLevel = finished.poll()) != null) {
+            write(finishedLevel);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,316 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.LongStream;
+
+/**
+ * Generates batches of labyrinths in parallel and reports how their shape changes
+ * with size and algorithm, to map sizes and algorithms onto difficulty levels.
+ * Every maze of a batch is generated and analyzed on its own, and the per-thread
+ * summaries are merged at the end, so batches scale with the available cores.
+ *
+ * <p>Usage: {@code MazeAnalytics [--count N] [--sizes 11,21,41,81]
+ * [--algorithms depth-first,prim] [--layers N] [--seed N] [--out file.csv]}.
+ */
+public class MazeAnalytics {
+    // Report columns, in order
+    private static final String[] COLUMNS = {
+            "size", "algorithm", "mazes", "solution.avg", "solution.p50", "solution.p90", "solution.max",
+            "dead.ends.pct", "junctions.pct", "branching", "corridor.avg", "corridor.max",
+            "river", "turn", "generate.us"
+    };
+    
+    /**
+     * Runs the analytics.
+     *
+     * @param args command line arguments
+     * @throws IOException if the report cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 2000;
+        List<Integer> sizes = List.of(11, 21, 41, 81);
+        List<LabyrinthGenerator.Algorithm> algorithms = List.of(LabyrinthGenerator.Algorithm.values());
+        int layers = 1;
+        long seed = 42;
+        Path out = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--count" -> count = Integer.parseInt(args[++i]);
+                case "--sizes" -> sizes = parseSizes(args[++i]);
+                case "--algorithms" -> algorithms = parseAlgorithms(args[++i]);
+                case "--layers" -> layers = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        System.out.printf("%-5s %-11s %6s %21s %6s %6s %6s %10s %6s %6s %9s%n",
+                "size", "algorithm", "mazes", "solution avg/p50/p90", "dead%", "junc%", "branch",
+                "corr avg/max", "river", "turn", "gen us");
+        List<String[]> rows = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (int size : sizes) {
+            for (LabyrinthGenerator.Algorithm algorithm : algorithms) {
+                Summary summary = analyzeBatch(size, algorithm, layers, seed, count);
+                String[] row = summary.row(size, algorithm);
+                rows.add(row);
+                System.out.printf("%-5s %-11s %6s %21s %6s %6s %6s %10s %6s %6s %9s%n",
+                        row[0], row[1], row[2], row[3] + "/" + row[4] + "/" + row[5], row[7], row[8], row[9],
+                        row[10] + "/" + row[11], row[12], row[13], row[14]);
+                System.out.println("      corridors by length: " + summary.corridorDistribution());
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        long mazes = (long) count * sizes.size() * algorithms.size();
+        System.out.printf("%d mazes in %.2f s, %.0f mazes/s on %d cores%n",
+                mazes, seconds, mazes / seconds, Runtime.getRuntime().availableProcessors());
+        
+        if (out != null) {
+            writeCsv(out, rows);
+            System.out.println("Report written to " + out.toAbsolutePath());
+        }
+    }
+    
+    /**
+     * Generates and analyzes a batch of labyrinths in parallel.
+     *
+     * @param size the width and height of the labyrinths
+     * @param algorithm the carving algorithm
+     * @param layers the number of storeys
+     * @param seed the seed the labyrinth seeds are derived from
+     * @param count the number of labyrinths
+     * @return the merged summary of the batch
+     */
+    public static Summary analyzeBatch(int size, LabyrinthGenerator.Algorithm algorithm, int layers,
+                                       long seed, int count) {
+        return LongStream.range(0, count).parallel().collect(Summary::new, (summary, i) -> {
+            long start = System.nanoTime();
+            LabyrinthGenerator labyrinth = new LabyrinthGenerator(size, size, layers, seed * 31 + i);
+            labyrinth.setAlgorithm(algorithm);
+            labyrinth.generate();
+            long generated = System.nanoTime() - start;
+            summary.add(MazeAnalyzer.analyze(labyrinth), generated);
+        }, Summary::merge);
+    }
+    
+    /**
+     * Aggregated metrics of a batch of labyrinths.
+     * Not thread safe: each thread adds to its own summary and they are merged afterwards.
+     */
+    public static class Summary {
+        private final LatencyHistogram solutionLengths = new LatencyHistogram();
+        private final long[] corridorHistogram = new long[MazeMetrics.CORRIDOR_BUCKETS];
+        private long mazes;
+        private long solutionSum;
+        private long openCells;
+        private long deadEnds;
+        private long junctions;
+        private double branchingSum;
+        private long corridors;
+        private double corridorLengthSum;
+        private int maxCorridorLength;
+        private double riverSum;
+        private double turnSum;
+        private long generateNanos;
+        
+        /**
+         * Adds the metrics of a labyrinth.
+         *
+         * @param metrics the metrics
+         * @param generateNanos the time it took to generate the labyrinth
+         */
+        public void add(MazeMetrics metrics, long generateNanos) {
+            mazes++;
+            solutionLengths.record(metrics.solutionLength());
+            solutionSum += metrics.solutionLength();
+            openCells += metrics.openCells();
+            deadEnds += metrics.deadEnds();
+            junctions += metrics.junctions();
+            branchingSum += metrics.branchingFactor();
+            corridors += metrics.corridors();
+            corridorLengthSum += metrics.meanCorridorLength() * metrics.corridors();
+            maxCorridorLength = Math.max(maxCorridorLength, metrics.maxCorridorLength());
+            for (int i = 0; i < corridorHistogram.length; i++) {
+                corridorHistogram[i] += metrics.corridorHistogram()[i];
+            }
+            riverSum += metrics.riverFactor();
+            turnSum += metrics.turnFactor();
+            this.generateNanos += generateNanos;
+        }
+        
+        /**
+         * Adds all metrics of another summary to this one.
+         *
+         * @param other the summary to add
+         */
+        public void merge(Summary other) {
+            solutionLengths.merge(other.solutionLengths);
+            for (int i = 0; i < corridorHistogram.length; i++) {
+                corridorHistogram[i] += other.corridorHistogram[i];
+            }
+            mazes += other.mazes;
+            solutionSum += other.solutionSum;
+            openCells += other.openCells;
+            deadEnds += other.deadEnds;
+            junctions += other.junctions;
+            branchingSum += other.branchingSum;
+            corridors += other.corridors;
+            corridorLengthSum += other.corridorLengthSum;
+            maxCorridorLength = Math.max(maxCorridorLength, other.maxCorridorLength);
+            riverSum += other.riverSum;
+            turnSum += other.turnSum;
+            generateNanos += other.generateNanos;
+        }
+        
+        /**
+         * Gets the number of labyrinths added.
+         *
+         * @return the labyrinth count
+         */
+        public long getMazes() {
+            return mazes;
+        }
+        
+        /**
+         * Gets the mean solution length.
+         *
+         * @return the mean steps from the start to the exit
+         */
+        public double getMeanSolutionLength() {
+            return mazes > 0 ? (double) solutionSum / mazes : 0;
+        }
+        
+        /**
+         * Gets a solution length percentile.
+         *
+         * @param percentile the percentile, 0-100
+         * @return the solution length in steps
+         */
+        public long getSolutionLengthPercentile(double percentile) {
+            return solutionLengths.getPercentile(percentile);
+        }
+        
+        /**
+         * Gets the mean branching factor.
+         *
+         * @return the side branches per solution cell
+         */
+        public double getMeanBranchingFactor() {
+            return mazes > 0 ? branchingSum / mazes : 0;
+        }
+        
+        /**
+         * Formats the summary as a report row.
+         *
+         * @param size the labyrinth size
+         * @param algorithm the carving algorithm
+         * @return the values in {@link #COLUMNS} order
+         */
+        private String[] row(int size, LabyrinthGenerator.Algorithm algorithm) {
+            double n = Math.max(1, mazes);
+            return new String[]{
+                    Integer.toString(size),
+                    algorithm.name().toLowerCase(Locale.ROOT).replace('_', '-'),
+                    Long.toString(mazes),
+                    format(getMeanSolutionLength()),
+                    Long.toString(solutionLengths.getPercentile(50)),
+                    Long.toString(solutionLengths.getPercentile(90)),
+                    Long.toString(solutionLengths.getMax()),
+                    format(100.0 * deadEnds / Math.max(1, openCells)),
+                    format(100.0 * junctions / Math.max(1, openCells)),
+                    format(getMeanBranchingFactor()),
+                    format(corridorLengthSum / Math.max(1, corridors)),
+                    Integer.toString(maxCorridorLength),
+                    format(riverSum / n),
+                    format(turnSum / n),
+                    format(generateNanos / 1e3 / n)
+            };
+        }
+        
+        /**
+         * Formats the corridor length distribution as percentages per length range.
+         *
+         * @return the distribution, e.g. {@code 1: 40.0%, 2: 20.0%, ...}
+         */
+        private String corridorDistribution() {
+            StringBuilder distribution = new StringBuilder();
+            for (int i = 0; i < corridorHistogram.length; i++) {
+                if (i > 0) {
+                    distribution.append(", ");
+                }
+                distribution.append(MazeMetrics.corridorBucketLabel(i)).append(": ")
+                        .append(format(100.0 * corridorHistogram[i] / Math.max(1, corridors))).append('%');
+            }
+            return distribution.toString();
+        }
+    }
+    
+    /**
+     * Writes the report rows as CSV.
+     *
+     * @param file the report file
+     * @param rows the rows
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCsv(Path file, List<String[]> rows) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(String.join(",", COLUMNS) + "\n");
+            for (String[] row : rows) {
+                writer.write(String.join(",", row) + "\n");
+            }
+        }
+    }
+    
+    /**
+     * Formats a value with two decimals.
+     *
+     * @param value the value
+     * @return the formatted value
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+    
+    /**
+     * Parses a comma separated list of labyrinth sizes.
+     *
+     * @param sizes the sizes
+     * @return the parsed sizes
+     */
+    private static List<Integer> parseSizes(String sizes) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            parsed.add(Integer.parseInt(size.trim()));
+        }
+        return parsed;
+    }
+    
+    /**
+     * Parses a comma separated list of algorithm names like {@code depth-first,prim}.
+     *
+     * @param algorithms the algorithm names
+     * @return the parsed algorithms
+     */
+    private static List<LabyrinthGenerator.Algorithm> parseAlgorithms(String algorithms) {
+        List<LabyrinthGenerator.Algorithm> parsed = new ArrayList<>();
+        for (String algorithm : algorithms.split(",")) {
+            parsed.add(LabyrinthGenerator.Algorithm.valueOf(
+                    algorithm.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+        }
+        return parsed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Measures the shape of a labyrinth for difficulty tuning.
+ * A single breadth-first search from the start finds every reachable cell, its number
+ * of ways out and its distance; the solution and the corridors are then followed along
+ * those results, touching every cell at most twice more. No cell state is looked up
+ * in the labyrinth again after the search, so analysis is linear in the number of cells.
+ */
+public final class MazeAnalyzer {
+    // In-plane directions: right, down, left, up
+    private static final int[] DIRECTION_X = {1, 0, -1, 0};
+    private static final int[] DIRECTION_Z = {0, 1, 0, -1};
+    
+    /**
+     * Prevents instantiation.
+     */
+    private MazeAnalyzer() {
+    }
+    
+    /**
+     * Analyzes a generated labyrinth.
+     *
+     * @param labyrinth the labyrinth
+     * @return the metrics
+     */
+    public static MazeMetrics analyze(LabyrinthGenerator labyrinth) {
+        int width = labyrinth.getWidth();
+        int height = labyrinth.getHeight();
+        int layers = labyrinth.getLayers();
+        int size = width * height;
+        
+        // Ways out of every reachable cell, -1 for walls and unreachable cells
+        byte[] degree = new byte[layers * size];
+        Arrays.fill(degree, (byte) -1);
+        
+        // Stairwell of every reachable cell: 1 up, -1 down, 0 none
+        byte[] stairs = new byte[layers * size];
+        
+        int[] distance = new int[layers * size];
+        int[] queue = new int[layers * size];
+        int head = 0;
+        int tail = 0;
+        
+        int start = LabyrinthGenerator.toCell(labyrinth.getStartZ()) * width
+                + LabyrinthGenerator.toCell(labyrinth.getStartX());
+        int exit = labyrinth.getExitLayer() * size + LabyrinthGenerator.toCell(labyrinth.getExitZ()) * width
+                + LabyrinthGenerator.toCell(labyrinth.getExitX());
+        
+        int openCells = 0;
+        int deadEnds = 0;
+        int junctions = 0;
+        int corridorCells = 0;
+        
+        distance[start] = 0;
+        degree[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            int layer = current / size;
+            int x = current % size % width;
+            int z = current % size / width;
+            
+            // Count the ways out and queue the cells behind them
+            int ways = 0;
+            for (int dir = 0; dir < DIRECTION_X.length; dir++) {
+                int nextX = x + DIRECTION_X[dir];
+                int nextZ = z + DIRECTION_Z[dir];
+                if (!labyrinth.isWall(nextX, nextZ, layer)) {
+                    ways++;
+                    int next = current + DIRECTION_Z[dir] * width + DIRECTION_X[dir];
+                    if (degree[next] < 0) {
+                        degree[next] = 0;
+                        distance[next] = distance[current] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            int stairwell = labyrinth.getStairs(x, z, layer);
+            if (stairwell != 0) {
+                ways++;
+                stairs[current] = (byte) stairwell;
+                int next = current + stairwell * size;
+                if (degree[next] < 0) {
+                    degree[next] = 0;
+                    distance[next] = distance[current] + 1;
+                    queue[tail++] = next;
+                }
+            }
+            
+            degree[current] = (byte) ways;
+            openCells++;
+            if (ways <= 1) {
+                deadEnds++;
+            } else if (ways >= 3) {
+                junctions++;
+            } else if (stairwell == 0) {
+                corridorCells++;
+            }
+        }
+        
+        int solutionLength = degree[exit] >= 0 ? distance[exit] : -1;
+        
+        // Follow the solution back from the exit, counting side branches and turns
+        int sideBranches = 0;
+        int turns = 0;
+        if (solutionLength >= 0) {
+            int current = exit;
+            int lastDirection = -1;
+            while (current != start) {
+                int layer = current / size;
+                int x = current % size % width;
+                int z = current % size / width;
+                
+                int previous = -1;
+                int direction = -1;
+                for (int dir = 0; dir < DIRECTION_X.length && previous < 0; dir++) {
+                    int nextX = x + DIRECTION_X[dir];
+                    int nextZ = z + DIRECTION_Z[dir];
+                    int next = current + DIRECTION_Z[dir] * width + DIRECTION_X[dir];
+                    if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < height
+                            && degree[next] >= 0 && distance[next] == distance[current] - 1) {
+                        previous = next;
+                        direction = dir;
+                    }
+                }
+                if (previous < 0) {
+                    // Only a stairwell leads closer to the start
+                    previous = current + stairs[current] * size;
+                }
+                
+                if (direction >= 0 && lastDirection >= 0 && direction != lastDirection) {
+                    turns++;
+                }
+                lastDirection = direction;
+                
+                // The ways that are neither the way in nor the way out; the exit only has a way in
+                sideBranches += degree[current] - (current == exit ? 1 : 2);
+                current = previous;
+            }
+            sideBranches += degree[start] - (start == exit ? 0 : 1);
+        }
+        
+        // Follow every passage from the cells that are not plain corridor cells
+        int corridors = 0;
+        long corridorLengthSum = 0;
+        int maxCorridorLength = 0;
+        int[] corridorHistogram = new int[MazeMetrics.CORRIDOR_BUCKETS];
+        for (int i = 0; i < tail; i++) {
+            int node = queue[i];
+            if (isCorridor(degree, stairs, node)) {
+                continue;
+            }
+            for (int dir = 0; dir < DIRECTION_X.length; dir++) {
+                int x = node % size % width + DIRECTION_X[dir];
+                int z = node % size / width + DIRECTION_Z[dir];
+                if (x < 0 || x >= width || z < 0 || z >= height) {
+                    continue;
+                }
+                int previous = node;
+                int current = node + DIRECTION_Z[dir] * width + DIRECTION_X[dir];
+                if (degree[current] < 0) {
+                    continue;
+                }
+                
+                int length = 1;
+                while (isCorridor(degree, stairs, current)) {
+                    int next = nextInCorridor(degree, width, size, previous, current);
+                    previous = current;
+                    current = next;
+                    length++;
+                }
+                
+                // Every passage is found from both ends, count it from the lower one
+                if (node < current) {
+                    corridors++;
+                    corridorLengthSum += length;
+                    maxCorridorLength = Math.max(maxCorridorLength, length);
+                    corridorHistogram[MazeMetrics.corridorBucket(length)]++;
+                }
+            }
+        }
+        
+        return new MazeMetrics(width, height, layers, openCells, solutionLength, deadEnds, junctions,
+                solutionLength > 0 ? (double) sideBranches / (solutionLength + 1) : 0,
+                corridors, corridors > 0 ? (double) corridorLengthSum / corridors : 0, maxCorridorLength,
+                corridorHistogram,
+                openCells > 0 ? (double) corridorCells / openCells : 0,
+                solutionLength > 0 ? (double) turns / solutionLength : 0);
+    }
+    
+    /**
+     * Checks whether a cell is a plain corridor cell, with exactly two ways out in the same storey.
+     *
+     * @param degree the ways out of every cell
+     * @param stairs the stairwell of every cell
+     * @param cell the cell
+     * @return true if the cell is a plain corridor cell
+     */
+    private static boolean isCorridor(byte[] degree, byte[] stairs, int cell) {
+        return degree[cell] == 2 && stairs[cell] == 0;
+    }
+    
+    /**
+     * Gets the way out of a corridor cell that does not lead back.
+     *
+     * @param degree the ways out of every cell
+     * @param width the grid width
+     * @param size the cells per storey
+     * @param previous the cell the corridor was entered from
+     * @param current the corridor cell
+     * @return the next cell
+     */
+    private static int nextInCorridor(byte[] degree, int width, int size, int previous, int current) {
+        int x = current % size % width;
+        int z = current % size / width;
+        for (int dir = 0; dir < DIRECTION_X.length; dir++) {
+            int nextX = x + DIRECTION_X[dir];
+            int nextZ = z + DIRECTION_Z[dir];
+            int next = current + DIRECTION_Z[dir] * width + DIRECTION_X[dir];
+            if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < size / width
+                    && next != previous && degree[next] >= 0) {
+                return next;
+            }
+        }
+        throw new IllegalStateException("Corridor cell " + current + " has no way on");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.analytics;
+
+/**
+ * Shape of a single labyrinth, as measured by {@link MazeAnalyzer}.
+ * Lengths are in steps from cell to cell, stairwells count as one step.
+ *
+ * @param width the grid width in cells
+ * @param height the grid height in cells
+ * @param layers the number of storeys
+ * @param openCells the open cells reachable from the start
+ * @param solutionLength the steps on the shortest path from the start to the exit
+ * @param deadEnds the open cells with a single way out
+ * @param junctions the open cells with three or more ways out
+ * @param branchingFactor the side branches leaving the solution per cell on it, the choices a player faces
+ * @param corridors the passages between two cells that are not plain corridor cells
+ * @param meanCorridorLength the mean length of those passages
+ * @param maxCorridorLength the longest passage
+ * @param corridorHistogram the passage counts by length: 1, 2, 3-4, 5-8, 9-16, 17-32 and longer
+ * @param riverFactor the share of open cells that are plain corridor cells; high values mean long flowing passages
+ * @param turnFactor the turns on the solution per step; high values mean a winding solution
+ */
+public record MazeMetrics(int width, int height, int layers, int openCells, int solutionLength,
+                          int deadEnds, int junctions, double branchingFactor,
+                          int corridors, double meanCorridorLength, int maxCorridorLength, int[] corridorHistogram,
+                          double riverFactor, double turnFactor) {
+    
+    // Buckets of the corridor length histogram, each twice as wide as the one before
+    public static final int CORRIDOR_BUCKETS = 7;
+    
+    /**
+     * Gets the histogram bucket of a corridor length.
+     *
+     * @param length the corridor length, at least 1
+     * @return the bucket index
+     */
+    public static int corridorBucket(int length) {
+        return Math.min(CORRIDOR_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(length - 1));
+    }
+    
+    /**
+     * Gets the label of a corridor length histogram bucket.
+     *
+     * @param bucket the bucket index
+     * @return the length range, e.g. {@code 5-8}
+     */
+    public static String corridorBucketLabel(int bucket) {
+        if (bucket == 0) {
+            return "1";
+        }
+        if (bucket == CORRIDOR_BUCKETS - 1) {
+            return ((1 << (bucket - 1)) + 1) + "+";
+        }
+        int high = 1 << bucket;
+        int low = (high >> 1) + 1;
+        return low == high ? Integer.toString(high) : low + "-" + high;
+    }
+}
\ No newline at end of file
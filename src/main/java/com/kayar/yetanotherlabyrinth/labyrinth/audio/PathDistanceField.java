@@ -0,0 +1,179 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.audio;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Walking distances from one source cell to every cell of a labyrinth, across all storeys.
+ * Stairwells count as one step. The field is only recomputed when the source moves to
+ * another cell or the labyrinth changes, and its arrays are reused between updates and levels,
+ * so looking up how far a sound travels through the maze is a single array read.
+ */
+public class PathDistanceField {
+    // Possible directions: right, down, left, up
+    static final int[] DX = {1, 0, -1, 0};
+    static final int[] DZ = {0, 1, 0, -1};
+    
+    // Distance of cells the source cannot be reached from
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    
+    // Direction value of the source itself and of cells reached through a stairwell
+    public static final int NONE = -1;
+    
+    // Walking distance per cell, storey by storey, and the search queue
+    private int[] distance = new int[0];
+    private int[] queue = new int[0];
+    
+    // Grid and source the field was computed for
+    private LabyrinthGenerator labyrinth;
+    private int width;
+    private int height;
+    private int size;
+    private int sourceCell = -1;
+    
+    /**
+     * Moves the source to a cell, recomputing the field if the source or the labyrinth changed.
+     *
+     * @param labyrinth the labyrinth
+     * @param layer the storey of the source
+     * @param x the x-coordinate of the source cell
+     * @param z the z-coordinate of the source cell
+     * @return true if the field was recomputed
+     */
+    public boolean update(LabyrinthGenerator labyrinth, int layer, int x, int z) {
+        int source = layer * labyrinth.getWidth() * labyrinth.getHeight() + z * labyrinth.getWidth() + x;
+        if (labyrinth == this.labyrinth && source == sourceCell) {
+            return false;
+        }
+        
+        if (labyrinth != this.labyrinth) {
+            this.labyrinth = labyrinth;
+            this.width = labyrinth.getWidth();
+            this.height = labyrinth.getHeight();
+            this.size = width * height;
+            int cells = size * labyrinth.getLayers();
+            if (distance.length < cells) {
+                distance = new int[cells];
+                queue = new int[cells];
+            }
+        }
+        sourceCell = source;
+        
+        Arrays.fill(distance, 0, size * labyrinth.getLayers(), UNREACHABLE);
+        if (labyrinth.isWall(x, z, layer)) {
+            return true;
+        }
+        
+        // Breadth-first search from the source through corridors and stairwells
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        
+        while (head < tail) {
+            int cell = queue[head++];
+            int cellLayer = cell / size;
+            int cellX = cell % size % width;
+            int cellZ = cell % size / width;
+            for (int dir = 0; dir < 4; dir++) {
+                int nextX = cellX + DX[dir];
+                int nextZ = cellZ + DZ[dir];
+                int next = cell + DZ[dir] * width + DX[dir];
+                if (!labyrinth.isWall(nextX, nextZ, cellLayer) && distance[next] == UNREACHABLE) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+            
+            int stairs = labyrinth.getStairs(cellX, cellZ, cellLayer);
+            int next = cell + stairs * size;
+            if (stairs != 0 && distance[next] == UNREACHABLE) {
+                distance[next] = distance[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the walking distance from a cell to the source.
+     *
+     * @param layer the storey of the cell
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the distance in cells, or {@link #UNREACHABLE}
+     */
+    public int getDistance(int layer, int x, int z) {
+        if (labyrinth == null || x < 0 || x >= width || z < 0 || z >= height
+                || layer < 0 || layer >= labyrinth.getLayers()) {
+            return UNREACHABLE;
+        }
+        return distance[layer * size + z * width + x];
+    }
+    
+    /**
+     * Gets the direction to leave a cell in to walk towards the source,
+     * which is the direction a sound from the source arrives from.
+     *
+     * @param layer the storey of the cell
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the direction index into {@link #DX} and {@link #DZ}, or {@link #NONE}
+     *         at the source, through a stairwell and for unreachable cells
+     */
+    public int getDirectionToSource(int layer, int x, int z) {
+        int current = getDistance(layer, x, z);
+        if (current == UNREACHABLE || current == 0) {
+            return NONE;
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            if (getDistance(layer, x + DX[dir], z + DZ[dir]) == current - 1) {
+                return dir;
+            }
+        }
+        return NONE;
+    }
+    
+    /**
+     * Gets the direction of the first step from the source towards a cell,
+     * which is the direction a sound made at that cell arrives at the source from.
+     * Walks back along the field, so it costs one step per cell of distance.
+     *
+     * @param layer the storey of the cell
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the direction index into {@link #DX} and {@link #DZ}, or {@link #NONE}
+     *         at the source, through a stairwell and for unreachable cells
+     */
+    public int getDirectionFromSource(int layer, int x, int z) {
+        int current = getDistance(layer, x, z);
+        if (current == UNREACHABLE || current == 0) {
+            return NONE;
+        }
+        
+        // Walk downhill until the cell next to the source
+        while (current > 1) {
+            int dir = getDirectionToSource(layer, x, z);
+            if (dir == NONE) {
+                return NONE;
+            }
+            x += DX[dir];
+            z += DZ[dir];
+            current--;
+        }
+        
+        if (layer != sourceCell / size) {
+            return NONE;
+        }
+        int source = sourceCell % size;
+        int dx = x - source % width;
+        int dz = z - source / width;
+        for (int dir = 0; dir < 4; dir++) {
+            if (DX[dir] == dx && DZ[dir] == dz) {
+                return dir;
+            }
+        }
+        return NONE;
+    }
+}
\ No newline at end of file
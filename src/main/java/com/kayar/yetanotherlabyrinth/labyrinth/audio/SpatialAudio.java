@@ -0,0 +1,201 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.audio;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * Positional audio for the sounds of the labyrinth: a beacon at the exit and the nearest creature.
+ * Sound travels along the corridors, so volume and muffling follow the walking distance
+ * instead of the straight line, a sound is heard from the corridor it arrives through,
+ * and sounds coming around corners are muffled more than sounds down a straight corridor.
+ *
+ * <p>Distances are looked up in cached distance fields. The exit field is computed once
+ * per level. Walking distance is the same in both directions, so a single field around
+ * the listener serves every creature; it is only recomputed when the listener enters
+ * another cell. Every frame then costs one lookup per creature and never allocates.
+ *
+ * <p>Disabled with {@code -Dlabyrinth.audio=false}.
+ */
+public class SpatialAudio {
+    // Walking distance in cells beyond which a source cannot be heard
+    private static final int MAX_AUDIBLE_CELLS = 24;
+    
+    // Walking distance in cells at which a source has half of its volume, before fading out
+    private static final double HALF_VOLUME_CELLS = 4;
+    
+    // Low-pass cutoff next to a source and at the edge of hearing
+    private static final double OPEN_CUTOFF_HZ = 16000;
+    private static final double MUFFLED_CUTOFF_HZ = 250;
+    
+    // Muffling of a cell of detour around walls, relative to a cell of straight corridor
+    private static final double DETOUR_MUFFLING = 2;
+    
+    // Balance of a sound arriving from straight left or right
+    private static final double PAN_WIDTH = 0.8;
+    
+    // Volume of the sources right next to them
+    private static final double BEACON_VOLUME = 0.6;
+    private static final double CREATURE_VOLUME = 0.8;
+    
+    // Distance fields around the exit and around the listener
+    private final PathDistanceField exitField = new PathDistanceField();
+    private final PathDistanceField listenerField = new PathDistanceField();
+    
+    // Looping sounds
+    private final SpatialVoice beacon;
+    private final SpatialVoice creature;
+    
+    private LabyrinthGenerator labyrinth;
+    
+    // Directions the sounds arrive from, cached until the listener or the nearest creature changes cell
+    private int beaconDirection = PathDistanceField.NONE;
+    private int creatureDirection = PathDistanceField.NONE;
+    private int creatureCell = -1;
+    
+    /**
+     * Creates the audio and loads its sounds.
+     *
+     * @throws Exception if a sound cannot be loaded or played
+     */
+    private SpatialAudio() throws Exception {
+        beacon = new SpatialVoice("/assets/sounds/beacon.wav");
+        creature = new SpatialVoice("/assets/sounds/creature.wav");
+    }
+    
+    /**
+     * Creates the audio unless disabled by the system properties.
+     * Must be called on the JavaFX thread.
+     *
+     * @return the audio, or null if disabled or no sound can be played
+     */
+    public static SpatialAudio create() {
+        if ("false".equals(System.getProperty("labyrinth.audio"))) {
+            return null;
+        }
+        try {
+            return new SpatialAudio();
+        } catch (Exception e) {
+            // If the sounds cannot be played, just continue without them
+            System.err.println("Could not initialize spatial audio: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Switches to a new labyrinth and computes the walking distances to its exit.
+     *
+     * @param labyrinth the labyrinth
+     */
+    public void setLabyrinth(LabyrinthGenerator labyrinth) {
+        this.labyrinth = labyrinth;
+        exitField.update(labyrinth, labyrinth.getExitLayer(),
+                LabyrinthGenerator.toCell(labyrinth.getExitX()), LabyrinthGenerator.toCell(labyrinth.getExitZ()));
+        creatureCell = -1;
+    }
+    
+    /**
+     * Updates every sound for the listener's position.
+     *
+     * @param x the x-coordinate of the listener in the 3D world
+     * @param z the z-coordinate of the listener in the 3D world
+     * @param layer the storey of the listener
+     * @param yaw the horizontal look direction in degrees
+     * @param creatures the creature positions as x, z pairs on the ground storey, or null
+     */
+    public void update(double x, double z, int layer, double yaw, float[] creatures) {
+        if (labyrinth == null) {
+            return;
+        }
+        int cellX = LabyrinthGenerator.toCell(x);
+        int cellZ = LabyrinthGenerator.toCell(z);
+        boolean moved = listenerField.update(labyrinth, layer, cellX, cellZ);
+        double cell = LabyrinthGenerator.getCellSize();
+        
+        // The exit beacon, heard from the corridor leading towards the exit
+        if (moved) {
+            beaconDirection = exitField.getDirectionToSource(layer, cellX, cellZ);
+        }
+        double exitStraight = Math.hypot(labyrinth.getExitX() - x, labyrinth.getExitZ() - z) / cell
+                + Math.abs(labyrinth.getExitLayer() - layer);
+        apply(beacon, BEACON_VOLUME, exitField.getDistance(layer, cellX, cellZ), exitStraight, beaconDirection, yaw);
+        
+        // The creature nearest by walking distance
+        int nearest = -1;
+        int nearestDistance = PathDistanceField.UNREACHABLE;
+        int count = creatures != null ? creatures.length / 2 : 0;
+        for (int i = 0; i < count; i++) {
+            int distance = listenerField.getDistance(0, LabyrinthGenerator.toCell(creatures[i * 2]),
+                    LabyrinthGenerator.toCell(creatures[i * 2 + 1]));
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        if (nearest < 0 || nearestDistance >= MAX_AUDIBLE_CELLS) {
+            creature.set(0, MUFFLED_CUTOFF_HZ, 0);
+            return;
+        }
+        
+        int nearestX = LabyrinthGenerator.toCell(creatures[nearest * 2]);
+        int nearestZ = LabyrinthGenerator.toCell(creatures[nearest * 2 + 1]);
+        int nearestCell = nearestZ * labyrinth.getWidth() + nearestX;
+        if (moved || nearestCell != creatureCell) {
+            creatureCell = nearestCell;
+            creatureDirection = listenerField.getDirectionFromSource(0, nearestX, nearestZ);
+        }
+        double creatureStraight = Math.hypot(creatures[nearest * 2] - x, creatures[nearest * 2 + 1] - z) / cell + layer;
+        apply(creature, CREATURE_VOLUME, nearestDistance, creatureStraight, creatureDirection, yaw);
+    }
+    
+    /**
+     * Sets the volume, muffling and balance of a voice from the way its sound travels.
+     *
+     * @param voice the voice
+     * @param loudness the volume right next to the source
+     * @param distance the walking distance to the source in cells
+     * @param straight the straight-line distance to the source in cells
+     * @param direction the direction the sound arrives from, or {@link PathDistanceField#NONE}
+     * @param yaw the horizontal look direction of the listener in degrees
+     */
+    private static void apply(SpatialVoice voice, double loudness, int distance, double straight,
+                              int direction, double yaw) {
+        if (distance >= MAX_AUDIBLE_CELLS) {
+            voice.set(0, MUFFLED_CUTOFF_HZ, 0);
+            return;
+        }
+        
+        // Falls off with distance and fades out towards the edge of hearing
+        double volume = loudness * HALF_VOLUME_CELLS / (HALF_VOLUME_CELLS + distance)
+                * (1 - (double) distance / MAX_AUDIBLE_CELLS);
+        
+        // Every cell walked muffles the sound, cells around corners more so
+        double detour = Math.max(0, distance - straight);
+        double muffling = Math.min(1, (distance + DETOUR_MUFFLING * detour) / MAX_AUDIBLE_CELLS);
+        double cutoff = OPEN_CUTOFF_HZ * Math.pow(MUFFLED_CUTOFF_HZ / OPEN_CUTOFF_HZ, muffling);
+        
+        // Project the arrival direction onto the listener's right
+        double balance = 0;
+        if (direction != PathDistanceField.NONE) {
+            double radians = Math.toRadians(yaw);
+            balance = PAN_WIDTH * (PathDistanceField.DX[direction] * Math.cos(radians)
+                    - PathDistanceField.DZ[direction] * Math.sin(radians));
+        }
+        
+        voice.set(volume, cutoff, balance);
+    }
+    
+    /**
+     * Silences all sounds, e.g. while no level is shown.
+     */
+    public void mute() {
+        beacon.set(0, MUFFLED_CUTOFF_HZ, 0);
+        creature.set(0, MUFFLED_CUTOFF_HZ, 0);
+    }
+    
+    /**
+     * Stops all sounds and releases their media players.
+     */
+    public void dispose() {
+        beacon.dispose();
+        creature.dispose();
+    }
+}
\ No newline at end of file
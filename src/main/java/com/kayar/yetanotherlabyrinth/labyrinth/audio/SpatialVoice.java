@@ -0,0 +1,135 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.audio;
+
+import javafx.scene.media.AudioEqualizer;
+import javafx.scene.media.EqualizerBand;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A looping sound whose volume, balance and brightness follow its source.
+ * JavaFX has no real filters, so the low-pass is approximated with the equalizer:
+ * every band above the cutoff is lowered by a fixed slope per octave.
+ * Settings are only passed on to the media player when they change noticeably.
+ */
+final class SpatialVoice {
+    // Attenuation above the cutoff frequency
+    private static final double ROLLOFF_DB_PER_OCTAVE = 12;
+    
+    // Smallest changes passed on to the media player
+    private static final double MIN_VOLUME_CHANGE = 0.01;
+    private static final double MIN_BALANCE_CHANGE = 0.02;
+    private static final double MIN_CUTOFF_RATIO = 1.1;
+    
+    private final MediaPlayer player;
+    private final EqualizerBand[] bands;
+    
+    // Settings last passed on to the media player
+    private double volume = 0;
+    private double balance = 0;
+    private double cutoff = 0;
+    private boolean playing = false;
+    
+    /**
+     * Creates a voice for a sound resource. It stays silent until its volume is set.
+     *
+     * @param resource the sound resource, e.g. {@code /assets/sounds/beacon.wav}
+     * @throws IOException if the resource cannot be found
+     */
+    SpatialVoice(String resource) throws IOException {
+        player = new MediaPlayer(new Media(toMediaUrl(resource)));
+        player.setCycleCount(MediaPlayer.INDEFINITE);
+        player.setVolume(0);
+        
+        AudioEqualizer equalizer = player.getAudioEqualizer();
+        equalizer.setEnabled(true);
+        bands = equalizer.getBands().toArray(new EqualizerBand[0]);
+    }
+    
+    /**
+     * Sets how the voice is heard. A silent voice is paused so it costs nothing.
+     *
+     * @param volume the volume, 0-1
+     * @param cutoff the frequency above which the sound is muffled, in Hz
+     * @param balance the balance, -1 left to 1 right
+     */
+    void set(double volume, double cutoff, double balance) {
+        if (volume <= 0) {
+            if (playing) {
+                player.pause();
+                playing = false;
+                this.volume = 0;
+            }
+            return;
+        }
+        
+        if (Math.abs(volume - this.volume) >= MIN_VOLUME_CHANGE) {
+            player.setVolume(volume);
+            this.volume = volume;
+        }
+        if (Math.abs(balance - this.balance) >= MIN_BALANCE_CHANGE) {
+            player.setBalance(balance);
+            this.balance = balance;
+        }
+        if (this.cutoff == 0 || cutoff > this.cutoff * MIN_CUTOFF_RATIO || cutoff * MIN_CUTOFF_RATIO < this.cutoff) {
+            setCutoff(cutoff);
+        }
+        
+        if (!playing) {
+            player.play();
+            playing = true;
+        }
+    }
+    
+    /**
+     * Lowers the equalizer bands above the cutoff frequency.
+     *
+     * @param cutoff the cutoff frequency in Hz
+     */
+    private void setCutoff(double cutoff) {
+        this.cutoff = cutoff;
+        for (EqualizerBand band : bands) {
+            double octaves = Math.log(band.getCenterFrequency() / cutoff) / Math.log(2);
+            band.setGain(Math.max(EqualizerBand.MIN_GAIN, -ROLLOFF_DB_PER_OCTAVE * Math.max(0, octaves)));
+        }
+    }
+    
+    /**
+     * Stops the voice and releases the media player.
+     */
+    void dispose() {
+        player.dispose();
+    }
+    
+    /**
+     * Gets a URL the media player can open for a resource.
+     * Resources inside a runtime image cannot be streamed by the media player,
+     * so those are copied to a temporary file first.
+     *
+     * @param resource the resource name
+     * @return the media URL
+     * @throws IOException if the resource cannot be found or copied
+     */
+    private static String toMediaUrl(String resource) throws IOException {
+        URL url = SpatialVoice.class.getResource(resource);
+        if (url == null) {
+            throw new IOException("Sound not found: " + resource);
+        }
+        if (url.getProtocol().equals("file") || url.getProtocol().equals("jar")) {
+            return url.toExternalForm();
+        }
+        
+        Path copy = Files.createTempFile("labyrinth-", resource.substring(resource.lastIndexOf('/') + 1));
+        copy.toFile().deleteOnExit();
+        try (InputStream in = url.openStream()) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy.toUri().toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.bench;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.GameSimulation;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.LatencyHistogram;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.BotPlayer;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.ShortestPathBot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Scripted camera flythrough of the running game, measuring how fast the scene renders.
+ * A bot walks the shortest path through level after level while the frame intervals,
+ * the scene build times and the heap are recorded. When the time is up the results are
+ * written as {@code key=value} lines and the game exits.
+ *
+ * <p>Enabled with {@code -Dlabyrinth.flythrough=seconds}, the results are written to
+ * {@code -Dlabyrinth.flythrough.report=file} or printed when no file is set.
+ * {@link RenderBenchmark} runs it across maze sizes and renderer options.
+ */
+public class Flythrough {
+    // Frames skipped before recording, while the JIT and the pipeline warm up
+    private static final int WARMUP_FRAMES = 60;
+    
+    // Seed all flythrough levels are derived from
+    private static final long SEED = 42;
+    
+    private final double seconds;
+    private final Path report;
+    
+    // Recorded durations
+    private final LatencyHistogram frames = new LatencyHistogram();
+    private final LatencyHistogram builds = new LatencyHistogram();
+    private long buildNanos = 0;
+    
+    // Progress
+    private int warmupFrames = 0;
+    private long lastFrame = 0;
+    private long recordedNanos = 0;
+    private boolean finished = false;
+    
+    /**
+     * Creates a flythrough.
+     *
+     * @param seconds how long to record frames
+     * @param report the report file, or null to print the results
+     */
+    public Flythrough(double seconds, Path report) {
+        this.seconds = seconds;
+        this.report = report;
+    }
+    
+    /**
+     * Creates a flythrough from the system properties.
+     *
+     * @return the flythrough, or null if none was requested
+     */
+    public static Flythrough fromSystemProperties() {
+        String seconds = System.getProperty("labyrinth.flythrough");
+        if (seconds == null) {
+            return null;
+        }
+        String report = System.getProperty("labyrinth.flythrough.report");
+        return new Flythrough(Double.parseDouble(seconds), report != null ? Path.of(report) : null);
+    }
+    
+    /**
+     * Lets a bot drive the simulation through repeatable levels.
+     * Must be called before the simulation is started.
+     *
+     * @param simulation the game simulation
+     */
+    public void attach(GameSimulation simulation) {
+        simulation.setSeed(SEED);
+        simulation.setAutopilot(new BotPlayer(new ShortestPathBot(), simulation.getStepDistance()));
+    }
+    
+    /**
+     * Records the time it took to build the scene of a level.
+     *
+     * @param nanos the build time in nanoseconds
+     */
+    public void onLevelBuilt(long nanos) {
+        builds.record(nanos);
+        buildNanos += nanos;
+    }
+    
+    /**
+     * Records the interval since the previous frame.
+     *
+     * @return true once the flythrough is over and the report has been written
+     */
+    public boolean onFrame() {
+        if (finished) {
+            return true;
+        }
+        
+        long now = System.nanoTime();
+        long interval = now - lastFrame;
+        lastFrame = now;
+        if (warmupFrames++ <= WARMUP_FRAMES) {
+            return false;
+        }
+        
+        frames.record(interval);
+        recordedNanos += interval;
+        if (recordedNanos < seconds * 1e9) {
+            return false;
+        }
+        
+        finished = true;
+        writeReport();
+        return true;
+    }
+    
+    /**
+     * Writes the results to the report file, or prints them.
+     */
+    private void writeReport() {
+        // Heap that stays reachable with the current level built
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        
+        StringBuilder results = new StringBuilder();
+        appendResult(results, "frames", frames.getCount());
+        appendResult(results, "fps", frames.getCount() / (recordedNanos / 1e9));
+        appendResult(results, "frame.p50.ms", frames.getPercentile(50) / 1e6);
+        appendResult(results, "frame.p90.ms", frames.getPercentile(90) / 1e6);
+        appendResult(results, "frame.p99.ms", frames.getPercentile(99) / 1e6);
+        appendResult(results, "frame.max.ms", frames.getMax() / 1e6);
+        appendResult(results, "levels", builds.getCount());
+        appendResult(results, "build.avg.ms", builds.getCount() == 0 ? 0 : buildNanos / 1e6 / builds.getCount());
+        appendResult(results, "build.max.ms", builds.getMax() / 1e6);
+        appendResult(results, "heap.mib", heapUsed / (1024.0 * 1024.0));
+        
+        if (report == null) {
+            System.out.print(results);
+            return;
+        }
+        try {
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(report)) {
+                writer.write(results.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write flythrough report: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Appends a single result line.
+     *
+     * @param results the results
+     * @param key the result name
+     * @param value the result value
+     */
+    private static void appendResult(StringBuilder results, String key, Number value) {
+        if (value instanceof Double) {
+            results.append(key).append('=').append(String.format(Locale.ROOT, "%.3f", value)).append('\n');
+        } else {
+            results.append(key).append('=').append(value).append('\n');
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,255 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.bench;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering benchmark of the real game scene across maze sizes and renderer options.
+ * Every run boots {@link LabyrinthGame} in its own JVM with a {@link Flythrough},
+ * so scene build time and heap are not skewed by earlier runs, then collects the
+ * frame time percentiles, build times and heap into a CSV and a JSON report.
+ *
+ * <p>Renderer options:
+ * <ul>
+ *     <li>{@code boxes}: one box entity per wall cell, no culling</li>
+ *     <li>{@code merged}: one mesh per wall material holding only visible faces</li>
+ *     <li>{@code culled}: one box entity per wall cell, culled around the camera</li>
+ *     <li>{@code raycast}: the grid raycaster instead of the 3D scene</li>
+ * </ul>
+ *
+ * <p>Machines without a GPU need a display and a software OpenGL, e.g.
+ * {@code xvfb-run -s "-screen 0 1280x720x24" ./gradlew renderBenchmark}.
+ * The JavaFX {@code sw} pipeline cannot draw 3D scenes, so the runs use the {@code es2}
+ * pipeline with {@code LIBGL_ALWAYS_SOFTWARE=1}, which selects Mesa's llvmpipe.
+ *
+ * <p>Usage: {@code RenderBenchmark [--sizes 21,41,81] [--variants boxes,merged,culled,raycast]
+ * [--seconds S] [--out dir]}.
+ */
+public class RenderBenchmark {
+    // Result columns, in report order
+    private static final String[] COLUMNS = {
+            "frames", "fps", "frame.p50.ms", "frame.p90.ms", "frame.p99.ms", "frame.max.ms",
+            "levels", "build.avg.ms", "build.max.ms", "heap.mib"
+    };
+    
+    // Time allowed for a run on top of its flythrough, covering startup and level builds
+    private static final long STARTUP_TIMEOUT_SECONDS = 120;
+    
+    /**
+     * Runs the benchmark.
+     *
+     * @param args command line arguments
+     * @throws Exception if a run cannot be started or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = List.of(21, 41, 81);
+        List<String> variants = List.of("boxes", "merged", "culled", "raycast");
+        int seconds = 20;
+        Path out = Path.of("build", "render-benchmark");
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = parseSizes(args[++i]);
+                case "--variants" -> variants = List.of(args[++i].split(","));
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        Files.createDirectories(out);
+        
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            for (String variant : variants) {
+                System.out.printf("Running %s at %dx%d for %d s%n", variant, size, size, seconds);
+                Result result = run(size, variant, seconds, out);
+                System.out.println(result.values() != null
+                        ? String.format("  p50 %s ms, p99 %s ms, build %s ms, heap %s MiB",
+                        result.values().getProperty("frame.p50.ms"), result.values().getProperty("frame.p99.ms"),
+                        result.values().getProperty("build.avg.ms"), result.values().getProperty("heap.mib"))
+                        : "  failed, see " + logFile(out, size, variant));
+                results.add(result);
+            }
+        }
+        
+        writeCsv(out.resolve("render-benchmark.csv"), results);
+        writeJson(out.resolve("render-benchmark.json"), results);
+        System.out.println("Reports written to " + out.toAbsolutePath());
+        
+        if (results.stream().anyMatch(result -> result.values() == null)) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Results of a single run.
+     *
+     * @param size the labyrinth size
+     * @param variant the renderer option
+     * @param values the flythrough results, or null if the run failed
+     */
+    private record Result(int size, String variant, Properties values) {
+    }
+    
+    /**
+     * Boots the game in a new JVM and waits for its flythrough report.
+     *
+     * @param size the labyrinth size
+     * @param variant the renderer option
+     * @param seconds how long to record frames
+     * @param out the output directory
+     * @return the run results
+     * @throws IOException if the JVM cannot be started
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Result run(int size, String variant, int seconds, Path out)
+            throws IOException, InterruptedException {
+        Path report = out.resolve("run-" + size + "-" + variant + ".properties");
+        Files.deleteIfExists(report);
+        
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        
+        // 3D through OpenGL, uncapped so the frame time is the render cost
+        command.add("-Dprism.order=es2,sw");
+        command.add("-Dprism.forceGPU=true");
+        command.add("-Dprism.vsync=false");
+        command.add("-Djavafx.animation.fullspeed=true");
+        
+        // Only the scene under test
+        command.add("-Dlabyrinth.record=false");
+        command.add("-Dlabyrinth.creatures=0");
+        command.add("-Dlabyrinth.audio=false");
+        command.add("-Dlabyrinth.size=" + size);
+        command.add("-Dlabyrinth.renderer=" + (variant.equals("raycast") ? "raycast" : "3d"));
+        command.add("-Dlabyrinth.walls=" + (variant.equals("merged") ? "merged" : "boxes"));
+        command.add("-Dlabyrinth.quality=" + (variant.equals("culled") ? "HIGH" : "ULTRA"));
+        command.add("-Dlabyrinth.flythrough=" + seconds);
+        command.add("-Dlabyrinth.flythrough.report=" + report.toAbsolutePath());
+        
+        addGameLaunch(command);
+        
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile(out, size, variant).toFile());
+        builder.environment().put("LIBGL_ALWAYS_SOFTWARE", "1");
+        
+        Process process = builder.start();
+        if (!process.waitFor(seconds + STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        
+        if (!Files.exists(report)) {
+            return new Result(size, variant, null);
+        }
+        Properties values = new Properties();
+        try (Reader reader = Files.newBufferedReader(report)) {
+            values.load(reader);
+        }
+        return new Result(size, variant, values);
+    }
+    
+    /**
+     * Adds the arguments that launch the game the same way this JVM was launched.
+     *
+     * @param command the command to add to
+     */
+    static void addGameLaunch(List<String> command) {
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("-m");
+            command.add(LabyrinthGame.class.getModule().getName() + "/" + LabyrinthGame.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(LabyrinthGame.class.getName());
+        }
+    }
+    
+    /**
+     * Writes the results as CSV, one row per run.
+     *
+     * @param file the report file
+     * @param results the results
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCsv(Path file, List<Result> results) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("size,variant,status");
+            for (String column : COLUMNS) {
+                writer.write("," + column);
+            }
+            writer.write("\n");
+            
+            for (Result result : results) {
+                writer.write(result.size() + "," + result.variant() + "," + (result.values() != null ? "ok" : "failed"));
+                for (String column : COLUMNS) {
+                    writer.write("," + (result.values() != null ? result.values().getProperty(column, "") : ""));
+                }
+                writer.write("\n");
+            }
+        }
+    }
+    
+    /**
+     * Writes the results as a JSON array, one object per run.
+     *
+     * @param file the report file
+     * @param results the results
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeJson(Path file, List<Result> results) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i);
+                writer.write("  {\"size\": " + result.size() + ", \"variant\": \"" + result.variant()
+                        + "\", \"status\": \"" + (result.values() != null ? "ok" : "failed") + "\"");
+                if (result.values() != null) {
+                    for (String column : COLUMNS) {
+                        writer.write(", \"" + column + "\": " + result.values().getProperty(column, "null"));
+                    }
+                }
+                writer.write(i < results.size() - 1 ? "},\n" : "}\n");
+            }
+            writer.write("]\n");
+        }
+    }
+    
+    /**
+     * Parses a comma separated list of labyrinth sizes.
+     *
+     * @param sizes the sizes
+     * @return the parsed sizes
+     */
+    private static List<Integer> parseSizes(String sizes) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            parsed.add(Integer.parseInt(size.trim()));
+        }
+        return parsed;
+    }
+    
+    /**
+     * Gets the file the output of a run is written to.
+     *
+     * @param out the output directory
+     * @param size the labyrinth size
+     * @param variant the renderer option
+     * @return the log file
+     */
+    private static Path logFile(Path out, int size, String variant) {
+        return out.resolve("run-" + size + "-" + variant + ".log");
+    }
+}
\ No newline at end of file
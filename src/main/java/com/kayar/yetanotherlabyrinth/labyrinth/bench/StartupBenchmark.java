@@ -0,0 +1,177 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.bench;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start benchmark of the game, from process start to the first main menu frame.
+ * Every run boots {@link LabyrinthGame} in a new JVM with a {@link StartupTimer}; the time
+ * is taken from just before the process is started to the first menu frame reported by it.
+ * A first run that is not counted warms up the file cache, and the median of the
+ * remaining runs is reported so results can be compared across releases.
+ *
+ * <p>Variants:
+ * <ul>
+ *     <li>{@code jvm}: the game launched the same way as this benchmark</li>
+ *     <li>{@code image}: the jlink image, with the class data sharing archive of the JDK only</li>
+ *     <li>{@code appcds}: the jlink image with the archive of the game classes built by {@code cdsArchive}</li>
+ * </ul>
+ *
+ * <p>Like {@link RenderBenchmark} it needs a display, e.g. {@code xvfb-run ./gradlew startupBenchmark}.
+ *
+ * <p>Usage: {@code StartupBenchmark [--runs N] [--level] [--image dir] [--out dir]}.
+ * With {@code --level} PLAY is pressed and the time to the first level frame is reported too.
+ */
+public class StartupBenchmark {
+    // Time allowed for a single start
+    private static final long TIMEOUT_SECONDS = 120;
+    
+    // Class data sharing archive of the game classes inside the jlink image
+    private static final String APP_ARCHIVE = "lib/app.jsa";
+    
+    /**
+     * Runs the benchmark.
+     *
+     * @param args command line arguments
+     * @throws Exception if a run cannot be started or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        boolean level = false;
+        Path image = null;
+        Path out = Path.of("build", "startup-benchmark");
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--level" -> level = true;
+                case "--image" -> image = Path.of(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        Files.createDirectories(out);
+        
+        List<String> variants = new ArrayList<>();
+        if (image == null) {
+            variants.add("jvm");
+        } else {
+            variants.add("image");
+            if (Files.exists(image.resolve(APP_ARCHIVE))) {
+                variants.add("appcds");
+            }
+        }
+        
+        boolean failed = false;
+        try (Writer csv = Files.newBufferedWriter(out.resolve("startup-benchmark.csv"))) {
+            csv.write("variant,run,menu.ms,level.ms\n");
+            for (String variant : variants) {
+                System.out.printf("Starting %s %d times%n", variant, runs);
+                long[] menuMillis = new long[runs];
+                long[] levelMillis = new long[runs];
+                for (int run = -1; run < runs; run++) {
+                    Properties values = run(variant, image, level, out);
+                    if (values == null) {
+                        System.out.println("  failed, see " + out.resolve(variant + ".log"));
+                        failed = true;
+                        break;
+                    }
+                    if (run < 0) {
+                        continue;
+                    }
+                    menuMillis[run] = Long.parseLong(values.getProperty("menu.ms"));
+                    levelMillis[run] = Long.parseLong(values.getProperty("level.ms", "0"));
+                    csv.write(variant + "," + run + "," + menuMillis[run] + ","
+                            + (level ? levelMillis[run] : "") + "\n");
+                }
+                if (failed) {
+                    break;
+                }
+                
+                Arrays.sort(menuMillis);
+                Arrays.sort(levelMillis);
+                System.out.printf("  menu: median %d ms, min %d ms, max %d ms%n",
+                        menuMillis[runs / 2], menuMillis[0], menuMillis[runs - 1]);
+                if (level) {
+                    System.out.printf("  first level after PLAY: median %d ms, min %d ms, max %d ms%n",
+                            levelMillis[runs / 2], levelMillis[0], levelMillis[runs - 1]);
+                }
+            }
+        }
+        System.out.println("Report written to " + out.resolve("startup-benchmark.csv").toAbsolutePath());
+        
+        if (failed) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Starts the game in a new JVM and waits for its startup report.
+     *
+     * @param variant the variant
+     * @param image the jlink image, or null
+     * @param level whether to measure until the first level
+     * @param out the output directory
+     * @return the startup results with {@code menu.ms} measured from the process launch, or null if the run failed
+     * @throws IOException if the JVM cannot be started
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Properties run(String variant, Path image, boolean level, Path out)
+            throws IOException, InterruptedException {
+        Path report = out.resolve(variant + ".properties");
+        Files.deleteIfExists(report);
+        
+        List<String> command = new ArrayList<>();
+        command.add((image != null ? image : Path.of(System.getProperty("java.home")))
+                .resolve("bin").resolve("java").toString());
+        if (variant.equals("appcds")) {
+            command.add("-XX:SharedArchiveFile=" + image.resolve(APP_ARCHIVE));
+        }
+        
+        // Nothing that reads or writes files the player owns
+        command.add("-Dlabyrinth.record=false");
+        command.add("-Dlabyrinth.autosave=0");
+        command.add("-Dlabyrinth.startup=" + (level ? "level" : "menu"));
+        command.add("-Dlabyrinth.startup.report=" + report.toAbsolutePath());
+        
+        if (image != null) {
+            command.add("-m");
+            command.add(LabyrinthGame.class.getModule().getName() + "/" + LabyrinthGame.class.getName());
+        } else {
+            RenderBenchmark.addGameLaunch(command);
+        }
+        
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(out.resolve(variant + ".log").toFile());
+        
+        long launched = System.currentTimeMillis();
+        Process process = builder.start();
+        if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        
+        if (!Files.exists(report)) {
+            return null;
+        }
+        Properties values = new Properties();
+        try (Reader reader = Files.newBufferedReader(report)) {
+            values.load(reader);
+        }
+        
+        // The process start reported by the game is only as exact as the clock tick, the launch time is exact
+        long menuFrame = Long.parseLong(values.getProperty("menu.epoch.ms"));
+        values.setProperty("menu.ms", Long.toString(menuFrame - launched));
+        return values;
+    }
+}
\ No newline at end of file
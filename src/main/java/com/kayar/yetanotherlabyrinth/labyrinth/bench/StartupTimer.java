@@ -0,0 +1,129 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Measures how long the game takes from process start to its first main menu frame,
+ * and optionally from pressing PLAY to the first frame of the first level.
+ * When the measurement is done the results are written as {@code key=value} lines
+ * and the game exits.
+ *
+ * <p>Enabled with {@code -Dlabyrinth.startup=menu}, which exits at the first menu frame,
+ * or {@code -Dlabyrinth.startup=level}, which presses PLAY and exits at the first level frame.
+ * The results are written to {@code -Dlabyrinth.startup.report=file} or printed when no file is set.
+ * {@link StartupBenchmark} repeats it in fresh JVMs, and the jlink build uses it as the
+ * training run of the class data sharing archive.
+ */
+public class StartupTimer {
+    private final boolean untilLevel;
+    private final Path report;
+    
+    // Wall clock times in milliseconds since the epoch, 0 until reached
+    private final long processStart;
+    private long menuFrame = 0;
+    private long playPressed = 0;
+    private boolean finished = false;
+    
+    /**
+     * Creates a startup timer.
+     *
+     * @param untilLevel whether to press PLAY and measure until the first level frame
+     * @param report the report file, or null to print the results
+     */
+    public StartupTimer(boolean untilLevel, Path report) {
+        this.untilLevel = untilLevel;
+        this.report = report;
+        
+        // The process start is only known to the clock tick, the JVM start is the fallback
+        this.processStart = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+    
+    /**
+     * Creates a startup timer from the system properties.
+     *
+     * @return the startup timer, or null if none was requested
+     */
+    public static StartupTimer fromSystemProperties() {
+        String mode = System.getProperty("labyrinth.startup");
+        if (mode == null) {
+            return null;
+        }
+        if (!mode.equals("menu") && !mode.equals("level")) {
+            throw new IllegalArgumentException("Unknown startup measurement: " + mode);
+        }
+        String report = System.getProperty("labyrinth.startup.report");
+        return new StartupTimer(mode.equals("level"), report != null ? Path.of(report) : null);
+    }
+    
+    /**
+     * Records the first frame of the main menu.
+     *
+     * @return true if the measurement is over and the game should exit,
+     *         false if PLAY should be pressed to measure the first level
+     */
+    public boolean onMenuFrame() {
+        if (menuFrame != 0) {
+            return finished;
+        }
+        menuFrame = System.currentTimeMillis();
+        if (untilLevel) {
+            playPressed = menuFrame;
+            return false;
+        }
+        
+        finished = true;
+        writeReport();
+        return true;
+    }
+    
+    /**
+     * Records a frame showing a level.
+     *
+     * @return true the first time a level frame ends the measurement
+     */
+    public boolean onLevelFrame() {
+        if (finished || playPressed == 0) {
+            return false;
+        }
+        finished = true;
+        writeReport();
+        return true;
+    }
+    
+    /**
+     * Writes the results to the report file, or prints them.
+     */
+    private void writeReport() {
+        long now = System.currentTimeMillis();
+        
+        StringBuilder results = new StringBuilder();
+        results.append("process.start.epoch.ms=").append(processStart).append('\n');
+        results.append("menu.epoch.ms=").append(menuFrame).append('\n');
+        results.append("menu.ms=").append(menuFrame - processStart).append('\n');
+        if (untilLevel) {
+            results.append("level.ms=").append(now - playPressed).append('\n');
+        }
+        
+        if (report == null) {
+            System.out.print(results);
+            return;
+        }
+        try {
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(report)) {
+                writer.write(results.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write startup report: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.components;
+
+import com.almasb.fxgl.entity.component.Component;
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Arrays;
+
+/**
+ * Renders all creatures of the swarm as a single mesh.
+ * Every creature is a small pyramid standing on the floor; moving the swarm only
+ * rewrites the point array of the mesh, so there is one node no matter how many creatures exist.
+ */
+public class CreatureSwarmComponent extends Component {
+    // Creature shape, the floor is at y = cell size and y points down
+    private static final float HALF_WIDTH = 0.25f;
+    private static final float HEIGHT = 0.7f;
+    private static final int POINTS_PER_CREATURE = 4;
+    
+    private final int count;
+    private final TriangleMesh mesh = new TriangleMesh();
+    private final MeshView view = new MeshView(mesh);
+    
+    // Point coordinates, rewritten in place every frame
+    private final float[] points;
+    
+    /**
+     * Creates the mesh for a fixed number of creatures.
+     *
+     * @param count the number of creatures
+     */
+    public CreatureSwarmComponent(int count) {
+        this.count = count;
+        this.points = new float[count * POINTS_PER_CREATURE * 3];
+        
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getPoints().setAll(points);
+        
+        // Base and three sides of every pyramid
+        int[] faces = new int[count * 4 * 6];
+        for (int i = 0; i < count; i++) {
+            int base = i * POINTS_PER_CREATURE;
+            int apex = base + 3;
+            int offset = i * 24;
+            int[] triangles = {base, base + 2, base + 1, base, base + 1, apex, base + 1, base + 2, apex, base + 2, base, apex};
+            for (int j = 0; j < triangles.length; j++) {
+                faces[offset + j * 2] = triangles[j];
+                faces[offset + j * 2 + 1] = 0;
+            }
+        }
+        mesh.getFaces().setAll(faces);
+        
+        PhongMaterial material = new PhongMaterial(Color.DARKRED);
+        view.setMaterial(material);
+        view.setCullFace(CullFace.NONE);
+    }
+    
+    /**
+     * Gets the node showing the creatures.
+     *
+     * @return the creature mesh view
+     */
+    public MeshView getView() {
+        return view;
+    }
+    
+    /**
+     * Moves the creatures to new positions.
+     *
+     * @param positions the creature positions as x, z pairs
+     */
+    public void setPositions(float[] positions) {
+        float floor = (float) LabyrinthGenerator.getCellSize();
+        int visible = Math.min(count, positions.length / 2);
+        
+        for (int i = 0; i < visible; i++) {
+            float x = positions[i * 2];
+            float z = positions[i * 2 + 1];
+            int offset = i * POINTS_PER_CREATURE * 3;
+            setPoint(offset, x - HALF_WIDTH, floor, z - HALF_WIDTH);
+            setPoint(offset + 3, x + HALF_WIDTH, floor, z - HALF_WIDTH);
+            setPoint(offset + 6, x, floor, z + HALF_WIDTH);
+            setPoint(offset + 9, x, floor - HEIGHT, z);
+        }
+        
+        // Creatures without a position collapse to a point and disappear
+        Arrays.fill(points, visible * POINTS_PER_CREATURE * 3, points.length, 0f);
+        
+        mesh.getPoints().set(0, points, 0, points.length);
+    }
+    
+    /**
+     * Writes a single point.
+     *
+     * @param offset the offset of the point in the point array
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     */
+    private void setPoint(int offset, float x, float y, float z) {
+        points[offset] = x;
+        points[offset + 1] = y;
+        points[offset + 2] = z;
+    }
+}
\ No newline at end of file
@@ -6,6 +6,8 @@ import com.almasb.fxgl.entity.Entity;
 import com.almasb.fxgl.entity.component.Component;
 import com.almasb.fxgl.physics.PhysicsComponent;
 import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGame;
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.PlayerMotion;
 import javafx.geometry.Point3D;
 import javafx.scene.input.KeyCode;
 
@@ -26,11 +28,6 @@ public class PlayerComponent extends Component {
     private static final double GRAVITY = 0.01;
     private static final double MAX_FALL_SPEED = 0.5;
     
-    // Acceleration settings
-    private static final double ACCELERATION = 0.01;
-    private static final double DECELERATION = 0.02;
-    private static final double MAX_SPEED = 0.2;
-    
     // Mouse look settings
     private static final double MOUSE_SENSITIVITY = 0.2;
     
@@ -39,10 +36,11 @@ public class PlayerComponent extends Component {
     private boolean isCrouching = false;
     private boolean isOnGround = true;
     
-    // Movement velocity
-    private double velocityX = 0;
+    // Horizontal movement rules, shared with the headless simulation
+    private final PlayerMotion motion = new PlayerMotion();
+    
+    // Vertical velocity
     private double velocityY = 0;
-    private double velocityZ = 0;
     
     // Look direction
     private double rotationX = 0; // Horizontal rotation (yaw)
@@ -51,6 +49,9 @@ public class PlayerComponent extends Component {
     // Reference to the game
     private LabyrinthGame game;
     
+    // Labyrinth used for grid based collisions, if known
+    private LabyrinthGenerator labyrinth;
+    
     /**
      * Called when the component is added to an entity.
      */
@@ -74,6 +75,17 @@ public class PlayerComponent extends Component {
         this.game = game;
     }
     
+    /**
+     * Sets the labyrinth the player is in.
+     * When set, collisions and the exit are checked against the grid
+     * instead of scanning all wall and exit entities.
+     *
+     * @param labyrinth the current labyrinth
+     */
+    public void setLabyrinth(LabyrinthGenerator labyrinth) {
+        this.labyrinth = labyrinth;
+    }
+    
     /**
      * Called on each game update tick.
      *
@@ -92,9 +104,9 @@ public class PlayerComponent extends Component {
         }
         
         // Apply velocity
-        entity.translateX(velocityX);
+        entity.translateX(motion.getVelocityX());
         entity.translateY(velocityY);
-        entity.translateZ(velocityZ);
+        entity.translateZ(motion.getVelocityZ());
         
         // Check for collisions
         checkCollisions();
@@ -103,24 +115,27 @@ public class PlayerComponent extends Component {
         checkExit();
         
         // Apply deceleration
-        applyDeceleration();
+        motion.applyDeceleration();
     }
     
     /**
      * Checks for collisions with walls and other objects.
      */
     private void checkCollisions() {
-        // Check for collisions with walls
-        getGameWorld().getEntitiesByType(LabyrinthGame.EntityType.WALL)
-                .forEach(wall -> {
-                    if (entity.isColliding(wall)) {
-                        // Move back to resolve collision
-                        entity.translateX(-velocityX);
-                        entity.translateZ(-velocityZ);
-                        velocityX = 0;
-                        velocityZ = 0;
-                    }
-                });
+        if (labyrinth != null) {
+            // Only the grid cells under the player need to be checked
+            if (PlayerMotion.collides(labyrinth, entity.getX(), entity.getZ())) {
+                resolveCollision();
+            }
+        } else {
+            // Check for collisions with walls
+            getGameWorld().getEntitiesByType(LabyrinthGame.EntityType.WALL)
+                    .forEach(wall -> {
+                        if (entity.isColliding(wall)) {
+                            resolveCollision();
+                        }
+                    });
+        }
         
         // Check if player is on ground
         isOnGround = false;
@@ -132,10 +147,27 @@ public class PlayerComponent extends Component {
                 });
     }
     
+    /**
+     * Moves the player back to where it was before this tick and stops it.
+     */
+    private void resolveCollision() {
+        entity.translateX(-motion.getVelocityX());
+        entity.translateZ(-motion.getVelocityZ());
+        motion.stop();
+    }
+    
     /**
      * Checks if the player has reached the exit.
      */
     private void checkExit() {
+        if (labyrinth != null) {
+            if (PlayerMotion.isAtExit(labyrinth, entity.getX(), entity.getZ()) && game != null) {
+                // Player has reached the exit, load next level
+                game.nextLevel();
+            }
+            return;
+        }
+        
         getGameWorld().getEntitiesByType(LabyrinthGame.EntityType.EXIT)
                 .forEach(exit -> {
                     // Calculate 2D distance (ignoring Y)
@@ -150,107 +182,32 @@ public class PlayerComponent extends Component {
                 });
     }
     
-    /**
-     * Applies deceleration to smooth out movement.
-     */
-    private void applyDeceleration() {
-        // Apply deceleration to X velocity
-        if (velocityX > 0) {
-            velocityX -= DECELERATION;
-            if (velocityX < 0) velocityX = 0;
-        } else if (velocityX < 0) {
-            velocityX += DECELERATION;
-            if (velocityX > 0) velocityX = 0;
-        }
-        
-        // Apply deceleration to Z velocity
-        if (velocityZ > 0) {
-            velocityZ -= DECELERATION;
-            if (velocityZ < 0) velocityZ = 0;
-        } else if (velocityZ < 0) {
-            velocityZ += DECELERATION;
-            if (velocityZ > 0) velocityZ = 0;
-        }
-    }
-    
     /**
      * Moves the player forward.
      */
     public void moveForward() {
-        // Calculate direction vector based on rotation
-        double dirX = Math.sin(Math.toRadians(rotationX));
-        double dirZ = Math.cos(Math.toRadians(rotationX));
-        
-        // Apply acceleration
-        velocityX += dirX * ACCELERATION;
-        velocityZ += dirZ * ACCELERATION;
-        
-        // Clamp to max speed
-        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
-        if (speed > MAX_SPEED) {
-            velocityX = (velocityX / speed) * MAX_SPEED;
-            velocityZ = (velocityZ / speed) * MAX_SPEED;
-        }
+        motion.moveForward(rotationX);
     }
     
     /**
      * Moves the player backward.
      */
     public void moveBackward() {
-        // Calculate direction vector based on rotation
-        double dirX = Math.sin(Math.toRadians(rotationX));
-        double dirZ = Math.cos(Math.toRadians(rotationX));
-        
-        // Apply acceleration in opposite direction
-        velocityX -= dirX * ACCELERATION;
-        velocityZ -= dirZ * ACCELERATION;
-        
-        // Clamp to max speed
-        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
-        if (speed > MAX_SPEED) {
-            velocityX = (velocityX / speed) * MAX_SPEED;
-            velocityZ = (velocityZ / speed) * MAX_SPEED;
-        }
+        motion.moveBackward(rotationX);
     }
     
     /**
      * Strafes the player left.
      */
     public void strafeLeft() {
-        // Calculate strafe vector (perpendicular to look direction)
-        double strafeX = Math.sin(Math.toRadians(rotationX - 90));
-        double strafeZ = Math.cos(Math.toRadians(rotationX - 90));
-        
-        // Apply acceleration
-        velocityX += strafeX * ACCELERATION;
-        velocityZ += strafeZ * ACCELERATION;
-        
-        // Clamp to max speed
-        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
-        if (speed > MAX_SPEED) {
-            velocityX = (velocityX / speed) * MAX_SPEED;
-            velocityZ = (velocityZ / speed) * MAX_SPEED;
-        }
+        motion.strafeLeft(rotationX);
     }
     
     /**
      * Strafes the player right.
      */
     public void strafeRight() {
-        // Calculate strafe vector (perpendicular to look direction)
-        double strafeX = Math.sin(Math.toRadians(rotationX + 90));
-        double strafeZ = Math.cos(Math.toRadians(rotationX + 90));
-        
-        // Apply acceleration
-        velocityX += strafeX * ACCELERATION;
-        velocityZ += strafeZ * ACCELERATION;
-        
-        // Clamp to max speed
-        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
-        if (speed > MAX_SPEED) {
-            velocityX = (velocityX / speed) * MAX_SPEED;
-            velocityZ = (velocityZ / speed) * MAX_SPEED;
-        }
+        motion.strafeRight(rotationX);
     }
     
     /**
@@ -0,0 +1,214 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.diag;
+
+import com.almasb.fxgl.entity.Entity;
+import com.almasb.fxgl.entity.GameWorld;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.SubScene;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Material;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.Shape3D;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Leak detection across level transitions.
+ * After every level load it counts entities by type, scene graph nodes by class,
+ * distinct materials and images and the heap retained after a full GC. Any value
+ * that grew on every one of the last N transitions is reported together with its history.
+ *
+ * <p>Enable with -Dlabyrinth.diagnostics=true, -Dlabyrinth.diagnostics.levels=N sets
+ * the number of transitions (default 5).
+ */
+public class LevelDiagnostics {
+    // Heap growth below this is treated as noise
+    private static final long HEAP_NOISE_KIB = 1024;
+    
+    private static final String HEAP = "heap.retainedKiB";
+    
+    // Transitions a value must grow on to be reported
+    private final int levels;
+    
+    // Recent values of every metric, oldest first
+    private final Map<String, ArrayDeque<Long>> history = new TreeMap<>();
+    
+    // Metrics already reported for their current growth streak
+    private final Set<String> reported = new HashSet<>();
+    
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    
+    /**
+     * Creates diagnostics that report growth over the specified number of transitions.
+     *
+     * @param levels the number of transitions
+     */
+    public LevelDiagnostics(int levels) {
+        this.levels = levels;
+    }
+    
+    /**
+     * Creates diagnostics when they are enabled by system properties.
+     *
+     * @return the diagnostics, or null if disabled
+     */
+    public static LevelDiagnostics fromSystemProperties() {
+        if (!Boolean.getBoolean("labyrinth.diagnostics")) {
+            return null;
+        }
+        return new LevelDiagnostics(Math.max(1, Integer.getInteger("labyrinth.diagnostics.levels", 5)));
+    }
+    
+    /**
+     * Takes a snapshot after a level was loaded and reports metrics that keep growing.
+     * Must be called on the JavaFX thread.
+     *
+     * @param level the level number
+     * @param world the game world
+     * @param root the root of the scene graph
+     */
+    public void onLevelLoaded(int level, GameWorld world, Parent root) {
+        Map<String, Long> metrics = snapshot(world, root);
+        
+        for (Map.Entry<String, Long> metric : metrics.entrySet()) {
+            ArrayDeque<Long> values = history.computeIfAbsent(metric.getKey(), key -> new ArrayDeque<>());
+            values.addLast(metric.getValue());
+            if (values.size() > levels + 1) {
+                values.removeFirst();
+            }
+        }
+        
+        // Metrics that disappeared count as zero
+        for (Map.Entry<String, ArrayDeque<Long>> entry : history.entrySet()) {
+            if (!metrics.containsKey(entry.getKey())) {
+                entry.getValue().addLast(0L);
+                if (entry.getValue().size() > levels + 1) {
+                    entry.getValue().removeFirst();
+                }
+            }
+        }
+        
+        System.out.printf("Diagnostics level %d: %d entities, %d nodes, %d materials, %d images, %d KiB heap%n",
+                level, metrics.getOrDefault("entities.total", 0L), metrics.getOrDefault("nodes.total", 0L),
+                metrics.getOrDefault("materials", 0L), metrics.getOrDefault("images", 0L),
+                metrics.getOrDefault(HEAP, 0L));
+        
+        List<String> growing = new ArrayList<>();
+        for (Map.Entry<String, ArrayDeque<Long>> entry : history.entrySet()) {
+            if (isGrowing(entry.getKey(), entry.getValue())) {
+                if (reported.add(entry.getKey())) {
+                    growing.add(entry.getKey());
+                }
+            } else {
+                reported.remove(entry.getKey());
+            }
+        }
+        
+        if (!growing.isEmpty()) {
+            report(level, growing);
+        }
+    }
+    
+    /**
+     * Checks whether a metric grew on every one of the last transitions.
+     *
+     * @param name the metric name
+     * @param values the recent values, oldest first
+     * @return true if the metric keeps growing
+     */
+    private boolean isGrowing(String name, ArrayDeque<Long> values) {
+        if (values.size() <= levels) {
+            return false;
+        }
+        
+        long previous = Long.MIN_VALUE;
+        for (long value : values) {
+            if (value <= previous) {
+                return false;
+            }
+            previous = value;
+        }
+        return !name.equals(HEAP) || values.getLast() - values.getFirst() > HEAP_NOISE_KIB;
+    }
+    
+    /**
+     * Prints the retention report for growing metrics.
+     *
+     * @param level the level number
+     * @param growing the names of the growing metrics
+     */
+    private void report(int level, List<String> growing) {
+        System.err.printf("Possible leak at level %d, growing over the last %d level transitions:%n", level, levels);
+        for (String name : growing) {
+            System.err.printf("  %-32s %s%n", name, history.get(name));
+        }
+        System.err.println("  Current retention by type:");
+        for (Map.Entry<String, ArrayDeque<Long>> entry : history.entrySet()) {
+            System.err.printf("    %-30s %d%n", entry.getKey(), entry.getValue().getLast());
+        }
+    }
+    
+    /**
+     * Counts entities, nodes, materials and images and measures the retained heap.
+     *
+     * @param world the game world
+     * @param root the root of the scene graph
+     * @return the metrics by name
+     */
+    private Map<String, Long> snapshot(GameWorld world, Parent root) {
+        Map<String, Long> metrics = new TreeMap<>();
+        
+        // Entities by type
+        List<Entity> entities = world.getEntities();
+        for (Entity entity : entities) {
+            metrics.merge("entities." + entity.getType(), 1L, Long::sum);
+        }
+        metrics.put("entities.total", (long) entities.size());
+        
+        // Scene graph nodes by class, including the 3D sub scene
+        Set<Material> materials = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Image> images = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        long nodes = 0;
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            nodes++;
+            metrics.merge("nodes." + node.getClass().getSimpleName(), 1L, Long::sum);
+            
+            if (node instanceof Shape3D shape && shape.getMaterial() != null) {
+                materials.add(shape.getMaterial());
+                if (shape.getMaterial() instanceof PhongMaterial phong && phong.getDiffuseMap() != null) {
+                    images.add(phong.getDiffuseMap());
+                }
+            }
+            if (node instanceof SubScene subScene && subScene.getRoot() != null) {
+                stack.push(subScene.getRoot());
+            }
+            if (node instanceof Parent parent) {
+                for (Node child : parent.getChildrenUnmodifiable()) {
+                    stack.push(child);
+                }
+            }
+        }
+        metrics.put("nodes.total", nodes);
+        metrics.put("materials", (long) materials.size());
+        metrics.put("images", (long) images.size());
+        
+        // Heap still reachable after a full collection
+        System.gc();
+        metrics.put(HEAP, memory.getHeapMemoryUsage().getUsed() / 1024);
+        
+        return metrics;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads a maze drawn as text, one line per row and one character per cell:
+ * <ul>
+ *     <li>{@code #} a wall</li>
+ *     <li>space or {@code .} an open cell</li>
+ *     <li>{@code S} the start</li>
+ *     <li>{@code E} the exit</li>
+ * </ul>
+ * The first line sets the width. Shorter lines, as left by editors that trim trailing
+ * spaces, are filled up with walls; empty lines at the end of the file are ignored.
+ * Only the line being parsed is held in memory.
+ */
+final class AsciiMazeReader {
+    
+    /**
+     * Prevents instantiation.
+     */
+    private AsciiMazeReader() {
+    }
+    
+    /**
+     * Reads a maze row by row.
+     *
+     * @param reader the text to read
+     * @return the grid
+     * @throws IOException if reading fails or the text is not a maze
+     */
+    static MazeGrid read(BufferedReader reader) throws IOException {
+        MazeGrid grid = null;
+        int emptyLines = 0;
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                emptyLines++;
+                continue;
+            }
+            if (grid == null) {
+                grid = new MazeGrid(line.length(), 0);
+            }
+            
+            // Empty lines inside the maze are rows of walls
+            for (; emptyLines > 0; emptyLines--) {
+                grid.addRow();
+            }
+            parseRow(grid, line);
+        }
+        
+        if (grid == null) {
+            throw new MazeFormatException("Maze file is empty");
+        }
+        return grid;
+    }
+    
+    /**
+     * Adds a row to the grid.
+     *
+     * @param grid the grid
+     * @param line the row
+     * @throws MazeFormatException if the row is too wide or holds an unknown character
+     */
+    private static void parseRow(MazeGrid grid, String line) throws MazeFormatException {
+        int row = grid.addRow() + 1;
+        if (line.length() > grid.getWidth()) {
+            throw new MazeFormatException("Row " + row + " has " + line.length() + " cells, more than the "
+                    + grid.getWidth() + " of the first row");
+        }
+        
+        for (int x = 0; x < line.length(); x++) {
+            char c = line.charAt(x);
+            switch (c) {
+                case '#' -> {
+                }
+                case ' ', '.' -> grid.open(x);
+                case 'S' -> grid.markStart(x);
+                case 'E' -> grid.markExit(x);
+                default -> throw new MazeFormatException("Unknown cell '" + c + "' at row " + row
+                        + ", column " + (x + 1));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a maze file cannot be read as a playable labyrinth,
+ * either because the file is malformed or because the maze it holds cannot be played.
+ */
+public class MazeFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Creates an exception with the specified message.
+     *
+     * @param message the problem, ideally with the row and column it was found at
+     */
+    public MazeFormatException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
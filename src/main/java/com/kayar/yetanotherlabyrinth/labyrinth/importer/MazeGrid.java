@@ -0,0 +1,139 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import java.util.BitSet;
+
+/**
+ * Grid filled in by the importers one row at a time.
+ * Open cells are kept as one bit each, so even an 8k x 8k maze takes 8 MiB.
+ */
+final class MazeGrid {
+    // Largest grid accepted, so every cell index fits into an int
+    static final int MAX_CELLS = 1 << 28;
+    
+    // Grid dimensions, the height grows with every row added
+    private final int width;
+    private int height = 0;
+    
+    // Open cells, indexed row by row
+    private final BitSet open;
+    
+    // Cells marked as start and exit, -1 when not marked
+    private int start = -1;
+    private int exit = -1;
+    
+    /**
+     * Creates an empty grid.
+     *
+     * @param width the width in cells
+     * @param expectedHeight the number of rows expected, or 0 if unknown
+     * @throws MazeFormatException if the grid would be too large
+     */
+    MazeGrid(int width, int expectedHeight) throws MazeFormatException {
+        if (width <= 0) {
+            throw new MazeFormatException("Maze has no columns");
+        }
+        if ((long) width * expectedHeight > MAX_CELLS) {
+            throw new MazeFormatException("Maze of " + width + "x" + expectedHeight + " cells is larger than "
+                    + MAX_CELLS + " cells");
+        }
+        this.width = width;
+        this.open = new BitSet(Math.max(width, width * expectedHeight));
+    }
+    
+    /**
+     * Starts a new row. Its cells are walls until opened.
+     *
+     * @return the row index
+     * @throws MazeFormatException if the grid would be too large
+     */
+    int addRow() throws MazeFormatException {
+        if ((long) width * (height + 1) > MAX_CELLS) {
+            throw new MazeFormatException("Maze is larger than " + MAX_CELLS + " cells at row " + (height + 1));
+        }
+        return height++;
+    }
+    
+    /**
+     * Opens a cell of the current row.
+     *
+     * @param x the column
+     */
+    void open(int x) {
+        open.set((height - 1) * width + x);
+    }
+    
+    /**
+     * Opens a cell of the current row and marks it as the start.
+     *
+     * @param x the column
+     * @throws MazeFormatException if a start has already been marked
+     */
+    void markStart(int x) throws MazeFormatException {
+        if (start >= 0) {
+            throw new MazeFormatException("Second start at row " + height + ", column " + (x + 1)
+                    + ", the first is at row " + (start / width + 1) + ", column " + (start % width + 1));
+        }
+        open(x);
+        start = (height - 1) * width + x;
+    }
+    
+    /**
+     * Opens a cell of the current row and marks it as the exit.
+     *
+     * @param x the column
+     * @throws MazeFormatException if an exit has already been marked
+     */
+    void markExit(int x) throws MazeFormatException {
+        if (exit >= 0) {
+            throw new MazeFormatException("Second exit at row " + height + ", column " + (x + 1)
+                    + ", the first is at row " + (exit / width + 1) + ", column " + (exit % width + 1));
+        }
+        open(x);
+        exit = (height - 1) * width + x;
+    }
+    
+    /**
+     * Gets the width in cells.
+     *
+     * @return the width
+     */
+    int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the number of rows added so far.
+     *
+     * @return the height
+     */
+    int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Gets the open cells.
+     *
+     * @return the open cells, indexed row by row
+     */
+    BitSet getOpen() {
+        return open;
+    }
+    
+    /**
+     * Gets the start cell.
+     *
+     * @return the cell index, or -1 if not marked
+     */
+    int getStart() {
+        return start;
+    }
+    
+    /**
+     * Gets the exit cell.
+     *
+     * @return the cell index, or -1 if not marked
+     */
+    int getExit() {
+        return exit;
+    }
+}
\ No newline at end of file
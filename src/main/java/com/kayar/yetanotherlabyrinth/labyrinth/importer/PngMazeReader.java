@@ -0,0 +1,495 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a maze from a PNG bitmap, one pixel per cell:
+ * <ul>
+ *     <li>dark or transparent pixels are walls</li>
+ *     <li>light pixels are open cells</li>
+ *     <li>a red pixel marks the start</li>
+ *     <li>a green pixel marks the exit</li>
+ * </ul>
+ * The image data is inflated and unfiltered one scanline at a time, keeping only the
+ * current and the previous scanline, so the memory needed does not depend on the image
+ * height and an 8k x 8k bitmap is read with a few kilobytes besides the grid itself.
+ * All non-interlaced grayscale, truecolor and palette images are supported.
+ */
+final class PngMazeReader {
+    // File signature and the chunk types read
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int TRNS = 0x74524E53;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    
+    // Color types
+    private static final int GRAY = 0;
+    private static final int RGB = 2;
+    private static final int PALETTE = 3;
+    private static final int GRAY_ALPHA = 4;
+    private static final int RGBA = 6;
+    
+    // Scanline filters
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+    
+    // What a pixel stands for
+    private static final byte WALL = 0;
+    private static final byte OPEN = 1;
+    private static final byte START = 2;
+    private static final byte EXIT = 3;
+    
+    // Size of the read and inflate buffers
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * Prevents instantiation.
+     */
+    private PngMazeReader() {
+    }
+    
+    /**
+     * Reads a maze scanline by scanline.
+     *
+     * @param input the PNG file contents
+     * @return the grid
+     * @throws IOException if reading fails or the file is not a supported PNG
+     */
+    static MazeGrid read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        if (in.readLong() != SIGNATURE) {
+            throw new MazeFormatException("Not a PNG file");
+        }
+        
+        ChunkStream chunks = new ChunkStream(in);
+        if (chunks.next() != IHDR) {
+            throw new MazeFormatException("PNG does not start with a header");
+        }
+        DataInputStream header = new DataInputStream(chunks);
+        int width = header.readInt();
+        int height = header.readInt();
+        int bitDepth = header.readUnsignedByte();
+        int colorType = header.readUnsignedByte();
+        int compression = header.readUnsignedByte();
+        int filter = header.readUnsignedByte();
+        int interlace = header.readUnsignedByte();
+        chunks.finish();
+        
+        if (width <= 0 || height <= 0) {
+            throw new MazeFormatException("PNG has no pixels");
+        }
+        if (compression != 0 || filter != 0) {
+            throw new MazeFormatException("Unknown PNG compression or filter method");
+        }
+        if (interlace != 0) {
+            throw new MazeFormatException("Interlaced PNG is not supported, save the maze without interlacing");
+        }
+        int channels = channels(colorType, bitDepth);
+        MazeGrid grid = new MazeGrid(width, height);
+        
+        // Palette and its transparency, read up to the image data
+        int[] palette = null;
+        byte[] paletteAlpha = null;
+        int type;
+        while ((type = chunks.next()) != IDAT) {
+            if (type == IEND) {
+                throw new MazeFormatException("PNG has no image data");
+            } else if (type == PLTE) {
+                palette = readPalette(chunks);
+            } else if (type == TRNS && colorType == PALETTE) {
+                paletteAlpha = chunks.readFully();
+            }
+            chunks.finish();
+        }
+        
+        // Indexed samples are looked up instead of classified pixel by pixel
+        byte[] sampleClasses = null;
+        if (colorType == PALETTE) {
+            if (palette == null) {
+                throw new MazeFormatException("PNG palette is missing");
+            }
+            sampleClasses = paletteClasses(palette, paletteAlpha, bitDepth);
+        } else if (colorType == GRAY) {
+            sampleClasses = grayClasses(Math.min(bitDepth, 8));
+        }
+        
+        // Inflate and unfilter the scanlines
+        int bitsPerPixel = channels * bitDepth;
+        int stride = 1 + (int) (((long) width * bitsPerPixel + 7) / 8);
+        int bytesPerPixel = Math.max(1, bitsPerPixel / 8);
+        byte[] previous = new byte[stride];
+        byte[] current = new byte[stride];
+        
+        Inflater inflater = new Inflater();
+        try (InputStream pixels = new InflaterInputStream(chunks, inflater, BUFFER_SIZE)) {
+            for (int z = 0; z < height; z++) {
+                int read;
+                try {
+                    read = pixels.readNBytes(current, 0, stride);
+                } catch (EOFException e) {
+                    // The compressed stream stopped before its end
+                    read = -1;
+                }
+                if (read < stride) {
+                    throw new MazeFormatException("PNG image data ends at row " + (z + 1) + " of " + height);
+                }
+                unfilter(current, previous, bytesPerPixel, z);
+                
+                grid.addRow();
+                if (sampleClasses != null) {
+                    addIndexedRow(grid, current, sampleClasses, bitDepth);
+                } else {
+                    addColorRow(grid, current, channels, bitDepth / 8);
+                }
+                
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        } finally {
+            inflater.end();
+        }
+        return grid;
+    }
+    
+    /**
+     * Gets the number of channels of a color type and checks the bit depth is valid for it.
+     *
+     * @param colorType the color type
+     * @param bitDepth the bits per channel
+     * @return the channels per pixel
+     * @throws MazeFormatException if the combination is not valid
+     */
+    private static int channels(int colorType, int bitDepth) throws MazeFormatException {
+        boolean highDepth = bitDepth == 8 || bitDepth == 16;
+        boolean lowDepth = bitDepth == 1 || bitDepth == 2 || bitDepth == 4;
+        int channels = switch (colorType) {
+            case GRAY -> highDepth || lowDepth ? 1 : 0;
+            case PALETTE -> lowDepth || bitDepth == 8 ? 1 : 0;
+            case GRAY_ALPHA -> highDepth ? 2 : 0;
+            case RGB -> highDepth ? 3 : 0;
+            case RGBA -> highDepth ? 4 : 0;
+            default -> 0;
+        };
+        if (channels == 0) {
+            throw new MazeFormatException("Unsupported PNG color type " + colorType + " at " + bitDepth + " bits");
+        }
+        return channels;
+    }
+    
+    /**
+     * Reads the palette chunk.
+     *
+     * @param chunks the chunk stream positioned at the palette
+     * @return the palette colors as RGB
+     * @throws IOException if reading fails
+     */
+    private static int[] readPalette(ChunkStream chunks) throws IOException {
+        byte[] entries = chunks.readFully();
+        int[] palette = new int[entries.length / 3];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = (entries[i * 3] & 0xFF) << 16 | (entries[i * 3 + 1] & 0xFF) << 8 | entries[i * 3 + 2] & 0xFF;
+        }
+        return palette;
+    }
+    
+    /**
+     * Classifies every palette entry. Indices outside the palette are walls.
+     *
+     * @param palette the palette colors
+     * @param alpha the palette transparency, or null if opaque
+     * @param bitDepth the bits per index
+     * @return the class of every index
+     */
+    private static byte[] paletteClasses(int[] palette, byte[] alpha, int bitDepth) {
+        byte[] classes = new byte[1 << bitDepth];
+        for (int i = 0; i < Math.min(palette.length, classes.length); i++) {
+            int a = alpha != null && i < alpha.length ? alpha[i] & 0xFF : 255;
+            classes[i] = classify(palette[i] >> 16 & 0xFF, palette[i] >> 8 & 0xFF, palette[i] & 0xFF, a);
+        }
+        return classes;
+    }
+    
+    /**
+     * Classifies every gray level.
+     *
+     * @param bitDepth the bits per gray sample, 16 bit samples are looked up by their high byte
+     * @return the class of every gray level
+     */
+    private static byte[] grayClasses(int bitDepth) {
+        int max = (1 << bitDepth) - 1;
+        byte[] classes = new byte[max + 1];
+        for (int i = 0; i <= max; i++) {
+            int gray = i * 255 / max;
+            classes[i] = classify(gray, gray, gray, 255);
+        }
+        return classes;
+    }
+    
+    /**
+     * Decides what a pixel stands for.
+     *
+     * @param r the red component, 0-255
+     * @param g the green component, 0-255
+     * @param b the blue component, 0-255
+     * @param a the opacity, 0-255
+     * @return the pixel class
+     */
+    private static byte classify(int r, int g, int b, int a) {
+        if (a < 128) {
+            return WALL;
+        }
+        if (r >= 192 && g < 64 && b < 64) {
+            return START;
+        }
+        if (g >= 192 && r < 64 && b < 64) {
+            return EXIT;
+        }
+        // Perceived brightness
+        return r * 299 + g * 587 + b * 114 >= 128_000 ? OPEN : WALL;
+    }
+    
+    /**
+     * Reverses the filter of a scanline in place.
+     *
+     * @param line the filter type followed by the filtered bytes
+     * @param previous the previous unfiltered scanline, all zeros for the first one
+     * @param bpp the bytes per complete pixel, at least 1
+     * @param row the row index, for error messages
+     * @throws MazeFormatException if the filter type is unknown
+     */
+    private static void unfilter(byte[] line, byte[] previous, int bpp, int row) throws MazeFormatException {
+        int length = line.length;
+        switch (line[0]) {
+            case FILTER_NONE -> {
+            }
+            case FILTER_SUB -> {
+                for (int i = 1 + bpp; i < length; i++) {
+                    line[i] += line[i - bpp];
+                }
+            }
+            case FILTER_UP -> {
+                for (int i = 1; i < length; i++) {
+                    line[i] += previous[i];
+                }
+            }
+            case FILTER_AVERAGE -> {
+                for (int i = 1; i < length; i++) {
+                    int left = i > bpp ? line[i - bpp] & 0xFF : 0;
+                    line[i] += (byte) ((left + (previous[i] & 0xFF)) >>> 1);
+                }
+            }
+            case FILTER_PAETH -> {
+                for (int i = 1; i < length; i++) {
+                    int a = i > bpp ? line[i - bpp] & 0xFF : 0;
+                    int b = previous[i] & 0xFF;
+                    int c = i > bpp ? previous[i - bpp] & 0xFF : 0;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    line[i] += (byte) (pa <= pb && pa <= pc ? a : pb <= pc ? b : c);
+                }
+            }
+            default -> throw new MazeFormatException("Unknown PNG filter " + line[0] + " at row " + (row + 1));
+        }
+    }
+    
+    /**
+     * Adds a row of palette indices or gray levels to the grid.
+     *
+     * @param grid the grid
+     * @param line the unfiltered scanline
+     * @param classes the class of every sample value
+     * @param bitDepth the bits per sample
+     * @throws MazeFormatException if a second start or exit is found
+     */
+    private static void addIndexedRow(MazeGrid grid, byte[] line, byte[] classes, int bitDepth)
+            throws MazeFormatException {
+        int width = grid.getWidth();
+        int mask = (1 << Math.min(bitDepth, 8)) - 1;
+        for (int x = 0; x < width; x++) {
+            int sample;
+            if (bitDepth >= 8) {
+                sample = line[1 + x * (bitDepth / 8)] & 0xFF;
+            } else {
+                int bit = x * bitDepth;
+                sample = line[1 + (bit >> 3)] >> (8 - bitDepth - (bit & 7)) & mask;
+            }
+            addCell(grid, x, classes[sample]);
+        }
+    }
+    
+    /**
+     * Adds a row of gray and alpha or truecolor pixels to the grid.
+     * Only the high byte of 16 bit samples is used.
+     *
+     * @param grid the grid
+     * @param line the unfiltered scanline
+     * @param channels the channels per pixel, 2 to 4
+     * @param sampleBytes the bytes per sample, 1 or 2
+     * @throws MazeFormatException if a second start or exit is found
+     */
+    private static void addColorRow(MazeGrid grid, byte[] line, int channels, int sampleBytes)
+            throws MazeFormatException {
+        int width = grid.getWidth();
+        int pixelBytes = channels * sampleBytes;
+        for (int x = 0, i = 1; x < width; x++, i += pixelBytes) {
+            int r = line[i] & 0xFF;
+            int g = channels >= 3 ? line[i + sampleBytes] & 0xFF : r;
+            int b = channels >= 3 ? line[i + 2 * sampleBytes] & 0xFF : r;
+            int a = channels % 2 == 0 ? line[i + (channels - 1) * sampleBytes] & 0xFF : 255;
+            addCell(grid, x, classify(r, g, b, a));
+        }
+    }
+    
+    /**
+     * Adds a cell of the current row to the grid.
+     *
+     * @param grid the grid
+     * @param x the column
+     * @param type the pixel class
+     * @throws MazeFormatException if a second start or exit is found
+     */
+    private static void addCell(MazeGrid grid, int x, byte type) throws MazeFormatException {
+        switch (type) {
+            case OPEN -> grid.open(x);
+            case START -> grid.markStart(x);
+            case EXIT -> grid.markExit(x);
+            default -> {
+            }
+        }
+    }
+    
+    /**
+     * Reads the data of one chunk at a time and checks its CRC.
+     * While inside an image data chunk, reading continues into the following
+     * image data chunks, so the compressed stream can be inflated across them.
+     */
+    private static final class ChunkStream extends InputStream {
+        // Largest chunk read into memory, the palette and its transparency are far smaller
+        private static final int MAX_LOADED_CHUNK = 4096;
+        
+        private final DataInputStream in;
+        private final CRC32 crc = new CRC32();
+        private final byte[] skipBuffer = new byte[4096];
+        
+        // The current chunk
+        private int type;
+        private int remaining;
+        
+        /**
+         * Creates a chunk stream.
+         *
+         * @param in the file contents after the signature
+         */
+        ChunkStream(DataInputStream in) {
+            this.in = in;
+        }
+        
+        /**
+         * Starts reading the next chunk. The previous one must be finished.
+         *
+         * @return the chunk type
+         * @throws IOException if reading fails
+         */
+        int next() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new MazeFormatException("Corrupt PNG chunk length");
+            }
+            type = in.readInt();
+            crc.reset();
+            crc.update(type >>> 24);
+            crc.update(type >>> 16);
+            crc.update(type >>> 8);
+            crc.update(type);
+            remaining = length;
+            return type;
+        }
+        
+        /**
+         * Reads the rest of a small chunk.
+         *
+         * @return the chunk data
+         * @throws IOException if reading fails or the chunk is too large
+         */
+        byte[] readFully() throws IOException {
+            if (remaining > MAX_LOADED_CHUNK) {
+                throw new MazeFormatException("PNG chunk is too large");
+            }
+            byte[] data = new byte[remaining];
+            in.readFully(data);
+            crc.update(data);
+            remaining = 0;
+            return data;
+        }
+        
+        /**
+         * Skips the rest of the chunk and checks its CRC.
+         *
+         * @throws IOException if reading fails or the chunk is corrupt
+         */
+        void finish() throws IOException {
+            while (remaining > 0) {
+                int skipped = Math.min(remaining, skipBuffer.length);
+                in.readFully(skipBuffer, 0, skipped);
+                crc.update(skipBuffer, 0, skipped);
+                remaining -= skipped;
+            }
+            if (in.readInt() != (int) crc.getValue()) {
+                throw new MazeFormatException("Corrupt PNG chunk " + typeName());
+            }
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (remaining == 0) {
+                if (type != IDAT) {
+                    return -1;
+                }
+                finish();
+                if (next() != IDAT) {
+                    return -1;
+                }
+            }
+            
+            int read = in.read(buffer, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("PNG ends inside chunk " + typeName());
+            }
+            crc.update(buffer, offset, read);
+            remaining -= read;
+            return read;
+        }
+        
+        /**
+         * Gets the name of the current chunk type.
+         *
+         * @return the four letter name
+         */
+        private String typeName() {
+            return new String(new char[]{
+                    (char) (type >>> 24), (char) (type >>> 16 & 0xFF), (char) (type >>> 8 & 0xFF), (char) (type & 0xFF)
+            });
+        }
+    }
+}
\ No newline at end of file
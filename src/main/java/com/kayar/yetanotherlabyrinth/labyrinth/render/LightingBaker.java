@@ -0,0 +1,211 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Bakes ambient occlusion and light falloff for a labyrinth from its grid.
+ * Corners surrounded by walls get darker, and light spreads from the start and
+ * the exit along the corridors, so it never leaks through walls.
+ * The grid is split into row chunks that are baked in parallel.
+ */
+public class LightingBaker {
+    // Rows per chunk baked on one worker
+    private static final int CHUNK_ROWS = 16;
+    
+    // Brightness of an unoccluded corner without any light nearby
+    private static final float AMBIENT = 0.45f;
+    
+    // Darkening per wall cell touching a corner
+    private static final float OCCLUSION_PER_WALL = 0.12f;
+    
+    // Light sources: brightness at the source and walking distance in cells at which it halves
+    private static final float START_LIGHT = 0.35f;
+    private static final float EXIT_LIGHT = 0.55f;
+    private static final float HALF_DISTANCE = 4.0f;
+    
+    // Possible directions: right, down, left, up
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DZ = {0, 1, 0, -1};
+    
+    private LightingBaker() {
+    }
+    
+    /**
+     * Bakes the lighting of the ground storey of a generated labyrinth.
+     *
+     * @param labyrinth the labyrinth, already generated
+     * @return the baked lightmap
+     */
+    public static Lightmap bake(LabyrinthGenerator labyrinth) {
+        return bake(labyrinth, 0);
+    }
+    
+    /**
+     * Bakes the lighting of a storey of a generated labyrinth.
+     * The start lights the ground storey and the exit lights its own storey.
+     *
+     * @param labyrinth the labyrinth, already generated
+     * @param layer the storey
+     * @return the baked lightmap
+     */
+    public static Lightmap bake(LabyrinthGenerator labyrinth, int layer) {
+        long start = System.nanoTime();
+        
+        int width = labyrinth.getWidth();
+        int height = labyrinth.getHeight();
+        int chunks = (height + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        
+        // Copy the walls once, the parallel passes only read plain arrays
+        boolean[] open = new boolean[width * height];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int z = chunk * CHUNK_ROWS; z < Math.min(height, (chunk + 1) * CHUNK_ROWS); z++) {
+                for (int x = 0; x < width; x++) {
+                    open[z * width + x] = !labyrinth.isWall(x, z, layer);
+                }
+            }
+        });
+        
+        // Walking distances from both light sources, if they are on this storey
+        int startX = layer == 0 ? LabyrinthGenerator.toCell(labyrinth.getStartX()) : -1;
+        int startZ = LabyrinthGenerator.toCell(labyrinth.getStartZ());
+        int exitX = layer == labyrinth.getExitLayer() ? LabyrinthGenerator.toCell(labyrinth.getExitX()) : -1;
+        int exitZ = LabyrinthGenerator.toCell(labyrinth.getExitZ());
+        int[][] distances = IntStream.range(0, 2).parallel()
+                .mapToObj(i -> i == 0
+                        ? distanceField(open, width, height, startX, startZ)
+                        : distanceField(open, width, height, exitX, exitZ))
+                .toArray(int[][]::new);
+        int[] startDistance = distances[0];
+        int[] exitDistance = distances[1];
+        
+        // Light per open cell
+        float[] cellLight = new float[width * height];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int z = chunk * CHUNK_ROWS; z < Math.min(height, (chunk + 1) * CHUNK_ROWS); z++) {
+                for (int x = 0; x < width; x++) {
+                    int cell = z * width + x;
+                    if (open[cell]) {
+                        cellLight[cell] = Math.min(1f, AMBIENT
+                                + falloff(START_LIGHT, startDistance[cell])
+                                + falloff(EXIT_LIGHT, exitDistance[cell]));
+                    }
+                }
+            }
+        });
+        
+        // Walls show the light of the brightest corridor next to them
+        float[] wallLight = new float[width * height];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int z = chunk * CHUNK_ROWS; z < Math.min(height, (chunk + 1) * CHUNK_ROWS); z++) {
+                for (int x = 0; x < width; x++) {
+                    int cell = z * width + x;
+                    if (open[cell]) {
+                        wallLight[cell] = cellLight[cell];
+                        continue;
+                    }
+                    float brightest = AMBIENT;
+                    for (int dir = 0; dir < 4; dir++) {
+                        int nextX = x + DX[dir];
+                        int nextZ = z + DZ[dir];
+                        if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < height
+                                && open[nextZ * width + nextX]) {
+                            brightest = Math.max(brightest, cellLight[nextZ * width + nextX]);
+                        }
+                    }
+                    wallLight[cell] = brightest;
+                }
+            }
+        });
+        
+        // Corners average the light of their open cells and lose light per touching wall
+        int vertexWidth = width + 1;
+        int vertexHeight = height + 1;
+        int vertexChunks = (vertexHeight + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        float[] vertexLight = new float[vertexWidth * vertexHeight];
+        IntStream.range(0, vertexChunks).parallel().forEach(chunk -> {
+            for (int vz = chunk * CHUNK_ROWS; vz < Math.min(vertexHeight, (chunk + 1) * CHUNK_ROWS); vz++) {
+                for (int vx = 0; vx < vertexWidth; vx++) {
+                    int walls = 0;
+                    int openCells = 0;
+                    float light = 0;
+                    for (int z = vz - 1; z <= vz; z++) {
+                        for (int x = vx - 1; x <= vx; x++) {
+                            if (x >= 0 && x < width && z >= 0 && z < height && open[z * width + x]) {
+                                light += cellLight[z * width + x];
+                                openCells++;
+                            } else {
+                                walls++;
+                            }
+                        }
+                    }
+                    float average = openCells == 0 ? AMBIENT : light / openCells;
+                    vertexLight[vz * vertexWidth + vx] = Math.max(0f, average - walls * OCCLUSION_PER_WALL);
+                }
+            }
+        });
+        
+        return new Lightmap(width, height, vertexLight, wallLight, open, System.nanoTime() - start, chunks);
+    }
+    
+    /**
+     * Computes the walking distance of every open cell from a source cell.
+     *
+     * @param open the open cells
+     * @param width the grid width
+     * @param height the grid height
+     * @param sourceX the x-coordinate of the source cell, -1 for no source
+     * @param sourceZ the z-coordinate of the source cell
+     * @return the distance per cell, -1 for unreachable cells
+     */
+    private static int[] distanceField(boolean[] open, int width, int height, int sourceX, int sourceZ) {
+        int[] distance = new int[width * height];
+        Arrays.fill(distance, -1);
+        if (sourceX < 0) {
+            return distance;
+        }
+        
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        int source = sourceZ * width + sourceX;
+        distance[source] = 0;
+        queue[tail++] = source;
+        
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int z = cell / width;
+            for (int dir = 0; dir < 4; dir++) {
+                int nextX = x + DX[dir];
+                int nextZ = z + DZ[dir];
+                if (nextX >= 0 && nextX < width && nextZ >= 0 && nextZ < height) {
+                    int next = nextZ * width + nextX;
+                    if (open[next] && distance[next] < 0) {
+                        distance[next] = distance[cell] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        
+        return distance;
+    }
+    
+    /**
+     * Gets the contribution of a light source at a walking distance.
+     *
+     * @param intensity the brightness at the source
+     * @param distance the walking distance in cells, -1 if unreachable
+     * @return the added brightness
+     */
+    private static float falloff(float intensity, int distance) {
+        if (distance < 0) {
+            return 0;
+        }
+        float ratio = distance / HALF_DISTANCE;
+        return intensity / (1 + ratio * ratio);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Baked lighting of a labyrinth.
+ * Holds a brightness per grid vertex (cell corner) and per cell, in the range 0 to 1.
+ * Floor and ceiling meshes carry the vertex brightness as texture coordinates into
+ * a grey ramp texture, so JavaFX interpolates it across each cell like a vertex colour.
+ */
+public class Lightmap {
+    // Number of brightness steps in the ramp texture and in wall materials
+    public static final int RAMP_SIZE = 256;
+    public static final int WALL_LEVELS = 16;
+    
+    // Grey ramp shared by all lit surfaces
+    private static Image rampTexture;
+    
+    // Grid size in cells
+    private final int width;
+    private final int height;
+    
+    // Brightness per vertex, (width + 1) * (height + 1) entries
+    private final float[] vertexLight;
+    
+    // Brightness per cell, width * height entries, walls take the brightest open neighbor
+    private final float[] cellLight;
+    
+    // Cells that get a floor and ceiling tile
+    private final boolean[] open;
+    
+    // Time spent baking
+    private final long bakeNanos;
+    private final int chunks;
+    
+    /**
+     * Creates a lightmap from baked data.
+     *
+     * @param width the grid width in cells
+     * @param height the grid height in cells
+     * @param vertexLight the brightness per vertex
+     * @param cellLight the brightness per cell
+     * @param open the open cells
+     * @param bakeNanos the time spent baking
+     * @param chunks the number of chunks baked in parallel
+     */
+    Lightmap(int width, int height, float[] vertexLight, float[] cellLight, boolean[] open,
+             long bakeNanos, int chunks) {
+        this.width = width;
+        this.height = height;
+        this.vertexLight = vertexLight;
+        this.cellLight = cellLight;
+        this.open = open;
+        this.bakeNanos = bakeNanos;
+        this.chunks = chunks;
+    }
+    
+    /**
+     * Gets the brightness of a grid vertex.
+     * Vertex (x, z) is the corner shared by cells (x - 1, z - 1) to (x, z).
+     *
+     * @param x the vertex x index
+     * @param z the vertex z index
+     * @return the brightness between 0 and 1
+     */
+    public float getVertexLight(int x, int z) {
+        return vertexLight[z * (width + 1) + x];
+    }
+    
+    /**
+     * Gets the brightness of a cell.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the brightness between 0 and 1
+     */
+    public float getCellLight(int x, int z) {
+        return cellLight[z * width + x];
+    }
+    
+    /**
+     * Gets the quantized brightness of a wall cell, used to share wall materials.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the level between 0 and WALL_LEVELS - 1
+     */
+    public int getWallLevel(int x, int z) {
+        return Math.min(WALL_LEVELS - 1, (int) (getCellLight(x, z) * WALL_LEVELS));
+    }
+    
+    /**
+     * Gets the brightness represented by a wall level.
+     *
+     * @param level the wall level
+     * @return the brightness between 0 and 1
+     */
+    public static double getWallBrightness(int level) {
+        return (level + 0.5) / WALL_LEVELS;
+    }
+    
+    /**
+     * Gets the time spent baking this lightmap.
+     *
+     * @return the bake time in nanoseconds
+     */
+    public long getBakeNanos() {
+        return bakeNanos;
+    }
+    
+    /**
+     * Gets the number of chunks the bake was split into.
+     *
+     * @return the chunk count
+     */
+    public int getChunks() {
+        return chunks;
+    }
+    
+    /**
+     * Creates a flat mesh covering the open cells, lit by the baked vertex brightness.
+     * The mesh must be textured with {@link #getRampTexture()}.
+     *
+     * @param cellSize the size of a cell in the 3D world
+     * @param y the height of the surface relative to its entity
+     * @return the surface mesh
+     */
+    public TriangleMesh createSurfaceMesh(double cellSize, float y) {
+        return createSurfaceMesh(cellSize, y, null);
+    }
+    
+    /**
+     * Creates a flat mesh covering the open cells except the holes, lit by the baked vertex brightness.
+     * The mesh must be textured with {@link #getRampTexture()}.
+     *
+     * @param cellSize the size of a cell in the 3D world
+     * @param y the height of the surface relative to its entity
+     * @param holes the cells to leave out, may be null
+     * @return the surface mesh
+     */
+    public TriangleMesh createSurfaceMesh(double cellSize, float y, boolean[] holes) {
+        TriangleMesh mesh = new TriangleMesh();
+        
+        // One texture coordinate per ramp step
+        float[] texCoords = new float[RAMP_SIZE * 2];
+        for (int i = 0; i < RAMP_SIZE; i++) {
+            texCoords[i * 2] = (i + 0.5f) / RAMP_SIZE;
+            texCoords[i * 2 + 1] = 0.5f;
+        }
+        mesh.getTexCoords().setAll(texCoords);
+        
+        // One point per grid vertex, cells are centered on multiples of the cell size
+        int vertexWidth = width + 1;
+        float[] points = new float[vertexWidth * (height + 1) * 3];
+        for (int z = 0; z <= height; z++) {
+            for (int x = 0; x <= width; x++) {
+                int index = (z * vertexWidth + x) * 3;
+                points[index] = (float) ((x - 0.5) * cellSize);
+                points[index + 1] = y;
+                points[index + 2] = (float) ((z - 0.5) * cellSize);
+            }
+        }
+        mesh.getPoints().setAll(points);
+        
+        // Two triangles per open cell
+        int openCells = 0;
+        for (int i = 0; i < open.length; i++) {
+            if (open[i] && (holes == null || !holes[i])) {
+                openCells++;
+            }
+        }
+        int[] faces = new int[openCells * 12];
+        int face = 0;
+        for (int z = 0; z < height; z++) {
+            for (int x = 0; x < width; x++) {
+                if (!open[z * width + x] || (holes != null && holes[z * width + x])) {
+                    continue;
+                }
+                int v00 = z * vertexWidth + x;
+                int v10 = v00 + 1;
+                int v01 = v00 + vertexWidth;
+                int v11 = v01 + 1;
+                face = putFace(faces, face, v00, v01, v11);
+                face = putFace(faces, face, v00, v11, v10);
+            }
+        }
+        mesh.getFaces().setAll(faces);
+        
+        return mesh;
+    }
+    
+    /**
+     * Writes a triangle whose texture coordinates encode the vertex brightness.
+     *
+     * @param faces the face array
+     * @param offset the write offset
+     * @param a the first vertex
+     * @param b the second vertex
+     * @param c the third vertex
+     * @return the next write offset
+     */
+    private int putFace(int[] faces, int offset, int a, int b, int c) {
+        faces[offset] = a;
+        faces[offset + 1] = rampIndex(a);
+        faces[offset + 2] = b;
+        faces[offset + 3] = rampIndex(b);
+        faces[offset + 4] = c;
+        faces[offset + 5] = rampIndex(c);
+        return offset + 6;
+    }
+    
+    /**
+     * Gets the ramp texture coordinate index for a vertex.
+     *
+     * @param vertex the vertex index
+     * @return the texture coordinate index
+     */
+    private int rampIndex(int vertex) {
+        return Math.min(RAMP_SIZE - 1, (int) (vertexLight[vertex] * RAMP_SIZE));
+    }
+    
+    /**
+     * Gets the grey ramp texture used by lit surfaces, from black on the left to white on the right.
+     * Must be called on the JavaFX thread.
+     *
+     * @return the ramp texture
+     */
+    public static Image getRampTexture() {
+        if (rampTexture == null) {
+            WritableImage ramp = new WritableImage(RAMP_SIZE, 1);
+            PixelWriter writer = ramp.getPixelWriter();
+            for (int i = 0; i < RAMP_SIZE; i++) {
+                writer.setColor(i, 0, Color.gray((i + 0.5) / RAMP_SIZE));
+            }
+            rampTexture = ramp;
+        }
+        return rampTexture;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Arrays;
+
+/**
+ * Collects the visible wall faces that share one material into a single mesh.
+ * Only faces towards open cells are added, so the mesh holds a fraction of
+ * the triangles that one box per wall cell would.
+ */
+public class MergedWallMesh {
+    // Texture corners: top left, top right, bottom left, bottom right
+    private static final float[] TEX_COORDS = {0, 0, 1, 0, 0, 1, 1, 1};
+    
+    private float[] points = new float[64 * 12];
+    private int[] faces = new int[64 * 12];
+    private int pointCount = 0;
+    private int faceCount = 0;
+    
+    /**
+     * Adds a vertical wall face between two corners.
+     * The front of the face points along (z1 - z0, x0 - x1), so back faces can be culled.
+     *
+     * @param x0 the x-coordinate of the first corner
+     * @param z0 the z-coordinate of the first corner
+     * @param x1 the x-coordinate of the second corner
+     * @param z1 the z-coordinate of the second corner
+     * @param top the y-coordinate of the top edge
+     * @param bottom the y-coordinate of the bottom edge
+     */
+    public void addFace(float x0, float z0, float x1, float z1, float top, float bottom) {
+        if ((pointCount + 4) * 3 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        if ((faceCount + 2) * 6 > faces.length) {
+            faces = Arrays.copyOf(faces, faces.length * 2);
+        }
+        
+        int first = pointCount;
+        putPoint(x0, top, z0);
+        putPoint(x1, top, z1);
+        putPoint(x0, bottom, z0);
+        putPoint(x1, bottom, z1);
+        
+        putFace(first, 0, first + 2, 2, first + 1, 1);
+        putFace(first + 1, 1, first + 2, 2, first + 3, 3);
+    }
+    
+    /**
+     * Checks whether any face was added.
+     *
+     * @return true if the mesh is empty
+     */
+    public boolean isEmpty() {
+        return faceCount == 0;
+    }
+    
+    /**
+     * Creates the mesh from the added faces.
+     *
+     * @return the triangle mesh
+     */
+    public TriangleMesh toMesh() {
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getTexCoords().setAll(TEX_COORDS);
+        mesh.getPoints().setAll(points, 0, pointCount * 3);
+        mesh.getFaces().setAll(faces, 0, faceCount * 6);
+        return mesh;
+    }
+    
+    private void putPoint(float x, float y, float z) {
+        int offset = pointCount++ * 3;
+        points[offset] = x;
+        points[offset + 1] = y;
+        points[offset + 2] = z;
+    }
+    
+    private void putFace(int p0, int t0, int p1, int t1, int p2, int t2) {
+        int offset = faceCount++ * 6;
+        faces[offset] = p0;
+        faces[offset + 1] = t0;
+        faces[offset + 2] = p1;
+        faces[offset + 3] = t1;
+        faces[offset + 4] = p2;
+        faces[offset + 5] = t2;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import java.util.Arrays;
+
+/**
+ * Picks the quality level from measured frame times.
+ * Frame times are collected in a rolling window; when the average of a full window
+ * is over budget the quality drops one level, and after enough windows within budget
+ * it tries one level higher again.
+ * Upgrades need an average well below budget, every change clears the window, and an upgrade
+ * that has to be taken back doubles the time until the next upgrade, so the quality does not oscillate.
+ * Call {@link #reset()} after one-off work such as loading a level, so its frames are not held against the level.
+ * A pinned governor keeps its level no matter what.
+ */
+public class QualityGovernor {
+    // Frames per decision
+    private static final int WINDOW_SIZE = 120;
+    
+    // Over budget above this share of the target, with headroom for a higher level below the other
+    private static final double DOWNGRADE_RATIO = 1.1;
+    private static final double UPGRADE_RATIO = 0.8;
+    
+    // Frames ignored after a reset: the current one and the next, whose time includes the work done
+    private static final int SETTLE_FRAMES = 2;
+    
+    // Windows within budget before trying a higher level, and the maximum after backoffs
+    private static final int UPGRADE_WINDOWS = 3;
+    private static final int MAX_UPGRADE_WINDOWS = 48;
+    
+    private final double targetFrameTime;
+    private final boolean pinned;
+    private QualityLevel level;
+    
+    // Rolling window of frame times in seconds
+    private final double[] window = new double[WINDOW_SIZE];
+    private int windowCount = 0;
+    private int windowIndex = 0;
+    private double windowSum = 0;
+    private int settleFrames = 0;
+    
+    // Hysteresis state
+    private int goodWindows = 0;
+    private int upgradeWindows = UPGRADE_WINDOWS;
+    private boolean probing = false;
+    
+    /**
+     * Creates a governor.
+     *
+     * @param level the initial level
+     * @param pinned true to keep the level fixed
+     * @param targetFrameTime the frame time budget in seconds
+     */
+    public QualityGovernor(QualityLevel level, boolean pinned, double targetFrameTime) {
+        this.level = level;
+        this.pinned = pinned;
+        this.targetFrameTime = targetFrameTime;
+    }
+    
+    /**
+     * Creates a governor from the -Dlabyrinth.quality property.
+     * AUTO (the default) starts at the highest level and adapts, a level name pins that level.
+     *
+     * @param targetFrameTime the frame time budget in seconds
+     * @return the governor
+     */
+    public static QualityGovernor fromSystemProperty(double targetFrameTime) {
+        String preset = System.getProperty("labyrinth.quality", "AUTO").toUpperCase();
+        if (preset.equals("AUTO")) {
+            return new QualityGovernor(QualityLevel.ULTRA, false, targetFrameTime);
+        }
+        try {
+            return new QualityGovernor(QualityLevel.valueOf(preset), true, targetFrameTime);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown quality preset " + preset + ", using AUTO");
+            return new QualityGovernor(QualityLevel.ULTRA, false, targetFrameTime);
+        }
+    }
+    
+    /**
+     * Records the time of a frame.
+     *
+     * @param frameTime the frame time in seconds
+     * @return true if the quality level changed
+     */
+    public boolean onFrame(double frameTime) {
+        if (pinned) {
+            return false;
+        }
+        if (settleFrames > 0) {
+            settleFrames--;
+            return false;
+        }
+        
+        windowSum += frameTime - window[windowIndex];
+        window[windowIndex] = frameTime;
+        windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+        if (++windowCount < WINDOW_SIZE) {
+            return false;
+        }
+        
+        // Decide once per full window
+        double average = windowSum / WINDOW_SIZE;
+        clearWindow();
+        
+        if (average > targetFrameTime * DOWNGRADE_RATIO) {
+            // An upgrade that did not hold makes the next one wait longer
+            if (probing) {
+                upgradeWindows = Math.min(MAX_UPGRADE_WINDOWS, upgradeWindows * 2);
+            }
+            probing = false;
+            goodWindows = 0;
+            return setLevel(level.lower());
+        }
+        
+        if (average < targetFrameTime * UPGRADE_RATIO) {
+            if (probing) {
+                // The last upgrade held up
+                probing = false;
+                upgradeWindows = UPGRADE_WINDOWS;
+            }
+            if (++goodWindows >= upgradeWindows && level != QualityLevel.ULTRA) {
+                goodWindows = 0;
+                probing = true;
+                return setLevel(level.higher());
+            }
+        } else {
+            goodWindows = 0;
+        }
+        return false;
+    }
+    
+    /**
+     * Starts a new window after one-off work that stalls the frame, such as loading a level
+     * or applying a new level, so the stall does not count towards the next decision.
+     */
+    public void reset() {
+        clearWindow();
+        settleFrames = SETTLE_FRAMES;
+    }
+    
+    /**
+     * Changes the level.
+     *
+     * @param next the new level
+     * @return true if the level changed
+     */
+    private boolean setLevel(QualityLevel next) {
+        if (next == level) {
+            return false;
+        }
+        level = next;
+        return true;
+    }
+    
+    /**
+     * Starts a new window, frames measured at the old level do not count.
+     */
+    private void clearWindow() {
+        Arrays.fill(window, 0);
+        windowCount = 0;
+        windowIndex = 0;
+        windowSum = 0;
+    }
+    
+    /**
+     * Gets the current quality level.
+     *
+     * @return the quality level
+     */
+    public QualityLevel getLevel() {
+        return level;
+    }
+    
+    /**
+     * Checks whether the level is pinned.
+     *
+     * @return true if the level never changes
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+}
\ No newline at end of file
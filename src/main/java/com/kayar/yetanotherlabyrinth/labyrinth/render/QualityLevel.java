@@ -0,0 +1,84 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+/**
+ * Visual quality presets, ordered from cheapest to most expensive.
+ */
+public enum QualityLevel {
+    LOW(30, 0.25, 6, false),
+    MEDIUM(50, 0.5, 10, true),
+    HIGH(80, 1.0, 16, true),
+    ULTRA(1000, 1.0, 0, true);
+    
+    // Distance at which the camera stops drawing
+    private final double viewDistance;
+    
+    // Wall texture size relative to the original files
+    private final double textureScale;
+    
+    // Walls farther away than this many cells are hidden, 0 shows all walls
+    private final int cullRadius;
+    
+    // Whether HUD overlays like the minimap are shown
+    private final boolean overlays;
+    
+    QualityLevel(double viewDistance, double textureScale, int cullRadius, boolean overlays) {
+        this.viewDistance = viewDistance;
+        this.textureScale = textureScale;
+        this.cullRadius = cullRadius;
+        this.overlays = overlays;
+    }
+    
+    /**
+     * Gets the distance at which the camera stops drawing.
+     *
+     * @return the far clip distance
+     */
+    public double getViewDistance() {
+        return viewDistance;
+    }
+    
+    /**
+     * Gets the wall texture size relative to the original files.
+     *
+     * @return the texture scale
+     */
+    public double getTextureScale() {
+        return textureScale;
+    }
+    
+    /**
+     * Gets the distance in cells beyond which walls are hidden.
+     *
+     * @return the cull radius, or 0 to show all walls
+     */
+    public int getCullRadius() {
+        return cullRadius;
+    }
+    
+    /**
+     * Checks whether HUD overlays are shown.
+     *
+     * @return true if overlays are shown
+     */
+    public boolean hasOverlays() {
+        return overlays;
+    }
+    
+    /**
+     * Gets the next cheaper level.
+     *
+     * @return the lower level, or this level if it is the lowest
+     */
+    public QualityLevel lower() {
+        return this == LOW ? this : values()[ordinal() - 1];
+    }
+    
+    /**
+     * Gets the next more expensive level.
+     *
+     * @return the higher level, or this level if it is the highest
+     */
+    public QualityLevel higher() {
+        return this == ULTRA ? this : values()[ordinal() + 1];
+    }
+}
\ No newline at end of file
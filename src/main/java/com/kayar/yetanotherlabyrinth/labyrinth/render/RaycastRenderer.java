@@ -0,0 +1,445 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.stream.IntStream;
+
+/**
+ * Draws the labyrinth from its grid with a DDA raycaster into a single image,
+ * a much cheaper alternative to the 3D scene for weak hardware.
+ * Every screen column casts one ray through the grid; the wall slice it hits is
+ * sampled from the wall textures, and the floor and ceiling below and above it are
+ * cast per pixel so the baked lighting and the exit show up as in the 3D scene.
+ * Columns are rendered in parallel bands, each writing only its own pixels.
+ * Creatures are drawn as flat sprites behind a per-column depth buffer.
+ * Must only be used on the JavaFX thread.
+ */
+public class RaycastRenderer {
+    // Wall texture files, same as the 3D walls
+    private static final String[] WALL_TEXTURES = {"wall-1.png", "wall-2.png"};
+    
+    // Columns per parallel band
+    private static final int BAND_COLUMNS = 16;
+    
+    // Vertical field of view, in degrees
+    private static final double FIELD_OF_VIEW = 60;
+    
+    // Height of the eye above the floor and below the ceiling, in world units
+    private static final double EYE_HEIGHT = 1.5;
+    
+    // Creature sprite size in world units, standing on the floor
+    private static final double CREATURE_WIDTH = 0.5;
+    private static final double CREATURE_HEIGHT = 0.7;
+    
+    // Colors, opaque ARGB
+    private static final int FLOOR_COLOR = 0xFFB0B0B0;
+    private static final int CEILING_COLOR = 0xFF909090;
+    private static final int EXIT_COLOR = 0xFF00A000;
+    private static final int STAIRS_COLOR = 0xFFFFA500;
+    private static final int CREATURE_COLOR = 0xFF8B0000;
+    private static final int FOG_COLOR = 0xFF000000;
+    
+    // Shade of the walls facing along z, so corners stay visible
+    private static final int SIDE_SHADE = 192;
+    
+    // Cell kinds
+    private static final byte OPEN = 0;
+    private static final byte WALL = 1;
+    private static final byte EXIT = 2;
+    private static final byte STAIRS = 3;
+    
+    // Output
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final WritableImage image;
+    private final ImageView view;
+    
+    // Per frame, per column and per row state
+    private final double[] depth;
+    private final double[] rowDistance;
+    private final double planeDistance;
+    
+    // Wall textures, stored column by column so a wall slice reads sequential memory
+    private final int[][] textures;
+    private final int[] textureWidth;
+    private final int[] textureHeight;
+    
+    // Current labyrinth, copied into flat arrays
+    private LabyrinthGenerator labyrinth;
+    private int gridWidth;
+    private int gridHeight;
+    private byte[] cells = new byte[0];
+    private byte[] cellTexture = new byte[0];
+    private short[] cellShade = new short[0];
+    
+    // Camera of the frame being rendered
+    private double eyeX;
+    private double eyeZ;
+    private double forwardX;
+    private double forwardZ;
+    private double rightX;
+    private double rightZ;
+    private double viewDistance;
+    
+    /**
+     * Creates a renderer drawing into an image of the specified size.
+     *
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     */
+    public RaycastRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        this.image = new WritableImage(width, height);
+        this.view = new ImageView(image);
+        this.depth = new double[width];
+        this.planeDistance = (height / 2.0) / Math.tan(Math.toRadians(FIELD_OF_VIEW / 2));
+        
+        // Distance of the floor or ceiling seen at every row, in world units
+        this.rowDistance = new double[height];
+        for (int y = 0; y < height; y++) {
+            double offset = Math.abs(y + 0.5 - height / 2.0);
+            rowDistance[y] = EYE_HEIGHT * planeDistance / offset;
+        }
+        
+        // Preload the texture pixels once
+        textures = new int[WALL_TEXTURES.length][];
+        textureWidth = new int[WALL_TEXTURES.length];
+        textureHeight = new int[WALL_TEXTURES.length];
+        for (int i = 0; i < WALL_TEXTURES.length; i++) {
+            loadTexture(i, WallTextures.get(WALL_TEXTURES[i], 1));
+        }
+    }
+    
+    /**
+     * Gets the view showing the rendered image.
+     *
+     * @return the image view
+     */
+    public ImageView getView() {
+        return view;
+    }
+    
+    /**
+     * Sets the labyrinth and the storey to draw. The lighting must already be baked.
+     * Stairwells show up as colored floor cells.
+     *
+     * @param labyrinth the labyrinth
+     * @param layer the storey the player is on
+     */
+    public void setLabyrinth(LabyrinthGenerator labyrinth, int layer) {
+        this.labyrinth = labyrinth;
+        this.gridWidth = labyrinth.getWidth();
+        this.gridHeight = labyrinth.getHeight();
+        
+        int size = gridWidth * gridHeight;
+        cells = new byte[size];
+        cellTexture = new byte[size];
+        cellShade = new short[size];
+        
+        Lightmap lightmap = labyrinth.getLightmap(layer);
+        for (int z = 0; z < gridHeight; z++) {
+            for (int x = 0; x < gridWidth; x++) {
+                int index = z * gridWidth + x;
+                if (labyrinth.isWall(x, z, layer)) {
+                    cells[index] = WALL;
+                    cellShade[index] = (short) (Lightmap.getWallBrightness(lightmap.getWallLevel(x, z)) * 256);
+                    
+                    // Same texture for a wall cell on every frame
+                    int hash = x * 73856093 ^ z * 19349663;
+                    cellTexture[index] = (byte) Math.floorMod(hash, WALL_TEXTURES.length);
+                } else {
+                    if (labyrinth.isExit(x, z, layer)) {
+                        cells[index] = EXIT;
+                    } else {
+                        cells[index] = labyrinth.getStairs(x, z, layer) != 0 ? STAIRS : OPEN;
+                    }
+                    cellShade[index] = (short) (lightmap.getCellLight(x, z) * 256);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Renders a frame.
+     *
+     * @param x the x-coordinate of the camera in the 3D world
+     * @param z the z-coordinate of the camera in the 3D world
+     * @param yaw the horizontal look direction in degrees
+     * @param viewDistance the distance in world units beyond which everything fades to black
+     * @param creatures the creature positions as x, z pairs, may be null
+     */
+    public void render(double x, double z, double yaw, double viewDistance, float[] creatures) {
+        if (labyrinth == null) {
+            return;
+        }
+        
+        // Grid units, cell (x, z) covers [x, x + 1) x [z, z + 1)
+        double cellSize = LabyrinthGenerator.getCellSize();
+        eyeX = x / cellSize + 0.5;
+        eyeZ = z / cellSize + 0.5;
+        
+        // Forward moves along (sin(yaw), cos(yaw)), right along (cos(yaw), -sin(yaw))
+        double radians = Math.toRadians(yaw);
+        forwardX = Math.sin(radians);
+        forwardZ = Math.cos(radians);
+        rightX = Math.cos(radians);
+        rightZ = -Math.sin(radians);
+        this.viewDistance = viewDistance;
+        
+        int bands = (width + BAND_COLUMNS - 1) / BAND_COLUMNS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int end = Math.min(width, (band + 1) * BAND_COLUMNS);
+            for (int column = band * BAND_COLUMNS; column < end; column++) {
+                renderColumn(column);
+            }
+        });
+        
+        if (creatures != null) {
+            for (int i = 0; i + 1 < creatures.length; i += 2) {
+                renderCreature(creatures[i], creatures[i + 1]);
+            }
+        }
+        
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+    }
+    
+    /**
+     * Casts the ray of a screen column and draws its wall slice, floor and ceiling.
+     *
+     * @param column the screen column
+     */
+    private void renderColumn(int column) {
+        // Ray through the column on the projection plane, one unit forward
+        double offset = (column + 0.5 - width / 2.0) / planeDistance;
+        double rayX = forwardX + rightX * offset;
+        double rayZ = forwardZ + rightZ * offset;
+        
+        // DDA through the grid
+        int cellX = (int) Math.floor(eyeX);
+        int cellZ = (int) Math.floor(eyeZ);
+        double deltaX = rayX == 0 ? Double.MAX_VALUE : Math.abs(1 / rayX);
+        double deltaZ = rayZ == 0 ? Double.MAX_VALUE : Math.abs(1 / rayZ);
+        int stepX = rayX < 0 ? -1 : 1;
+        int stepZ = rayZ < 0 ? -1 : 1;
+        double sideX = (rayX < 0 ? eyeX - cellX : cellX + 1 - eyeX) * deltaX;
+        double sideZ = (rayZ < 0 ? eyeZ - cellZ : cellZ + 1 - eyeZ) * deltaZ;
+        
+        double maxDistance = viewDistance / LabyrinthGenerator.getCellSize();
+        double distance = maxDistance;
+        boolean alongZ = false;
+        boolean hit = false;
+        while (!hit) {
+            if (sideX < sideZ) {
+                distance = sideX;
+                sideX += deltaX;
+                cellX += stepX;
+                alongZ = false;
+            } else {
+                distance = sideZ;
+                sideZ += deltaZ;
+                cellZ += stepZ;
+                alongZ = true;
+            }
+            if (distance >= maxDistance) {
+                distance = maxDistance;
+                break;
+            }
+            hit = cellX < 0 || cellX >= gridWidth || cellZ < 0 || cellZ >= gridHeight
+                    || cells[cellZ * gridWidth + cellX] == WALL;
+        }
+        
+        // Perpendicular distance in world units, free of fish-eye distortion
+        double worldDistance = Math.max(1e-4, distance * LabyrinthGenerator.getCellSize());
+        depth[column] = worldDistance;
+        
+        int halfWall = (int) Math.min(height, EYE_HEIGHT * planeDistance / worldDistance);
+        int wallTop = Math.max(0, height / 2 - halfWall);
+        int wallBottom = Math.min(height, height / 2 + halfWall);
+        
+        if (hit) {
+            drawWallSlice(column, cellX, cellZ, rayX, rayZ, distance, alongZ, halfWall, wallTop, wallBottom);
+        } else {
+            for (int y = wallTop; y < wallBottom; y++) {
+                pixels[y * width + column] = FOG_COLOR;
+            }
+        }
+        
+        // Floor below and ceiling above the wall, mirrored around the horizon
+        for (int y = wallBottom; y < height; y++) {
+            double rowCells = rowDistance[y] / LabyrinthGenerator.getCellSize();
+            int floorX = (int) Math.floor(eyeX + rayX * rowCells);
+            int floorZ = (int) Math.floor(eyeZ + rayZ * rowCells);
+            
+            int floorColor = FLOOR_COLOR;
+            int ceilingColor = CEILING_COLOR;
+            int shade = 256;
+            if (floorX >= 0 && floorX < gridWidth && floorZ >= 0 && floorZ < gridHeight) {
+                int index = floorZ * gridWidth + floorX;
+                shade = cellShade[index];
+                if (cells[index] == EXIT) {
+                    floorColor = EXIT_COLOR;
+                } else if (cells[index] == STAIRS) {
+                    floorColor = STAIRS_COLOR;
+                }
+            }
+            shade = fog(shade, rowDistance[y]);
+            
+            pixels[y * width + column] = applyShade(floorColor, shade);
+            int mirrored = height - 1 - y;
+            if (mirrored < wallTop) {
+                pixels[mirrored * width + column] = applyShade(ceilingColor, shade);
+            }
+        }
+    }
+    
+    /**
+     * Draws the textured wall slice hit by a column's ray.
+     *
+     * @param column the screen column
+     * @param cellX the x-coordinate of the hit wall cell
+     * @param cellZ the z-coordinate of the hit wall cell
+     * @param rayX the x component of the ray
+     * @param rayZ the z component of the ray
+     * @param distance the perpendicular distance in grid units
+     * @param alongZ true if the ray crossed a horizontal grid line
+     * @param halfWall half of the unclipped wall height in pixels
+     * @param wallTop the first visible row of the wall
+     * @param wallBottom the row after the last visible row of the wall
+     */
+    private void drawWallSlice(int column, int cellX, int cellZ, double rayX, double rayZ, double distance,
+                               boolean alongZ, int halfWall, int wallTop, int wallBottom) {
+        int shade = 256;
+        int texture = 0;
+        if (cellX >= 0 && cellX < gridWidth && cellZ >= 0 && cellZ < gridHeight) {
+            int index = cellZ * gridWidth + cellX;
+            shade = cellShade[index];
+            texture = cellTexture[index];
+        }
+        if (alongZ) {
+            shade = shade * SIDE_SHADE >> 8;
+        }
+        shade = fog(shade, distance * LabyrinthGenerator.getCellSize());
+        
+        int[] texels = textures[texture];
+        if (texels == null) {
+            int color = applyShade(FLOOR_COLOR, shade / 2);
+            for (int y = wallTop; y < wallBottom; y++) {
+                pixels[y * width + column] = color;
+            }
+            return;
+        }
+        
+        // Where along the wall face the ray hit
+        double hitAlong = alongZ ? eyeX + rayX * distance : eyeZ + rayZ * distance;
+        hitAlong -= Math.floor(hitAlong);
+        int texWidth = textureWidth[texture];
+        int texHeight = textureHeight[texture];
+        int texX = Math.min(texWidth - 1, (int) (hitAlong * texWidth));
+        int texColumn = texX * texHeight;
+        
+        // Step through the texture column in fixed point
+        long step = ((long) texHeight << 16) / Math.max(1, 2 * halfWall);
+        long texY = (wallTop - (height / 2 - halfWall)) * step;
+        for (int y = wallTop; y < wallBottom; y++) {
+            int texel = texels[texColumn + Math.min(texHeight - 1, (int) (texY >> 16))];
+            pixels[y * width + column] = applyShade(texel, shade);
+            texY += step;
+        }
+    }
+    
+    /**
+     * Draws a creature as a flat sprite facing the camera, hidden behind closer walls.
+     *
+     * @param worldX the x-coordinate of the creature in the 3D world
+     * @param worldZ the z-coordinate of the creature in the 3D world
+     */
+    private void renderCreature(float worldX, float worldZ) {
+        double cellSize = LabyrinthGenerator.getCellSize();
+        double dx = worldX - (eyeX - 0.5) * cellSize;
+        double dz = worldZ - (eyeZ - 0.5) * cellSize;
+        
+        // Camera space, behind the camera means invisible
+        double forward = dx * forwardX + dz * forwardZ;
+        if (forward < 0.1 || forward > viewDistance) {
+            return;
+        }
+        double right = dx * rightX + dz * rightZ;
+        
+        double scale = planeDistance / forward;
+        int centerX = (int) (width / 2.0 + right * scale);
+        int halfWidth = Math.max(1, (int) (CREATURE_WIDTH / 2 * scale));
+        int bottom = Math.min(height, (int) (height / 2.0 + EYE_HEIGHT * scale));
+        int top = Math.max(0, (int) (height / 2.0 + (EYE_HEIGHT - CREATURE_HEIGHT) * scale));
+        int color = applyShade(CREATURE_COLOR, fog(256, forward));
+        
+        for (int column = Math.max(0, centerX - halfWidth); column < Math.min(width, centerX + halfWidth); column++) {
+            if (depth[column] <= forward) {
+                continue;
+            }
+            for (int y = top; y < bottom; y++) {
+                pixels[y * width + column] = color;
+            }
+        }
+    }
+    
+    /**
+     * Fades a shade towards black with distance.
+     *
+     * @param shade the shade between 0 and 256
+     * @param distance the distance in world units
+     * @return the faded shade
+     */
+    private int fog(int shade, double distance) {
+        double visibility = 1 - distance / viewDistance;
+        return visibility <= 0 ? 0 : (int) (shade * visibility);
+    }
+    
+    /**
+     * Multiplies the color channels of an opaque pixel.
+     *
+     * @param argb the pixel
+     * @param shade the factor between 0 and 256
+     * @return the shaded pixel
+     */
+    private static int applyShade(int argb, int shade) {
+        int r = ((argb >> 16) & 0xFF) * shade >> 8;
+        int g = ((argb >> 8) & 0xFF) * shade >> 8;
+        int b = (argb & 0xFF) * shade >> 8;
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+    
+    /**
+     * Copies the pixels of a texture, column by column.
+     *
+     * @param index the texture index
+     * @param texture the texture, or null if it could not be loaded
+     */
+    private void loadTexture(int index, Image texture) {
+        if (texture == null) {
+            return;
+        }
+        
+        int texWidth = (int) texture.getWidth();
+        int texHeight = (int) texture.getHeight();
+        int[] rows = new int[texWidth * texHeight];
+        texture.getPixelReader().getPixels(0, 0, texWidth, texHeight, PixelFormat.getIntArgbInstance(), rows, 0, texWidth);
+        
+        int[] columns = new int[rows.length];
+        for (int y = 0; y < texHeight; y++) {
+            for (int x = 0; x < texWidth; x++) {
+                columns[x * texHeight + y] = rows[y * texWidth + x] | 0xFF000000;
+            }
+        }
+        
+        textures[index] = columns;
+        textureWidth[index] = texWidth;
+        textureHeight[index] = texHeight;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Box geometry shared by all walls of one size: every wall view references the same mesh and
+ * one of a small set of materials instead of building a box and a material of its own.
+ * Each wall is still its own entity and mesh view, so the wall culler can hide it on its own;
+ * only the mesh and the material are saved per wall.
+ */
+public class SharedWallMesh {
+    // Box corners, the y axis pointing down
+    private static final float[] CORNERS = {
+            -1, -1, -1, 1, -1, -1, 1, 1, -1, -1, 1, -1,
+            -1, -1, 1, 1, -1, 1, 1, 1, 1, -1, 1, 1
+    };
+    
+    // Texture corners: top left, top right, bottom right, bottom left
+    private static final float[] TEX_COORDS = {0, 0, 1, 0, 1, 1, 0, 1};
+    
+    // Two triangles per side as point and texture corner pairs, wound to face outwards
+    private static final int[] FACES = {
+            0, 0, 2, 2, 1, 1, 2, 2, 0, 0, 3, 3,
+            1, 0, 6, 2, 5, 1, 6, 2, 1, 0, 2, 3,
+            5, 0, 7, 2, 4, 1, 7, 2, 5, 0, 6, 3,
+            4, 0, 3, 2, 0, 1, 3, 2, 4, 0, 7, 3,
+            3, 0, 6, 2, 2, 1, 6, 2, 3, 0, 7, 3,
+            4, 0, 1, 2, 5, 1, 1, 2, 4, 0, 0, 3
+    };
+    
+    // Every side is lit flat, sides facing apart never share a corner
+    private static final int[] SMOOTHING_GROUPS = {1, 1, 1, 1, 2, 2, 2, 2, 4, 4, 4, 4};
+    
+    // Geometry and materials shared by all walls
+    private final TriangleMesh mesh;
+    private final PhongMaterial[] materials;
+    
+    /**
+     * Creates the geometry of walls of one size.
+     *
+     * @param size the width and depth of a wall
+     * @param height the height of a wall
+     * @param materials the materials the walls can have
+     */
+    public SharedWallMesh(double size, double height, PhongMaterial[] materials) {
+        this.materials = materials;
+        
+        float[] points = new float[CORNERS.length];
+        for (int i = 0; i < points.length; i += 3) {
+            points[i] = (float) (CORNERS[i] * size / 2);
+            points[i + 1] = (float) (CORNERS[i + 1] * height / 2);
+            points[i + 2] = (float) (CORNERS[i + 2] * size / 2);
+        }
+        mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(TEX_COORDS);
+        mesh.getFaces().setAll(FACES);
+        mesh.getFaceSmoothingGroups().setAll(SMOOTHING_GROUPS);
+    }
+    
+    /**
+     * Creates the view of a wall, sharing the mesh and material with the other walls.
+     *
+     * @param material the index of the wall material
+     * @return the wall view, centered on its entity
+     */
+    public MeshView createView(int material) {
+        MeshView view = new MeshView(mesh);
+        view.setMaterial(materials[material]);
+        return view;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import com.almasb.fxgl.entity.Entity;
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.List;
+
+/**
+ * Hides walls that are too far from the player to matter.
+ * Visibility is only recomputed when the player enters another cell or the radius changes.
+ */
+public class WallCuller {
+    private List<Entity> walls = List.of();
+    private int[] cellX = new int[0];
+    private int[] cellZ = new int[0];
+    
+    // State the visibility was last computed for
+    private int lastX = Integer.MIN_VALUE;
+    private int lastZ = Integer.MIN_VALUE;
+    private int lastRadius = -1;
+    
+    /**
+     * Sets the walls of a new level, all of them visible.
+     *
+     * @param walls the wall entities
+     */
+    public void setWalls(List<Entity> walls) {
+        this.walls = walls;
+        this.cellX = new int[walls.size()];
+        this.cellZ = new int[walls.size()];
+        for (int i = 0; i < walls.size(); i++) {
+            cellX[i] = LabyrinthGenerator.toCell(walls.get(i).getX());
+            cellZ[i] = LabyrinthGenerator.toCell(walls.get(i).getZ());
+        }
+        lastRadius = -1;
+    }
+    
+    /**
+     * Updates wall visibility for the player position.
+     *
+     * @param worldX the x-coordinate of the player in the 3D world
+     * @param worldZ the z-coordinate of the player in the 3D world
+     * @param radius the distance in cells beyond which walls are hidden, or 0 to show all walls
+     */
+    public void update(double worldX, double worldZ, int radius) {
+        int x = LabyrinthGenerator.toCell(worldX);
+        int z = LabyrinthGenerator.toCell(worldZ);
+        if (x == lastX && z == lastZ && radius == lastRadius) {
+            return;
+        }
+        lastX = x;
+        lastZ = z;
+        lastRadius = radius;
+        
+        for (int i = 0; i < walls.size(); i++) {
+            boolean visible = radius == 0
+                    || Math.max(Math.abs(cellX[i] - x), Math.abs(cellZ[i] - z)) <= radius;
+            Entity wall = walls.get(i);
+            if (wall.isVisible() != visible) {
+                wall.setVisible(visible);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.render;
+
+import javafx.scene.image.Image;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads wall textures and downscaled copies of them.
+ * Every texture is decoded once per scale and shared by all levels.
+ * Must only be used on the JavaFX thread.
+ */
+public final class WallTextures {
+    // Loaded textures by file name and scale
+    private static final Map<String, Image> CACHE = new HashMap<>();
+    
+    private WallTextures() {
+    }
+    
+    /**
+     * Gets a wall texture at the specified scale.
+     *
+     * @param name the texture file name in assets/textures
+     * @param scale the size relative to the original file, at most 1
+     * @return the texture, or null if it cannot be loaded
+     */
+    public static Image get(String name, double scale) {
+        String key = name + "@" + scale;
+        Image cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        URL url = WallTextures.class.getResource("/assets/textures/" + name);
+        if (url == null) {
+            return null;
+        }
+        
+        Image image;
+        if (scale >= 1) {
+            image = new Image(url.toExternalForm());
+        } else {
+            // Decode straight into the smaller size
+            Image original = get(name, 1);
+            if (original == null) {
+                return null;
+            }
+            image = new Image(url.toExternalForm(), Math.max(1, Math.round(original.getWidth() * scale)),
+                    Math.max(1, Math.round(original.getHeight() * scale)), true, true);
+        }
+        if (image.isError()) {
+            return null;
+        }
+        
+        CACHE.put(key, image);
+        return image;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.replay;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants describing the binary replay file format.
+ * A replay file is a header followed by fixed-size records:
+ * int type, int a, long b, long c.
+ */
+final class ReplayFormat {
+    // File header
+    static final int MAGIC = 0x4C52504C; // "LRPL"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    
+    // Every record has the same size, so the ring buffer never splits a record
+    static final int RECORD_SIZE = 24;
+    
+    // Byte order of the whole file
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    // Record types
+    static final int FRAME = 1; // a = tick number, b = tick duration bits
+    static final int INPUT = 2; // a = input flags
+    static final int LOOK = 3;  // b = rotation x bits, c = rotation y bits
+    static final int LEVEL = 4; // a = level number, b = seed, c = packed level plan or 0
+    
+    private ReplayFormat() {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayFormat.*;
+
+/**
+ * Plays back a replay file recorded by {@link ReplayRecorder}.
+ * Ticks are replayed one at a time with their recorded duration,
+ * so the exact tick sequence of the original session is reproduced.
+ */
+public class ReplayPlayer {
+    
+    /**
+     * Receives the recorded events of a tick.
+     */
+    public interface Listener {
+        
+        /**
+         * Called with the movement input held during the tick.
+         *
+         * @param input the input flags
+         * @param tpf the recorded tick duration in seconds
+         */
+        void onReplayInput(int input, double tpf);
+        
+        /**
+         * Called when the camera rotation changed during the tick.
+         *
+         * @param rotationX the camera rotation around the x axis
+         * @param rotationY the camera rotation around the y axis
+         */
+        void onReplayLook(double rotationX, double rotationY);
+    }
+    
+    // The whole replay file
+    private final ByteBuffer data;
+    
+    // Read positions for tick events and level seeds
+    private int framePos = HEADER_SIZE;
+    private int levelPos = HEADER_SIZE;
+    
+    // Packed plan of the level returned by the last nextLevelSeed() call
+    private long levelPlan = 0;
+    
+    /**
+     * Creates a player for the specified replay data.
+     *
+     * @param data the replay file contents
+     */
+    private ReplayPlayer(ByteBuffer data) {
+        this.data = data;
+    }
+    
+    /**
+     * Opens a replay file.
+     *
+     * @param file the replay file
+     * @return the replay player
+     * @throws IOException if the file cannot be read or is not a replay
+     */
+    public static ReplayPlayer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ORDER);
+            if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            if (data.getInt(4) != VERSION) {
+                throw new IOException("Unsupported replay version: " + data.getInt(4));
+            }
+            return new ReplayPlayer(data);
+        }
+    }
+    
+    /**
+     * Gets the seed the specified level was generated from in the recorded session.
+     *
+     * @param level the level number
+     * @return the labyrinth seed
+     * @throws IllegalStateException if the replay has no more levels or they are out of order
+     */
+    public long nextLevelSeed(int level) {
+        while (levelPos + RECORD_SIZE <= data.limit()) {
+            int offset = levelPos;
+            levelPos += RECORD_SIZE;
+            if (data.getInt(offset) == LEVEL) {
+                if (data.getInt(offset + 4) != level) {
+                    throw new IllegalStateException("Replay expected level " + data.getInt(offset + 4)
+                            + " but the game loaded level " + level);
+                }
+                levelPlan = data.getLong(offset + 16);
+                return data.getLong(offset + 8);
+            }
+        }
+        throw new IllegalStateException("Replay has no seed for level " + level);
+    }
+    
+    /**
+     * Gets the plan the level of the last {@link #nextLevelSeed(int)} call was generated with.
+     *
+     * @return the packed plan, 0 if the level had the configured size
+     */
+    public long getLevelPlan() {
+        return levelPlan;
+    }
+    
+    /**
+     * Replays the next recorded tick.
+     *
+     * @param listener the listener receiving the tick events
+     * @return the recorded tick duration, or a negative value if the replay is over
+     */
+    public double nextFrame(Listener listener) {
+        // Find the end of the tick first, input events need its duration
+        int end = framePos;
+        while (end + RECORD_SIZE <= data.limit() && data.getInt(end) != FRAME) {
+            end += RECORD_SIZE;
+        }
+        if (end + RECORD_SIZE > data.limit()) {
+            return -1;
+        }
+        double tpf = Double.longBitsToDouble(data.getLong(end + 8));
+        
+        // Dispatch the events in recorded order
+        for (int offset = framePos; offset < end; offset += RECORD_SIZE) {
+            switch (data.getInt(offset)) {
+                case INPUT -> listener.onReplayInput(data.getInt(offset + 4), tpf);
+                case LOOK -> listener.onReplayLook(Double.longBitsToDouble(data.getLong(offset + 8)),
+                        Double.longBitsToDouble(data.getLong(offset + 16)));
+                default -> {
+                    // Level records are consumed by nextLevelSeed()
+                }
+            }
+        }
+        
+        framePos = end + RECORD_SIZE;
+        return tpf;
+    }
+}
\ No newline at end of file
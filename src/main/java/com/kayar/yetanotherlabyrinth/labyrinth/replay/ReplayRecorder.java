@@ -0,0 +1,269 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.replay;
+
+import com.almasb.fxgl.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayFormat.*;
+
+/**
+ * Records session inputs, tick times and level seeds into a preallocated
+ * binary ring buffer. The simulation thread is the only producer and never allocates;
+ * a background thread drains the ring buffer to disk.
+ */
+public class ReplayRecorder {
+    // Recording statistics, shown on the console outside of release mode
+    private static final Logger LOG = Logger.get(ReplayRecorder.class);
+    
+    // Ring buffer capacity in records
+    private static final int CAPACITY_RECORDS = 1 << 16;
+    
+    // How often the writer thread flushes when it is not woken up explicitly
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    // Every 2^n-th event is timed to measure recording overhead
+    private static final int SAMPLE_MASK = 0xFF;
+    
+    // Ring buffer shared between the game thread and the writer thread
+    private final ByteBuffer ring;
+    private final int capacity;
+    
+    // Positions in bytes since the start of recording
+    private long writePos = 0;
+    private volatile long publishedPos = 0;
+    private volatile long flushedPos = 0;
+    
+    // Output file
+    private final Path file;
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean closed = false;
+    
+    // Finishes the recording when the application exits while it is still open
+    private final Thread shutdownHook;
+    
+    // Statistics
+    private int frameNumber = 0;
+    private long eventCount = 0;
+    private long sampledNanos = 0;
+    private long sampledEvents = 0;
+    
+    /**
+     * Creates a recorder writing to the specified channel.
+     *
+     * @param file the output file
+     * @param channel the output channel
+     */
+    private ReplayRecorder(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.capacity = CAPACITY_RECORDS * RECORD_SIZE;
+        this.ring = ByteBuffer.allocateDirect(capacity).order(ORDER);
+        
+        this.writer = new Thread(this::writeLoop, "replay-writer");
+        this.writer.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, "replay-shutdown");
+    }
+    
+    /**
+     * Starts recording into the specified file.
+     * Parent directories are created as needed.
+     *
+     * @param file the output file
+     * @return the running recorder
+     * @throws IOException if the file cannot be created
+     */
+    public static ReplayRecorder start(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        
+        // Write file header
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        
+        ReplayRecorder recorder = new ReplayRecorder(file, channel);
+        recorder.writer.start();
+        Runtime.getRuntime().addShutdownHook(recorder.shutdownHook);
+        return recorder;
+    }
+    
+    /**
+     * Records the end of a simulation tick.
+     *
+     * @param tpf the duration of the tick that just ended in seconds
+     */
+    public void recordFrame(double tpf) {
+        record(FRAME, frameNumber++, Double.doubleToRawLongBits(tpf), 0);
+    }
+    
+    /**
+     * Records the movement input held during the current tick.
+     *
+     * @param input the input flags
+     */
+    public void recordInput(int input) {
+        record(INPUT, input, 0, 0);
+    }
+    
+    /**
+     * Records a change of the camera rotation.
+     *
+     * @param rotationX the camera rotation around the x axis
+     * @param rotationY the camera rotation around the y axis
+     */
+    public void recordLook(double rotationX, double rotationY) {
+        record(LOOK, 0, Double.doubleToRawLongBits(rotationX), Double.doubleToRawLongBits(rotationY));
+    }
+    
+    /**
+     * Records the seed a level was generated from.
+     *
+     * @param level the level number
+     * @param seed the labyrinth seed
+     * @param plan the packed plan the level was generated with, 0 for the configured size
+     */
+    public void recordLevel(int level, long seed, long plan) {
+        record(LEVEL, level, seed, plan);
+    }
+    
+    /**
+     * Writes a single record, timing a sample of the calls.
+     *
+     * @param type the record type
+     * @param a the int payload
+     * @param b the first long payload
+     * @param c the second long payload
+     */
+    private void record(int type, int a, long b, long c) {
+        if (closed) {
+            return;
+        }
+        
+        if ((eventCount++ & SAMPLE_MASK) == 0) {
+            long start = System.nanoTime();
+            put(type, a, b, c);
+            sampledNanos += System.nanoTime() - start;
+            sampledEvents++;
+        } else {
+            put(type, a, b, c);
+        }
+    }
+    
+    /**
+     * Puts a record into the ring buffer and publishes it to the writer thread.
+     *
+     * @param type the record type
+     * @param a the int payload
+     * @param b the first long payload
+     * @param c the second long payload
+     */
+    private void put(int type, int a, long b, long c) {
+        // Wait for the writer if the ring buffer is full
+        while (writePos + RECORD_SIZE - flushedPos > capacity) {
+            if (!running) {
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(10_000);
+        }
+        
+        int offset = (int) (writePos % capacity);
+        ring.putInt(offset, type);
+        ring.putInt(offset + 4, a);
+        ring.putLong(offset + 8, b);
+        ring.putLong(offset + 16, c);
+        writePos += RECORD_SIZE;
+        publishedPos = writePos;
+        
+        // Wake the writer early once half of the buffer is pending
+        if (writePos - flushedPos == capacity / 2) {
+            LockSupport.unpark(writer);
+        }
+    }
+    
+    /**
+     * Main loop of the writer thread.
+     */
+    private void writeLoop() {
+        try {
+            while (running) {
+                LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+                drain();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write replay: " + e.getMessage());
+            running = false;
+        }
+    }
+    
+    /**
+     * Writes all published records to the file.
+     *
+     * @throws IOException if writing fails
+     */
+    private void drain() throws IOException {
+        long end = publishedPos;
+        long flushed = flushedPos;
+        ByteBuffer view = ring.duplicate();
+        
+        while (flushed < end) {
+            int from = (int) (flushed % capacity);
+            int length = (int) Math.min(end - flushed, capacity - from);
+            view.limit(from + length).position(from);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            flushed += length;
+            flushedPos = flushed;
+        }
+    }
+    
+    /**
+     * Stops recording, flushes the remaining records and prints the overhead statistics.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        
+        try {
+            LockSupport.unpark(writer);
+            writer.join(1000);
+            drain();
+            channel.close();
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Could not finish replay: " + e.getMessage());
+        }
+        
+        double nanosPerEvent = sampledEvents == 0 ? 0 : (double) sampledNanos / sampledEvents;
+        LOG.infof("Replay saved to %s: %d ticks, %d events, %d KiB, %.1f ns/event",
+                file, frameNumber, eventCount, publishedPos / 1024, nanosPerEvent);
+        
+        // Closed before exiting, the hook would keep the recorder and its ring buffer alive
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The application is already exiting
+            }
+        }
+    }
+}
\ No newline at end of file
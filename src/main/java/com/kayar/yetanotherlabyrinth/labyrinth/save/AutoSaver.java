@@ -0,0 +1,110 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.save;
+
+import com.almasb.fxgl.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes saves on a background thread, so saving never stalls the frame.
+ * Only the newest pending save is kept: if saves are requested faster than they
+ * can be written, the older ones are skipped.
+ */
+public class AutoSaver {
+    // Save statistics, shown on the console outside of release mode
+    private static final Logger LOG = Logger.get(AutoSaver.class);
+    
+    // Output file
+    private final Path file;
+    
+    // Newest save not written yet, handed from the game thread to the writer thread
+    private final AtomicReference<SaveGame> pending = new AtomicReference<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    // Statistics, only touched by the writer thread until it has stopped
+    private int saves = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    
+    /**
+     * Creates a saver writing to the specified file and starts its writer thread.
+     * Pending saves are written when the application exits.
+     *
+     * @param file the save file
+     */
+    public AutoSaver(Path file) {
+        this.file = file;
+        this.writer = new Thread(this::writeLoop, "autosave-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "autosave-shutdown"));
+    }
+    
+    /**
+     * Requests a save. Returns immediately, the game is written on the writer thread.
+     *
+     * @param game the game, must not be modified afterwards
+     */
+    public void save(SaveGame game) {
+        pending.set(game);
+        LockSupport.unpark(writer);
+    }
+    
+    /**
+     * Main loop of the writer thread.
+     */
+    private void writeLoop() {
+        while (running) {
+            LockSupport.park(this);
+            drain();
+        }
+    }
+    
+    /**
+     * Writes the pending save, if any.
+     */
+    private void drain() {
+        SaveGame game = pending.getAndSet(null);
+        if (game == null) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            SaveFile.write(game, file);
+        } catch (IOException e) {
+            System.err.println("Could not save game: " + e.getMessage());
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        saves++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+    
+    /**
+     * Stops the writer thread, writes the pending save and prints the save statistics.
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        
+        try {
+            LockSupport.unpark(writer);
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        
+        if (saves > 0) {
+            LOG.infof("Game saved to %s: %d saves, %.2f ms mean, %.2f ms max",
+                    file, saves, totalNanos / 1e6 / saves, maxNanos / 1e6);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.save;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import static com.kayar.yetanotherlabyrinth.labyrinth.save.SaveFormat.*;
+
+/**
+ * Reads and writes save files.
+ * The labyrinth is stored as one bit per cell plus its stairwells, start and exit,
+ * and written with bulk buffer copies, so a save of a million cells is at most 250 KiB
+ * and takes a millisecond or two either way. The payload is checked with a CRC32.
+ */
+public final class SaveFile {
+    
+    /**
+     * Prevents instantiation.
+     */
+    private SaveFile() {
+    }
+    
+    /**
+     * Writes a game to a file. The file is written next to the old one and then swapped in,
+     * so an interrupted save never destroys the previous one.
+     * Parent directories are created as needed.
+     *
+     * @param game the game
+     * @param file the save file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(SaveGame game, Path file) throws IOException {
+        LabyrinthGenerator labyrinth = game.labyrinth();
+        long[] open = labyrinth.packOpenCells();
+        int[] stairwells = labyrinth.getStairwells();
+        long[] explored = game.explored().toLongArray();
+        
+        long payload = STATE_SIZE + stairwells.length * 4L + (open.length + (long) explored.length) * 8;
+        if (HEADER_SIZE + payload > Integer.MAX_VALUE) {
+            throw new IOException("Labyrinth too large to save: "
+                    + labyrinth.getWidth() + "x" + labyrinth.getHeight());
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_SIZE + payload)).order(ORDER);
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(game.level());
+        buffer.putLong(labyrinth.getSeed());
+        buffer.putInt(labyrinth.getWidth());
+        buffer.putInt(labyrinth.getHeight());
+        buffer.putInt(labyrinth.getLayers());
+        buffer.putInt(LabyrinthGenerator.toCell(labyrinth.getStartX()));
+        buffer.putInt(LabyrinthGenerator.toCell(labyrinth.getStartZ()));
+        buffer.putInt(LabyrinthGenerator.toCell(labyrinth.getExitX()));
+        buffer.putInt(LabyrinthGenerator.toCell(labyrinth.getExitZ()));
+        buffer.putInt(labyrinth.getExitLayer());
+        buffer.putDouble(game.x());
+        buffer.putDouble(game.z());
+        buffer.putInt(game.layer());
+        buffer.putDouble(game.rotationX());
+        buffer.putDouble(game.rotationY());
+        buffer.putInt(stairwells.length);
+        buffer.putInt(open.length);
+        buffer.putInt(explored.length);
+        
+        // Bulk copies of the arrays
+        buffer.asIntBuffer().put(stairwells);
+        buffer.position(buffer.position() + stairwells.length * 4);
+        buffer.asLongBuffer().put(open);
+        buffer.position(buffer.position() + open.length * 8);
+        buffer.asLongBuffer().put(explored);
+        
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_SIZE).limit(buffer.capacity()));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, (int) payload);
+        buffer.putInt(12, (int) crc.getValue());
+        buffer.clear();
+        
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Reads a game from a file, restoring its labyrinth without generating it again.
+     *
+     * @param file the save file
+     * @return the game
+     * @throws IOException if the file cannot be read, is not a save file or is damaged
+     */
+    public static SaveGame read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Read into the heap rather than mapping, a mapped file cannot be replaced by the next save on Windows
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Not a save file: " + file);
+            }
+            ByteBuffer data = ByteBuffer.allocate((int) size).order(ORDER);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Save file is damaged: " + file);
+                }
+            }
+            data.flip();
+            if (data.limit() < HEADER_SIZE + STATE_SIZE || data.getInt(0) != MAGIC) {
+                throw new IOException("Not a save file: " + file);
+            }
+            if (data.getInt(4) != VERSION) {
+                throw new IOException("Unsupported save version: " + data.getInt(4));
+            }
+            
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate().position(HEADER_SIZE));
+            if (data.getInt(8) != data.limit() - HEADER_SIZE || data.getInt(12) != (int) crc.getValue()) {
+                throw new IOException("Save file is damaged: " + file);
+            }
+            
+            data.position(HEADER_SIZE);
+            int level = data.getInt();
+            long seed = data.getLong();
+            int width = data.getInt();
+            int height = data.getInt();
+            int layers = data.getInt();
+            int startX = data.getInt();
+            int startZ = data.getInt();
+            int exitX = data.getInt();
+            int exitZ = data.getInt();
+            int exitLayer = data.getInt();
+            double x = data.getDouble();
+            double z = data.getDouble();
+            int layer = data.getInt();
+            double rotationX = data.getDouble();
+            double rotationY = data.getDouble();
+            int stairwellCount = data.getInt();
+            int openWords = data.getInt();
+            int exploredWords = data.getInt();
+            
+            // The checksum only catches damage, make sure the contents describe a valid labyrinth
+            long cells = (long) width * height * layers;
+            check(width > 0 && height > 0 && layers > 0 && cells <= Integer.MAX_VALUE, file);
+            check(openWords == (cells + 63) >>> 6 && exploredWords >= 0 && exploredWords <= openWords, file);
+            check(stairwellCount >= 0 && data.remaining()
+                    == stairwellCount * 4L + (openWords + (long) exploredWords) * 8, file);
+            check(inGrid(startX, startZ, 0, width, height, 1)
+                    && inGrid(exitX, exitZ, exitLayer, width, height, layers), file);
+            check(layer >= 0 && layer < layers, file);
+            
+            int[] stairwells = new int[stairwellCount];
+            data.asIntBuffer().get(stairwells);
+            data.position(data.position() + stairwellCount * 4);
+            for (int cell : stairwells) {
+                check(cell >= 0 && cell < (layers - 1) * width * height, file);
+            }
+            long[] open = new long[openWords];
+            data.asLongBuffer().get(open);
+            data.position(data.position() + openWords * 8);
+            long[] explored = new long[exploredWords];
+            data.asLongBuffer().get(explored);
+            
+            LabyrinthGenerator labyrinth = LabyrinthGenerator.fromPacked(width, height, layers, open, stairwells,
+                    startX, startZ, exitX, exitZ, exitLayer, seed);
+            return new SaveGame(level, labyrinth, x, z, layer, rotationX, rotationY, BitSet.valueOf(explored));
+        }
+    }
+    
+    /**
+     * Checks whether a cell lies inside the grid.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param layer the storey of the cell
+     * @param width the grid width
+     * @param height the grid height
+     * @param layers the number of storeys
+     * @return true if the cell is inside the grid
+     */
+    private static boolean inGrid(int x, int z, int layer, int width, int height, int layers) {
+        return x >= 0 && x < width && z >= 0 && z < height && layer >= 0 && layer < layers;
+    }
+    
+    /**
+     * Rejects a save file whose contents are inconsistent.
+     *
+     * @param valid whether the checked contents are consistent
+     * @param file the save file
+     * @throws IOException if they are not
+     */
+    private static void check(boolean valid, Path file) throws IOException {
+        if (!valid) {
+            throw new IOException("Save file is damaged: " + file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.save;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants describing the binary save file format.
+ * A save file is a header followed by the payload: the fixed-size game state,
+ * then the stairwells as ints and the open and explored cells as bit words.
+ */
+final class SaveFormat {
+    // File header: magic, version, payload size, payload CRC32
+    static final int MAGIC = 0x4C534156; // "LSAV"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    
+    // Fixed part of the payload:
+    // int level, long seed, int width, height, layers, startX, startZ, exitX, exitZ, exitLayer,
+    // double x, z, int layer, double rotationX, rotationY,
+    // int stairwell count, open word count, explored word count
+    static final int STATE_SIZE = 92;
+    
+    // Byte order of the whole file
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    private SaveFormat() {
+    }
+}
\ No newline at end of file
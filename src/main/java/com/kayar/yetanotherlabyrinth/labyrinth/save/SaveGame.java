@@ -0,0 +1,21 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.save;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.BitSet;
+
+/**
+ * A game in progress, everything needed to continue it without generating the labyrinth again.
+ *
+ * @param level the current level number
+ * @param labyrinth the labyrinth of the current level, must not be modified
+ * @param x the x-coordinate of the camera in the 3D world
+ * @param z the z-coordinate of the camera in the 3D world
+ * @param layer the storey the player is on
+ * @param rotationX the camera rotation around the x axis
+ * @param rotationY the camera rotation around the y axis
+ * @param explored the explored cells, indexed by (layer * height + z) * width + x, must not be modified
+ */
+public record SaveGame(int level, LabyrinthGenerator labyrinth, double x, double z, int layer,
+                       double rotationX, double rotationY, BitSet explored) {
+}
\ No newline at end of file
@@ -0,0 +1,492 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import com.kayar.yetanotherlabyrinth.labyrinth.analytics.ExplorationTracker;
+import com.kayar.yetanotherlabyrinth.labyrinth.importer.MazeImporter;
+import com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayPlayer;
+import com.kayar.yetanotherlabyrinth.labyrinth.replay.ReplayRecorder;
+import com.kayar.yetanotherlabyrinth.labyrinth.save.SaveGame;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.BotPlayer;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.creature.CreatureSwarm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the game rules on a dedicated thread at a fixed tick rate.
+ * The simulation thread owns the player position, collisions, exit checks, creatures,
+ * level generation and replay recording; the JavaFX thread only sets input and look
+ * direction and renders the latest {@link GameSnapshot}.
+ */
+public class GameSimulation implements Runnable {
+    // Tick duration in seconds, recorded into replays
+    private static final double TICK_SECONDS = 1.0 / SimulationSession.TICKS_PER_SECOND;
+    
+    // Labyrinth size and storeys, the size is the same for every level unless planned
+    private final int labyrinthSize;
+    private int layers = 1;
+    private LevelPlanner planner;
+    
+    // Distance walked per tick
+    private final double stepDistance;
+    
+    // Number of creatures chasing the player on every level
+    private final int creatureCount;
+    
+    // Replay recording and playback, only touched by the simulation thread
+    private final ReplayRecorder replayRecorder;
+    private final ReplayPlayer replayPlayer;
+    private final ReplayPlayer.Listener replayListener;
+    
+    // Bot steering instead of live input, only touched by the simulation thread
+    private BotPlayer autopilot;
+    
+    // Seed the levels are derived from, random levels when not set
+    private Long fixedSeed;
+    
+    // Hand-made maze played on every level instead of generated ones
+    private Path mazeFile;
+    
+    // Saved game continued instead of starting at the first level
+    private SaveGame savedGame;
+    
+    // Exploration analytics fed with the player's cell every tick
+    private ExplorationTracker explorationTracker;
+    
+    // Game state, only touched by the simulation thread
+    private final PlayerMotion motion = new PlayerMotion();
+    private final CreatureSwarm creatures = new CreatureSwarm();
+    private LabyrinthGenerator labyrinth;
+    private int level = 0;
+    private long tick = 0;
+    private int tickInput = 0;
+    private double tickRotationX = 0;
+    private double tickRotationY = 0;
+    private double lastRotationX = Double.NaN;
+    private double lastRotationY = Double.NaN;
+    private boolean finished = false;
+    
+    // Movement in a snapshot the JavaFX thread never took, passed on with the next one
+    private boolean unseenMoving = false;
+    
+    // Input written by the JavaFX thread
+    private final AtomicInteger input = new AtomicInteger();
+    private volatile double rotationX = 0;
+    private volatile double rotationY = 0;
+    private volatile boolean skipLevel = false;
+    private volatile boolean running = true;
+    
+    // Handoff to the JavaFX thread
+    private final SnapshotBuffer<GameSnapshot> snapshots = new SnapshotBuffer<>();
+    private final Thread thread;
+    
+    // Stops the simulation when the application exits, so the level being played is finished properly
+    private final Thread shutdownHook;
+    
+    /**
+     * Creates a simulation. Call {@link #start()} to run it.
+     *
+     * @param labyrinthSize the width and height of the labyrinths
+     * @param moveSpeed the walking speed in world units per second
+     * @param creatureCount the number of creatures on every level
+     * @param replayRecorder the recorder for this session, or null
+     * @param replayPlayer the replay to play back instead of live input, or null
+     */
+    public GameSimulation(int labyrinthSize, double moveSpeed, int creatureCount,
+                          ReplayRecorder replayRecorder, ReplayPlayer replayPlayer) {
+        this.labyrinthSize = labyrinthSize;
+        this.stepDistance = moveSpeed * TICK_SECONDS;
+        this.creatureCount = creatureCount;
+        this.replayRecorder = replayRecorder;
+        this.replayPlayer = replayPlayer;
+        this.replayListener = new ReplayPlayer.Listener() {
+            @Override
+            public void onReplayInput(int input, double tpf) {
+                tickInput = input;
+            }
+            
+            @Override
+            public void onReplayLook(double rotationX, double rotationY) {
+                tickRotationX = rotationX;
+                tickRotationY = rotationY;
+            }
+        };
+        
+        this.thread = new Thread(this, "game-simulation");
+        this.thread.setDaemon(true);
+        this.shutdownHook = new Thread(this::stop, "simulation-shutdown");
+    }
+    
+    /**
+     * Lets a bot walk instead of the player. Must be called before {@link #start()}.
+     * The bot should accept arrival within {@link #getStepDistance()} of a cell center.
+     *
+     * @param autopilot the bot
+     */
+    public void setAutopilot(BotPlayer autopilot) {
+        this.autopilot = autopilot;
+    }
+    
+    /**
+     * Sets the number of storeys of every level. Must be called before {@link #start()}.
+     *
+     * @param layers the storey count
+     */
+    public void setLayers(int layers) {
+        this.layers = layers;
+    }
+    
+    /**
+     * Lets a planner choose the size and algorithm of every level instead of the fixed size.
+     * Must be called before {@link #start()}. Replays are played back with their recorded plans.
+     *
+     * @param planner the level planner
+     */
+    public void setPlanner(LevelPlanner planner) {
+        this.planner = planner;
+    }
+    
+    /**
+     * Plays an imported maze on every level instead of generated labyrinths.
+     * Must be called before {@link #start()}. Levels are generated as usual if the file cannot be imported.
+     *
+     * @param mazeFile the ASCII or PNG maze file
+     */
+    public void setMaze(Path mazeFile) {
+        this.mazeFile = mazeFile;
+    }
+    
+    /**
+     * Continues a saved game instead of starting at the first level.
+     * Must be called before {@link #start()}. The saved labyrinth is used as is, without generating it again,
+     * so a restored session cannot be recorded as a replay.
+     *
+     * @param savedGame the saved game
+     */
+    public void restore(SaveGame savedGame) {
+        this.savedGame = savedGame;
+    }
+    
+    /**
+     * Tracks how the player explores every level. Must be called before {@link #start()}.
+     * The level being played when the simulation stops is written as not completed.
+     *
+     * @param explorationTracker the tracker
+     */
+    public void setExplorationTracker(ExplorationTracker explorationTracker) {
+        this.explorationTracker = explorationTracker;
+    }
+    
+    /**
+     * Derives every level from a fixed seed instead of a random one, so runs are repeatable.
+     * Must be called before {@link #start()}. Ignored while playing a replay.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.fixedSeed = seed;
+    }
+    
+    /**
+     * Checks whether the camera is driven by a replay or a bot instead of the player.
+     *
+     * @return true if live input is ignored
+     */
+    public boolean isScripted() {
+        return replayPlayer != null || autopilot != null;
+    }
+    
+    /**
+     * Gets the distance walked per tick.
+     *
+     * @return the step distance in world units
+     */
+    public double getStepDistance() {
+        return stepDistance;
+    }
+    
+    /**
+     * Starts the simulation thread. The first level is generated on it.
+     * The simulation is stopped when the application exits.
+     */
+    public void start() {
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+    
+    /**
+     * Stops the simulation thread and waits for it to finish.
+     */
+    public void stop() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Stopped before exiting, the hook is not needed anymore
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The application is already exiting
+            }
+        }
+    }
+    
+    /**
+     * Starts holding movement input.
+     *
+     * @param flags the input flags from {@link SimulationSession}
+     */
+    public void press(int flags) {
+        input.getAndUpdate(current -> current | flags);
+    }
+    
+    /**
+     * Stops holding movement input.
+     *
+     * @param flags the input flags from {@link SimulationSession}
+     */
+    public void release(int flags) {
+        input.getAndUpdate(current -> current & ~flags);
+    }
+    
+    /**
+     * Sets the camera rotation used for the following ticks.
+     *
+     * @param rotationX the camera rotation around the x axis
+     * @param rotationY the camera rotation around the y axis, the yaw used by {@link PlayerMotion}
+     */
+    public void look(double rotationX, double rotationY) {
+        this.rotationX = rotationX;
+        this.rotationY = rotationY;
+    }
+    
+    /**
+     * Advances to the next level on the following tick.
+     */
+    public void skipLevel() {
+        skipLevel = true;
+    }
+    
+    /**
+     * Takes the newest snapshot. Must only be called from the JavaFX thread.
+     *
+     * @return the newest snapshot, or null if no tick finished since the last call
+     */
+    public GameSnapshot pollSnapshot() {
+        return snapshots.pollLatest();
+    }
+    
+    /**
+     * Ticks at a fixed rate until stopped.
+     */
+    @Override
+    public void run() {
+        if (savedGame != null) {
+            restoreLevel(savedGame);
+        } else {
+            loadLevel(1);
+        }
+        publish(false);
+        
+        long deadline = System.nanoTime();
+        while (running) {
+            deadline += SimulationSession.TICK_NANOS;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            
+            tick();
+        }
+        
+        if (explorationTracker != null) {
+            explorationTracker.finishLevel(false);
+        }
+    }
+    
+    /**
+     * Runs a single tick and publishes its snapshot.
+     */
+    private void tick() {
+        if (finished) {
+            publish(false);
+            return;
+        }
+        
+        // Take the input of this tick from the replay or the player
+        if (replayPlayer != null) {
+            // Ticks without input have no input record
+            tickInput = 0;
+            if (replayPlayer.nextFrame(replayListener) < 0) {
+                finished = true;
+                publish(false);
+                return;
+            }
+        } else if (autopilot != null) {
+            tickInput = SimulationSession.FORWARD;
+            tickRotationX = 0;
+            tickRotationY = autopilot.steer(labyrinth, level, motion.getX(), motion.getZ());
+        } else {
+            tickInput = input.get();
+            tickRotationX = rotationX;
+            tickRotationY = rotationY;
+            recordTick();
+        }
+        
+        boolean moving = motion.walk(labyrinth, tickInput, tickRotationY, stepDistance);
+        
+        // Creatures live on the ground storey and wait while the player is upstairs
+        if (motion.getLayer() == 0) {
+            creatures.update(motion.getX(), motion.getZ());
+        }
+        tick++;
+        
+        if (explorationTracker != null) {
+            explorationTracker.onTick(motion.getLayer(), LabyrinthGenerator.toCell(motion.getX()),
+                    LabyrinthGenerator.toCell(motion.getZ()));
+        }
+        
+        boolean atExit = PlayerMotion.isAtExit(labyrinth, motion.getX(), motion.getZ(), motion.getLayer());
+        if (atExit || skipLevel) {
+            skipLevel = false;
+            if (explorationTracker != null) {
+                explorationTracker.finishLevel(atExit);
+            }
+            loadLevel(level + 1);
+        }
+        publish(moving);
+    }
+    
+    /**
+     * Records the input of the current tick.
+     */
+    private void recordTick() {
+        if (replayRecorder == null) {
+            return;
+        }
+        if (tickRotationX != lastRotationX || tickRotationY != lastRotationY) {
+            replayRecorder.recordLook(tickRotationX, tickRotationY);
+            lastRotationX = tickRotationX;
+            lastRotationY = tickRotationY;
+        }
+        if (tickInput != 0) {
+            replayRecorder.recordInput(tickInput);
+        }
+        replayRecorder.recordFrame(TICK_SECONDS);
+    }
+    
+    /**
+     * Generates a level and places the player at its start.
+     *
+     * @param levelNumber the level number
+     */
+    private void loadLevel(int levelNumber) {
+        long seed;
+        LevelPlan plan = null;
+        if (replayPlayer != null) {
+            seed = replayPlayer.nextLevelSeed(levelNumber);
+            plan = LevelPlan.decode(replayPlayer.getLevelPlan());
+        } else {
+            seed = fixedSeed != null ? fixedSeed * 31 + levelNumber : ThreadLocalRandom.current().nextLong();
+            if (planner != null && mazeFile == null) {
+                plan = planner.plan(levelNumber);
+            }
+        }
+        if (replayRecorder != null) {
+            replayRecorder.recordLevel(levelNumber, seed, LevelPlan.encode(plan));
+        }
+        
+        LabyrinthGenerator next = mazeFile != null ? importMaze(seed) : null;
+        if (next == null) {
+            int size = plan != null ? plan.size() : labyrinthSize;
+            next = new LabyrinthGenerator(size, size, layers, seed);
+            if (plan != null) {
+                next.setAlgorithm(plan.algorithm());
+            }
+            long generateStart = System.nanoTime();
+            next.generate();
+            if (planner != null) {
+                planner.recordGeneration(next.getAlgorithm(), getCellCount(next), System.nanoTime() - generateStart);
+            }
+        }
+        long bakeStart = System.nanoTime();
+        next.bakeLighting();
+        if (planner != null) {
+            planner.recordBake(getCellCount(next), System.nanoTime() - bakeStart);
+        }
+        
+        level = levelNumber;
+        labyrinth = next;
+        motion.reset(labyrinth.getStartX(), labyrinth.getStartZ());
+        creatures.spawn(labyrinth, creatureCount, seed);
+        if (explorationTracker != null) {
+            explorationTracker.startLevel(levelNumber, labyrinth);
+        }
+    }
+    
+    /**
+     * Counts the cells of a labyrinth on all storeys.
+     *
+     * @param labyrinth the labyrinth
+     * @return the cell count
+     */
+    private static long getCellCount(LabyrinthGenerator labyrinth) {
+        return (long) labyrinth.getWidth() * labyrinth.getHeight() * labyrinth.getLayers();
+    }
+    
+    /**
+     * Continues the level of a saved game where the player left it.
+     *
+     * @param save the saved game
+     */
+    private void restoreLevel(SaveGame save) {
+        save.labyrinth().bakeLighting();
+        level = save.level();
+        labyrinth = save.labyrinth();
+        motion.restore(save.x(), save.z(), save.layer());
+        
+        // Keep the saved look direction until the player looks around
+        tickRotationX = save.rotationX();
+        tickRotationY = save.rotationY();
+        rotationX = save.rotationX();
+        rotationY = save.rotationY();
+        creatures.spawn(labyrinth, creatureCount, labyrinth.getSeed());
+        if (explorationTracker != null) {
+            explorationTracker.startLevel(level, labyrinth);
+        }
+    }
+    
+    /**
+     * Imports the maze file for a level.
+     *
+     * @param seed the level seed
+     * @return the labyrinth, or null if the file cannot be imported
+     */
+    private LabyrinthGenerator importMaze(long seed) {
+        try {
+            return MazeImporter.load(mazeFile, seed);
+        } catch (IOException e) {
+            System.err.println("Could not import maze " + mazeFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Publishes the state after the current tick.
+     *
+     * @param moving whether the player moved during the tick
+     */
+    private void publish(boolean moving) {
+        GameSnapshot replaced = snapshots.offer(new GameSnapshot(tick, level, labyrinth, motion.getX(), motion.getZ(),
+                motion.getLayer(), tickRotationX, tickRotationY, creatures.copyPositions(), moving || unseenMoving,
+                finished));
+        unseenMoving = replaced != null && replaced.moving();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * Immutable state of the game after one simulation tick, everything the
+ * JavaFX thread needs to render a frame.
+ * A new labyrinth instance means a new level that still has to be built.
+ *
+ * @param tick the number of ticks simulated so far
+ * @param level the current level number
+ * @param labyrinth the labyrinth of the current level, generated but not built
+ * @param x the x-coordinate of the camera in the 3D world
+ * @param z the z-coordinate of the camera in the 3D world
+ * @param layer the storey the player is on
+ * @param rotationX the camera rotation around the x axis, only used when replaying
+ * @param rotationY the camera rotation around the y axis, only used when replaying
+ * @param creatures the creature positions as x, z pairs, must not be modified
+ * @param moving whether the player moved during the tick, or during one whose snapshot was replaced unseen
+ * @param finished whether the replay being played back is over
+ */
+public record GameSnapshot(long tick, int level, LabyrinthGenerator labyrinth, double x, double z,
+                           int layer, double rotationX, double rotationY, float[] creatures, boolean moving,
+                           boolean finished) {
+}
\ No newline at end of file
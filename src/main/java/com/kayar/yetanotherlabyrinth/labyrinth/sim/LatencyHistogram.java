@@ -0,0 +1,145 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds.
+ * Values are grouped into log-linear buckets (32 sub-buckets per power of two),
+ * which keeps percentiles within about 3% while recording never allocates.
+ * Not thread safe: each thread records into its own histogram and they are merged afterwards.
+ */
+public class LatencyHistogram {
+    // Sub-buckets per power of two
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    // Values below this are stored exactly
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    
+    // Enough buckets for any positive long
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long max = 0;
+    
+    /**
+     * Records a single duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        if (value > max) {
+            max = value;
+        }
+    }
+    
+    /**
+     * Adds all values of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+    
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the value count
+     */
+    public long getCount() {
+        return totalCount;
+    }
+    
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+    
+    /**
+     * Gets the number of recorded values above a threshold.
+     * Accurate to the bucket resolution.
+     *
+     * @param nanos the threshold in nanoseconds
+     * @return the number of values above the threshold
+     */
+    public long countAbove(long nanos) {
+        long count = 0;
+        for (int i = indexOf(nanos) + 1; i < BUCKET_COUNT; i++) {
+            count += counts[i];
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the value at the specified percentile.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the value in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        
+        long target = (long) Math.ceil(totalCount * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, target)) {
+                return Math.min(max, upperBoundOf(i));
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Formats the usual percentiles in milliseconds.
+     *
+     * @return a one-line summary
+     */
+    public String summary() {
+        return String.format("p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6,
+                getPercentile(99.9) / 1e6, max / 1e6);
+    }
+    
+    /**
+     * Gets the bucket index of a value.
+     *
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+    
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param index the bucket index
+     * @return the upper bound of the bucket
+     */
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
\ No newline at end of file
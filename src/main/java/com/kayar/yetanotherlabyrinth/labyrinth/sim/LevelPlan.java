@@ -0,0 +1,37 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * How a level is generated, as chosen by {@link LevelPlanner}.
+ * Plans are recorded into replays, so a level is generated the same way when played back
+ * no matter how fast the playing machine is.
+ *
+ * @param size the width and height of the labyrinth
+ * @param algorithm the carving algorithm
+ */
+public record LevelPlan(int size, LabyrinthGenerator.Algorithm algorithm) {
+    
+    /**
+     * Packs a plan into a replay record.
+     *
+     * @param plan the plan, or null
+     * @return the packed plan, 0 for none
+     */
+    public static long encode(LevelPlan plan) {
+        return plan == null ? 0 : (long) plan.size << 8 | plan.algorithm.ordinal() + 1;
+    }
+    
+    /**
+     * Unpacks a plan from a replay record.
+     *
+     * @param packed the packed plan
+     * @return the plan, or null if none was recorded
+     */
+    public static LevelPlan decode(long packed) {
+        if (packed == 0) {
+            return null;
+        }
+        return new LevelPlan((int) (packed >>> 8), LabyrinthGenerator.Algorithm.values()[(int) (packed & 0xFF) - 1]);
+    }
+}
\ No newline at end of file
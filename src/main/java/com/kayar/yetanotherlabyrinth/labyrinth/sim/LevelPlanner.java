@@ -0,0 +1,230 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Plans the levels of a game: labyrinths grow with every level, and the carving algorithm
+ * alternates once the player is past the first levels.
+ * A level is never planned larger than can be loaded within the load time budget, using the
+ * generation and lighting cost per cell measured on this machine. The cost is calibrated with
+ * a small labyrinth before the first level and then follows every level that is loaded.
+ *
+ * <p>Building the scene on the JavaFX thread is measured as well. When a level would take longer
+ * to build than the budget allows, only the rows around the player are built right away and the
+ * rest is streamed in over the following frames, see {@link #getLoadRows} and {@link #getFrameRows}.
+ *
+ * <p>The budget is set with {@code -Dlabyrinth.load.budget=ms}; 0, or a fixed size set with
+ * {@code -Dlabyrinth.size=cells}, disables planning. Generation runs on the simulation thread and
+ * building on the JavaFX thread, so all methods are synchronized.
+ */
+public class LevelPlanner {
+    // Load time budget in milliseconds unless set
+    private static final long DEFAULT_BUDGET_MILLIS = 250;
+    
+    // Size of the first level and growth per level
+    private static final int FIRST_SIZE = 20;
+    private static final int GROWTH = 4;
+    
+    // Size limits no matter the budget
+    private static final int MIN_SIZE = 11;
+    private static final int MAX_SIZE = 1001;
+    
+    // First level carved with Prim's algorithm, from then on the algorithms alternate
+    private static final int PRIM_FROM_LEVEL = 3;
+    
+    // Labyrinth size the generation cost is calibrated with, and the rounds taken, the fastest counts
+    private static final int CALIBRATION_SIZE = 101;
+    private static final int CALIBRATION_ROUNDS = 3;
+    
+    // Build cost per cell until the first build is measured, on the safe side
+    private static final double DEFAULT_BUILD_NANOS = 20_000;
+    
+    // Build time per frame while streaming the rest of a level in
+    private static final double FRAME_BUILD_NANOS = 4_000_000;
+    
+    // Weight of a new measurement in the running cost per cell
+    private static final double SMOOTHING = 0.3;
+    
+    private final int layers;
+    private final double budgetNanos;
+    
+    // Measured cost per cell in nanoseconds, generation indexed by algorithm
+    private final double[] generateNanos = new double[LabyrinthGenerator.Algorithm.values().length];
+    private double bakeNanos = 0;
+    private double buildNanos = DEFAULT_BUILD_NANOS;
+    private boolean calibrated = false;
+    
+    /**
+     * Creates a planner.
+     *
+     * @param layers the number of storeys of every level
+     * @param budgetMillis the load time budget in milliseconds
+     */
+    public LevelPlanner(int layers, long budgetMillis) {
+        this.layers = Math.max(1, layers);
+        this.budgetNanos = budgetMillis * 1e6;
+    }
+    
+    /**
+     * Creates a planner from the system properties.
+     *
+     * @param layers the number of storeys of every level
+     * @return the planner, or null if levels have a fixed size
+     */
+    public static LevelPlanner fromSystemProperties(int layers) {
+        if (System.getProperty("labyrinth.size") != null) {
+            return null;
+        }
+        long budget = Long.getLong("labyrinth.load.budget", DEFAULT_BUDGET_MILLIS);
+        return budget > 0 ? new LevelPlanner(layers, budget) : null;
+    }
+    
+    /**
+     * Plans a level. The first call calibrates the generation cost, so it should be made
+     * on the thread that generates the levels.
+     *
+     * @param level the level number
+     * @return the plan
+     */
+    public synchronized LevelPlan plan(int level) {
+        if (!calibrated) {
+            calibrate();
+        }
+        
+        int wanted = Math.min(MAX_SIZE, FIRST_SIZE + GROWTH * (level - 1));
+        LabyrinthGenerator.Algorithm preferred = level < PRIM_FROM_LEVEL || (level - PRIM_FROM_LEVEL) % 2 != 0
+                ? LabyrinthGenerator.Algorithm.DEPTH_FIRST
+                : LabyrinthGenerator.Algorithm.PRIM;
+        LabyrinthGenerator.Algorithm algorithm = preferred;
+        int size = Math.min(wanted, getAffordableSize(preferred));
+        
+        // When the preferred algorithm is too slow for the wanted size, the other one may get closer
+        for (LabyrinthGenerator.Algorithm other : LabyrinthGenerator.Algorithm.values()) {
+            if (size < wanted && getAffordableSize(other) > size) {
+                algorithm = other;
+                size = Math.min(wanted, getAffordableSize(other));
+            }
+        }
+        return new LevelPlan(Math.max(MIN_SIZE, size), algorithm);
+    }
+    
+    /**
+     * Gets the largest labyrinth that can be generated and lit within the budget.
+     *
+     * @param algorithm the carving algorithm
+     * @return the width and height
+     */
+    private int getAffordableSize(LabyrinthGenerator.Algorithm algorithm) {
+        double cellNanos = (generateNanos[algorithm.ordinal()] + bakeNanos) * layers;
+        return (int) Math.min(MAX_SIZE, Math.sqrt(budgetNanos / Math.max(1, cellNanos)));
+    }
+    
+    /**
+     * Measures the generation and lighting cost with a small labyrinth per algorithm.
+     * The first rounds run mostly interpreted, so the fastest round is taken.
+     */
+    private void calibrate() {
+        Arrays.fill(generateNanos, Double.MAX_VALUE);
+        bakeNanos = Double.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            for (LabyrinthGenerator.Algorithm algorithm : LabyrinthGenerator.Algorithm.values()) {
+                LabyrinthGenerator labyrinth = new LabyrinthGenerator(CALIBRATION_SIZE, CALIBRATION_SIZE, 1, round);
+                labyrinth.setAlgorithm(algorithm);
+                long start = System.nanoTime();
+                labyrinth.generate();
+                long generated = System.nanoTime();
+                labyrinth.bakeLighting();
+                long baked = System.nanoTime();
+                
+                double cells = (double) labyrinth.getWidth() * labyrinth.getHeight();
+                generateNanos[algorithm.ordinal()] = Math.min(generateNanos[algorithm.ordinal()],
+                        (generated - start) / cells);
+                bakeNanos = Math.min(bakeNanos, (baked - generated) / cells);
+            }
+        }
+        calibrated = true;
+    }
+    
+    /**
+     * Records how long a labyrinth took to generate.
+     *
+     * @param algorithm the carving algorithm
+     * @param cells the number of cells on all storeys
+     * @param nanos the generation time in nanoseconds
+     */
+    public synchronized void recordGeneration(LabyrinthGenerator.Algorithm algorithm, long cells, long nanos) {
+        generateNanos[algorithm.ordinal()] = smooth(generateNanos[algorithm.ordinal()], cells, nanos);
+    }
+    
+    /**
+     * Records how long the lighting of a labyrinth took to bake.
+     *
+     * @param cells the number of cells on all storeys
+     * @param nanos the baking time in nanoseconds
+     */
+    public synchronized void recordBake(long cells, long nanos) {
+        bakeNanos = smooth(bakeNanos, cells, nanos);
+    }
+    
+    /**
+     * Records how long a part of a level took to build into the scene.
+     *
+     * @param cells the number of cells built on all storeys
+     * @param nanos the build time in nanoseconds
+     */
+    public synchronized void recordBuild(long cells, long nanos) {
+        buildNanos = smooth(buildNanos, cells, nanos);
+    }
+    
+    /**
+     * Gets the number of rows that can be built when a level is loaded without going over the budget.
+     * A level with fewer rows is built at once, a larger one is streamed in.
+     *
+     * @param width the width of the labyrinth
+     * @param storeys the number of storeys built together
+     * @return the number of rows, at least 1
+     */
+    public synchronized int getLoadRows(int width, int storeys) {
+        return rowsWithin(budgetNanos, width, storeys);
+    }
+    
+    /**
+     * Gets the number of rows to build per frame while streaming in the rest of a level.
+     *
+     * @param width the width of the labyrinth
+     * @param storeys the number of storeys built together
+     * @return the number of rows, at least 1
+     */
+    public synchronized int getFrameRows(int width, int storeys) {
+        return rowsWithin(FRAME_BUILD_NANOS, width, storeys);
+    }
+    
+    /**
+     * Gets the number of rows that can be built within a time.
+     *
+     * @param nanos the time in nanoseconds
+     * @param width the width of the labyrinth
+     * @param storeys the number of storeys built together
+     * @return the number of rows, at least 1
+     */
+    private int rowsWithin(double nanos, int width, int storeys) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, nanos / (buildNanos * width * storeys)));
+    }
+    
+    /**
+     * Blends a new measurement into a running cost per cell.
+     *
+     * @param current the running cost per cell
+     * @param cells the number of cells measured
+     * @param nanos the measured time in nanoseconds
+     * @return the new cost per cell
+     */
+    private static double smooth(double current, long cells, long nanos) {
+        if (cells <= 0) {
+            return current;
+        }
+        return current + SMOOTHING * ((double) nanos / cells - current);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,367 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * Player movement rules on the labyrinth grid.
+ * Holds the horizontal position and velocity of the player and applies
+ * acceleration, deceleration, wall collisions and exit detection.
+ * Entering a stairwell cell moves the player to the storey it leads to.
+ * Has no dependency on the game world, so it can run without a display.
+ */
+public class PlayerMotion {
+    // Acceleration settings
+    public static final double ACCELERATION = 0.01;
+    public static final double DECELERATION = 0.02;
+    public static final double MAX_SPEED = 0.2;
+    
+    // Half of the player width and depth
+    public static final double HALF_SIZE = 0.4;
+    
+    // Distance to the exit at which the level is complete
+    public static final double EXIT_RADIUS = 1.5;
+    
+    // Position in the 3D world
+    private double x;
+    private double z;
+    
+    // Storey the player is on, and the cell last stood on to detect entering a stairwell
+    private int layer = 0;
+    private int cellX;
+    private int cellZ;
+    
+    // Movement velocity
+    private double velocityX = 0;
+    private double velocityZ = 0;
+    
+    /**
+     * Sets the position on the ground storey and stops the player.
+     *
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     */
+    public void reset(double x, double z) {
+        this.x = x;
+        this.z = z;
+        this.layer = 0;
+        this.cellX = LabyrinthGenerator.toCell(x);
+        this.cellZ = LabyrinthGenerator.toCell(z);
+        this.velocityX = 0;
+        this.velocityZ = 0;
+    }
+    
+    /**
+     * Puts the player back where a saved game left it.
+     *
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     * @param layer the storey
+     */
+    public void restore(double x, double z, int layer) {
+        reset(x, z);
+        this.layer = layer;
+    }
+    
+    /**
+     * Accelerates forward relative to the look direction.
+     *
+     * @param yaw the horizontal look direction in degrees
+     */
+    public void moveForward(double yaw) {
+        accelerate(Math.sin(Math.toRadians(yaw)), Math.cos(Math.toRadians(yaw)));
+    }
+    
+    /**
+     * Accelerates backward relative to the look direction.
+     *
+     * @param yaw the horizontal look direction in degrees
+     */
+    public void moveBackward(double yaw) {
+        accelerate(-Math.sin(Math.toRadians(yaw)), -Math.cos(Math.toRadians(yaw)));
+    }
+    
+    /**
+     * Accelerates to the left of the look direction.
+     *
+     * @param yaw the horizontal look direction in degrees
+     */
+    public void strafeLeft(double yaw) {
+        accelerate(Math.sin(Math.toRadians(yaw - 90)), Math.cos(Math.toRadians(yaw - 90)));
+    }
+    
+    /**
+     * Accelerates to the right of the look direction.
+     *
+     * @param yaw the horizontal look direction in degrees
+     */
+    public void strafeRight(double yaw) {
+        accelerate(Math.sin(Math.toRadians(yaw + 90)), Math.cos(Math.toRadians(yaw + 90)));
+    }
+    
+    /**
+     * Accelerates in the specified direction, clamping to the maximum speed.
+     *
+     * @param dirX the x component of the direction
+     * @param dirZ the z component of the direction
+     */
+    public void accelerate(double dirX, double dirZ) {
+        velocityX += dirX * ACCELERATION;
+        velocityZ += dirZ * ACCELERATION;
+        
+        // Clamp to max speed
+        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+        if (speed > MAX_SPEED) {
+            velocityX = (velocityX / speed) * MAX_SPEED;
+            velocityZ = (velocityZ / speed) * MAX_SPEED;
+        }
+    }
+    
+    /**
+     * Stops horizontal movement.
+     */
+    public void stop() {
+        velocityX = 0;
+        velocityZ = 0;
+    }
+    
+    /**
+     * Advances the player by one tick: applies velocity, resolves wall collisions,
+     * checks the exit and applies deceleration.
+     *
+     * @param labyrinth the labyrinth the player is in
+     * @return true if the player has reached the exit
+     */
+    public boolean step(LabyrinthGenerator labyrinth) {
+        // Apply velocity
+        x += velocityX;
+        z += velocityZ;
+        
+        // Move back to resolve collision
+        if (collides(labyrinth, x, z, layer)) {
+            x -= velocityX;
+            z -= velocityZ;
+            stop();
+        }
+        
+        climb(labyrinth);
+        boolean atExit = isAtExit(labyrinth, x, z, layer);
+        
+        applyDeceleration();
+        return atExit;
+    }
+    
+    /**
+     * Walks a fixed distance in the direction of the held movement input, the way the game moves the player.
+     * Opposite inputs cancel out, and diagonal input walks the same distance as straight input.
+     *
+     * @param labyrinth the labyrinth the player is in
+     * @param flags the input flags from {@link SimulationSession}
+     * @param yaw the horizontal look direction in degrees
+     * @param distance the distance to walk
+     * @return true if the held input moves the player
+     */
+    public boolean walk(LabyrinthGenerator labyrinth, int flags, double yaw, double distance) {
+        double forward = ((flags & SimulationSession.FORWARD) != 0 ? 1 : 0)
+                - ((flags & SimulationSession.BACKWARD) != 0 ? 1 : 0);
+        double right = ((flags & SimulationSession.RIGHT) != 0 ? 1 : 0)
+                - ((flags & SimulationSession.LEFT) != 0 ? 1 : 0);
+        if (forward == 0 && right == 0) {
+            return false;
+        }
+        
+        // Forward is (sin, cos) of the yaw, right is forward turned by 90 degrees
+        double sin = Math.sin(Math.toRadians(yaw));
+        double cos = Math.cos(Math.toRadians(yaw));
+        double dirX = forward * sin + right * cos;
+        double dirZ = forward * cos - right * sin;
+        double length = Math.sqrt(dirX * dirX + dirZ * dirZ);
+        
+        walk(labyrinth, dirX / length, dirZ / length, distance);
+        return true;
+    }
+    
+    /**
+     * Walks a fixed distance without momentum, one axis at a time so the
+     * player slides along walls instead of stopping at them.
+     *
+     * @param labyrinth the labyrinth the player is in
+     * @param dirX the x component of the normalized direction
+     * @param dirZ the z component of the normalized direction
+     * @param distance the distance to walk
+     * @return true if the player has reached the exit
+     */
+    public boolean walk(LabyrinthGenerator labyrinth, double dirX, double dirZ, double distance) {
+        double nextX = x + dirX * distance;
+        if (!collides(labyrinth, nextX, z, layer)) {
+            x = nextX;
+        }
+        
+        double nextZ = z + dirZ * distance;
+        if (!collides(labyrinth, x, nextZ, layer)) {
+            z = nextZ;
+        }
+        
+        climb(labyrinth);
+        return isAtExit(labyrinth, x, z, layer);
+    }
+    
+    /**
+     * Changes the storey when the player has just entered a stairwell.
+     * Standing in the stairwell at the other end does not take the player back,
+     * only leaving it and entering again does.
+     *
+     * @param labyrinth the labyrinth the player is in
+     */
+    private void climb(LabyrinthGenerator labyrinth) {
+        int currentX = LabyrinthGenerator.toCell(x);
+        int currentZ = LabyrinthGenerator.toCell(z);
+        if (currentX == cellX && currentZ == cellZ) {
+            return;
+        }
+        cellX = currentX;
+        cellZ = currentZ;
+        layer += labyrinth.getStairs(currentX, currentZ, layer);
+    }
+    
+    /**
+     * Applies deceleration to smooth out movement.
+     */
+    public void applyDeceleration() {
+        velocityX = decelerate(velocityX);
+        velocityZ = decelerate(velocityZ);
+    }
+    
+    /**
+     * Moves a single velocity component towards zero.
+     *
+     * @param velocity the velocity component
+     * @return the decelerated velocity component
+     */
+    private static double decelerate(double velocity) {
+        if (velocity > 0) {
+            return Math.max(0, velocity - DECELERATION);
+        } else if (velocity < 0) {
+            return Math.min(0, velocity + DECELERATION);
+        }
+        return 0;
+    }
+    
+    /**
+     * Checks whether a player standing at the specified position of the ground storey overlaps a wall.
+     *
+     * @param labyrinth the labyrinth
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     * @return true if the player overlaps a wall cell
+     */
+    public static boolean collides(LabyrinthGenerator labyrinth, double x, double z) {
+        return collides(labyrinth, x, z, 0);
+    }
+    
+    /**
+     * Checks whether a player standing at the specified position overlaps a wall.
+     * Only the cells under the player's bounding box on the player's storey are tested.
+     *
+     * @param labyrinth the labyrinth
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     * @param layer the storey
+     * @return true if the player overlaps a wall cell
+     */
+    public static boolean collides(LabyrinthGenerator labyrinth, double x, double z, int layer) {
+        double cell = LabyrinthGenerator.getCellSize();
+        double half = cell / 2;
+        
+        // Wall cells are centered on multiples of the cell size
+        int minX = (int) Math.floor((x - HALF_SIZE + half) / cell);
+        int maxX = (int) Math.floor((x + HALF_SIZE + half) / cell);
+        int minZ = (int) Math.floor((z - HALF_SIZE + half) / cell);
+        int maxZ = (int) Math.floor((z + HALF_SIZE + half) / cell);
+        
+        for (int cz = minZ; cz <= maxZ; cz++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                if (labyrinth.isWall(cx, cz, layer)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether the specified position of the ground storey is close enough to the exit.
+     *
+     * @param labyrinth the labyrinth
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     * @return true if the exit has been reached
+     */
+    public static boolean isAtExit(LabyrinthGenerator labyrinth, double x, double z) {
+        return isAtExit(labyrinth, x, z, 0);
+    }
+    
+    /**
+     * Checks whether the specified position is close enough to the exit.
+     *
+     * @param labyrinth the labyrinth
+     * @param x the x-coordinate in the 3D world
+     * @param z the z-coordinate in the 3D world
+     * @param layer the storey
+     * @return true if the exit has been reached
+     */
+    public static boolean isAtExit(LabyrinthGenerator labyrinth, double x, double z, int layer) {
+        if (layer != labyrinth.getExitLayer()) {
+            return false;
+        }
+        
+        // Calculate 2D distance (ignoring Y)
+        double dx = x - labyrinth.getExitX();
+        double dz = z - labyrinth.getExitZ();
+        return dx * dx + dz * dz < EXIT_RADIUS * EXIT_RADIUS;
+    }
+    
+    /**
+     * Gets the x-coordinate in the 3D world.
+     *
+     * @return the x-coordinate
+     */
+    public double getX() {
+        return x;
+    }
+    
+    /**
+     * Gets the z-coordinate in the 3D world.
+     *
+     * @return the z-coordinate
+     */
+    public double getZ() {
+        return z;
+    }
+    
+    /**
+     * Gets the storey the player is on.
+     *
+     * @return the storey
+     */
+    public int getLayer() {
+        return layer;
+    }
+    
+    /**
+     * Gets the velocity along the x axis per tick.
+     *
+     * @return the x velocity
+     */
+    public double getVelocityX() {
+        return velocityX;
+    }
+    
+    /**
+     * Gets the velocity along the z axis per tick.
+     *
+     * @return the z velocity
+     */
+    public double getVelocityZ() {
+        return velocityZ;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for the headless simulation.
+ * Starts many sessions that wander randomly through their labyrinths at the fixed
+ * tick rate, then reports the tick latency percentiles.
+ *
+ * <p>Usage: {@code SimulationLoadTest [--sessions N] [--seconds S] [--loopback] [--capacity]}.
+ * With {@code --loopback} the sessions are driven by clients over the loopback protocol
+ * of {@link SimulationServer}, otherwise they run in-process.
+ * With {@code --capacity} the test measures how many sessions one core can host: starting at N,
+ * the session count doubles until the tick p99 exceeds the tick period, then the highest count
+ * that holds is narrowed down, every run lasting S seconds.
+ */
+public class SimulationLoadTest {
+    // Ticks between random input changes
+    private static final int INPUT_CHANGE_TICKS = 30;
+    
+    // Percentile of the tick latency that has to stay within the tick period
+    private static final double CAPACITY_PERCENTILE = 99;
+    
+    // The capacity search stops once the holding and the failing count are this close, relatively
+    private static final double CAPACITY_PRECISION = 0.05;
+    
+    /**
+     * Runs the load test.
+     *
+     * @param args command line arguments
+     * @throws Exception if the test cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        int sessionCount = 1000;
+        int seconds = 10;
+        boolean loopback = false;
+        boolean capacity = false;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions" -> sessionCount = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--loopback" -> loopback = true;
+                case "--capacity" -> capacity = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        if (capacity) {
+            measureCapacity(sessionCount, seconds, loopback);
+            return;
+        }
+        report(sessionCount, seconds, loopback, run(sessionCount, seconds, loopback));
+    }
+        
+    /**
+     * Runs sessions for a while.
+     *
+     * @param sessionCount the number of sessions
+     * @param seconds the test duration
+     * @param loopback whether sessions are driven over the loopback protocol
+     * @return the merged tick latencies
+     * @throws Exception if the sessions cannot be run
+     */
+    private static LatencyHistogram run(int sessionCount, int seconds, boolean loopback) throws Exception {
+        return loopback ? runLoopback(sessionCount, seconds) : runInProcess(sessionCount, seconds);
+    }
+    
+    /**
+     * Finds the highest session count whose tick p99 stays within the tick period and reports it per core.
+     *
+     * @param startCount the session count to start with
+     * @param seconds the duration of every run
+     * @param loopback whether sessions are driven over the loopback protocol
+     * @throws Exception if the sessions cannot be run
+     */
+    private static void measureCapacity(int startCount, int seconds, boolean loopback) throws Exception {
+        int holding = 0;
+        int failing = 0;
+        
+        // Double until the latency no longer holds, then bisect between the last two counts
+        int count = Math.max(1, startCount);
+        while (failing == 0 || failing - holding > Math.max(1, holding * CAPACITY_PRECISION)) {
+            LatencyHistogram latency = run(count, seconds, loopback);
+            long p99 = latency.getPercentile(CAPACITY_PERCENTILE);
+            boolean holds = latency.getCount() > 0 && p99 <= SimulationSession.TICK_NANOS;
+            System.out.printf("%d sessions: p99 %.2f ms, %s%n", count, p99 / 1e6, holds ? "holds" : "too slow");
+            
+            if (holds) {
+                holding = count;
+            } else {
+                failing = count;
+            }
+            if (failing == 0) {
+                count = count > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : count * 2;
+            } else {
+                count = holding + (failing - holding) / 2;
+            }
+        }
+        
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Mode: %s%n", loopback ? "loopback" : "in-process");
+        if (holding == 0) {
+            System.out.printf("Capacity: not even %d sessions keep the tick p99 within %.2f ms%n",
+                    failing, SimulationSession.TICK_NANOS / 1e6);
+        } else {
+            System.out.printf("Capacity: %d sessions on %d cores (%.1f sessions/core) with tick p99 within %.2f ms%n",
+                    holding, cores, (double) holding / cores, SimulationSession.TICK_NANOS / 1e6);
+        }
+    }
+    
+    /**
+     * Runs sessions directly on virtual threads.
+     *
+     * @param sessionCount the number of sessions
+     * @param seconds the test duration
+     * @return the merged tick latencies
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static LatencyHistogram runInProcess(int sessionCount, int seconds) throws InterruptedException {
+        List<SimulationSession> sessions = new ArrayList<>(sessionCount);
+        List<Thread> threads = new ArrayList<>(sessionCount);
+        
+        for (int i = 0; i < sessionCount; i++) {
+            SimulationSession session = new SimulationSession(i, i);
+            SplittableRandom random = new SplittableRandom(i);
+            session.setListener(s -> {
+                if (s.getTick() % INPUT_CHANGE_TICKS == 0) {
+                    s.setInput(random.nextInt(16), random.nextDouble(360));
+                }
+            });
+            sessions.add(session);
+        }
+        for (SimulationSession session : sessions) {
+            threads.add(Thread.ofVirtual().name("session-" + session.getId()).start(session));
+        }
+        
+        TimeUnit.SECONDS.sleep(seconds);
+        
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < sessionCount; i++) {
+            sessions.get(i).stop();
+            threads.get(i).join();
+            latency.merge(sessions.get(i).getLatency());
+        }
+        return latency;
+    }
+    
+    /**
+     * Runs sessions on a simulation server, each driven by a loopback client.
+     *
+     * @param sessionCount the number of sessions
+     * @param seconds the test duration
+     * @return the merged tick latencies
+     * @throws Exception if the server or a client fails
+     */
+    private static LatencyHistogram runLoopback(int sessionCount, int seconds) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        
+        try (SimulationServer server = SimulationServer.start(0)) {
+            List<Thread> clients = new ArrayList<>(sessionCount);
+            for (int i = 0; i < sessionCount; i++) {
+                int seed = i;
+                clients.add(Thread.ofVirtual().name("client-" + i).start(() -> runClient(server.getPort(), seed, end)));
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            
+            // Wait for the server to wind down the sessions of disconnected clients
+            while (server.getSessionCount() > 0) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            return server.getFinishedLatency();
+        }
+    }
+    
+    /**
+     * A loopback client wandering randomly until the end time.
+     *
+     * @param port the server port
+     * @param seed the session seed
+     * @param end the end time in System.nanoTime() units
+     */
+    private static void runClient(int port, long seed, long end) {
+        SplittableRandom random = new SplittableRandom(seed);
+        
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            writer.write("NEW " + seed + "\n");
+            writer.flush();
+            reader.readLine();
+            
+            long states = 0;
+            String line;
+            while (System.nanoTime() < end && (line = reader.readLine()) != null) {
+                if (line.startsWith("STATE") && states++ % INPUT_CHANGE_TICKS == 0) {
+                    writer.write("INPUT " + random.nextInt(16) + " " + random.nextDouble(360) + "\n");
+                    writer.flush();
+                }
+            }
+            
+            writer.write("QUIT\n");
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Client " + seed + " failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Prints the load test results.
+     *
+     * @param sessionCount the number of sessions
+     * @param seconds the test duration
+     * @param loopback whether sessions were driven over the loopback protocol
+     * @param latency the merged tick latencies
+     */
+    private static void report(int sessionCount, int seconds, boolean loopback, LatencyHistogram latency) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long ticks = latency.getCount();
+        long missed = latency.countAbove(SimulationSession.TICK_NANOS);
+        
+        System.out.printf("Mode: %s%n", loopback ? "loopback" : "in-process");
+        System.out.printf("Sessions: %d on %d cores, see --capacity for how many one core can host%n",
+                sessionCount, cores);
+        System.out.printf("Ticks: %d (%.1f ticks/s per session, target %d)%n",
+                ticks, (double) ticks / sessionCount / seconds, SimulationSession.TICKS_PER_SECOND);
+        System.out.printf("Tick latency: %s%n", latency.summary());
+        System.out.printf("Ticks later than one tick period: %.3f%%%n", ticks == 0 ? 0 : 100.0 * missed / ticks);
+    }
+}
\ No newline at end of file
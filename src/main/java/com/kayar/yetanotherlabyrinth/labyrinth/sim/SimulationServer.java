@@ -0,0 +1,225 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless server hosting many labyrinth sessions on the loopback interface.
+ * Every connection owns one session; the connection and the session each run
+ * on their own virtual thread.
+ *
+ * <p>Line based protocol:
+ * <pre>
+ * client: NEW &lt;seed&gt;              server: SESSION &lt;id&gt;
+ * client: INPUT &lt;flags&gt; &lt;yaw&gt;     (applied from the next tick on)
+ * client: QUIT
+ * server: STATE &lt;tick&gt; &lt;level&gt; &lt;x&gt; &lt;z&gt;   (after every tick)
+ * </pre>
+ */
+public class SimulationServer implements AutoCloseable {
+    // Default port of the server
+    public static final int DEFAULT_PORT = 7777;
+    
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    
+    // Running sessions and the latencies of the finished ones
+    private final Map<Integer, SimulationSession> sessions = new ConcurrentHashMap<>();
+    private final LatencyHistogram finishedLatency = new LatencyHistogram();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    
+    /**
+     * Creates a server accepting connections on the specified socket.
+     *
+     * @param serverSocket the bound server socket
+     */
+    private SimulationServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+        this.acceptor = Thread.ofVirtual().name("simulation-acceptor").unstarted(this::acceptLoop);
+    }
+    
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port the port, or 0 to pick a free one
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static SimulationServer start(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        SimulationServer server = new SimulationServer(serverSocket);
+        server.acceptor.start();
+        return server;
+    }
+    
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Gets the number of running sessions.
+     *
+     * @return the session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    
+    /**
+     * Collects the tick latencies of all finished sessions.
+     *
+     * @return a copy of the merged latency histogram
+     */
+    public LatencyHistogram getFinishedLatency() {
+        LatencyHistogram copy = new LatencyHistogram();
+        synchronized (finishedLatency) {
+            copy.merge(finishedLatency);
+        }
+        return copy;
+    }
+    
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("simulation-client").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Could not accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Serves a single client connection.
+     *
+     * @param socket the client socket
+     */
+    private void serve(Socket socket) {
+        SimulationSession session = null;
+        Thread sessionThread = null;
+        
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            
+            // Handshake
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("NEW ")) {
+                writer.write("ERROR expected NEW <seed>\n");
+                writer.flush();
+                return;
+            }
+            session = new SimulationSession(nextId.getAndIncrement(), Long.parseLong(line.substring(4).trim()));
+            writer.write("SESSION " + session.getId() + "\n");
+            writer.flush();
+            
+            // The session thread streams its state after every tick
+            SimulationSession running = session;
+            session.setListener(s -> sendState(writer, running));
+            sessions.put(session.getId(), session);
+            sessionThread = Thread.ofVirtual().name("simulation-session-" + session.getId()).start(session);
+            
+            // Read client input until it quits or disconnects
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts[0].equals("INPUT") && parts.length == 3) {
+                    session.setInput(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+                } else if (parts[0].equals("QUIT")) {
+                    break;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // The client went away or sent garbage, just end its session
+        } finally {
+            if (session != null) {
+                finishSession(session, sessionThread);
+            }
+        }
+    }
+    
+    /**
+     * Writes the state of a session to its client.
+     * Stops the session if the client cannot be reached anymore.
+     *
+     * @param writer the client writer
+     * @param session the session
+     */
+    private static void sendState(Writer writer, SimulationSession session) {
+        try {
+            writer.write("STATE " + session.getTick() + " " + session.getLevel() + " "
+                    + session.getMotion().getX() + " " + session.getMotion().getZ() + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            session.stop();
+        }
+    }
+    
+    /**
+     * Stops a session and keeps its latency statistics.
+     *
+     * @param session the session
+     * @param sessionThread the thread running the session, may be null
+     */
+    private void finishSession(SimulationSession session, Thread sessionThread) {
+        session.stop();
+        if (sessionThread != null) {
+            try {
+                sessionThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        sessions.remove(session.getId());
+        synchronized (finishedLatency) {
+            finishedLatency.merge(session.getLatency());
+        }
+    }
+    
+    /**
+     * Stops accepting connections.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+    
+    /**
+     * Runs the server until the process is killed.
+     *
+     * @param args optional port
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        SimulationServer server = start(port);
+        System.out.println("Simulation server listening on 127.0.0.1:" + server.getPort());
+        server.acceptor.join();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single headless labyrinth run.
+ * Owns the labyrinth grid and the player motion, walks the player by the current input
+ * once per tick like the game does and advances to the next level when the exit is reached.
+ * When run as a thread it ticks at a fixed rate and records how late each tick finished.
+ */
+public class SimulationSession implements Runnable {
+    // Input flags
+    public static final int FORWARD = 1;
+    public static final int BACKWARD = 2;
+    public static final int LEFT = 4;
+    public static final int RIGHT = 8;
+    
+    // Fixed tick rate of a running session
+    public static final int TICKS_PER_SECOND = 60;
+    public static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    
+    // Distance walked per tick, the game camera's default speed of 15 world units per second
+    public static final double STEP_DISTANCE = 15.0 / TICKS_PER_SECOND;
+    
+    // Default labyrinth size, same as the game uses
+    private static final int DEFAULT_LABYRINTH_SIZE = 20;
+    
+    /**
+     * Receives a callback after every tick of a running session.
+     */
+    public interface Listener {
+        
+        /**
+         * Called on the session thread after a tick.
+         *
+         * @param session the session that ticked
+         */
+        void onTick(SimulationSession session);
+    }
+    
+    // Session identity
+    private final int id;
+    private final long seed;
+    
+    // Game state
+    private final PlayerMotion motion = new PlayerMotion();
+    private LabyrinthGenerator labyrinth;
+    private int labyrinthSize;
+    private int level = 0;
+    private long tick = 0;
+    
+    // Input written by clients, read by the session thread
+    private volatile int input = 0;
+    private volatile double yaw = 0;
+    private volatile boolean running = true;
+    
+    // Tick statistics
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private Listener listener;
+    
+    /**
+     * Creates a new session and loads its first level.
+     *
+     * @param id the session id
+     * @param seed the seed all levels of this session are derived from
+     */
+    public SimulationSession(int id, long seed) {
+        this(id, seed, DEFAULT_LABYRINTH_SIZE);
+    }
+    
+    /**
+     * Creates a new session with the specified labyrinth size and loads its first level.
+     *
+     * @param id the session id
+     * @param seed the seed all levels of this session are derived from
+     * @param labyrinthSize the width and height of the labyrinths
+     */
+    public SimulationSession(int id, long seed, int labyrinthSize) {
+        this.id = id;
+        this.seed = seed;
+        this.labyrinthSize = labyrinthSize;
+        loadLevel(1);
+    }
+    
+    /**
+     * Sets the input applied on the following ticks.
+     *
+     * @param input the input flags
+     * @param yaw the horizontal look direction in degrees
+     */
+    public void setInput(int input, double yaw) {
+        this.input = input;
+        this.yaw = yaw;
+    }
+    
+    /**
+     * Sets the listener called after every tick of a running session.
+     *
+     * @param listener the listener
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Sets the size of the labyrinths generated for the following levels.
+     *
+     * @param labyrinthSize the width and height of the labyrinths
+     */
+    public void setLabyrinthSize(int labyrinthSize) {
+        this.labyrinthSize = labyrinthSize;
+    }
+    
+    /**
+     * Stops a running session after its current tick.
+     */
+    public void stop() {
+        running = false;
+    }
+    
+    /**
+     * Advances the simulation by one tick, loading the next level when the exit is reached.
+     *
+     * @return true if the player reached the exit and the next level was loaded
+     */
+    public boolean tick() {
+        if (step()) {
+            nextLevel();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Applies the current input and moves the player, without loading the next level.
+     *
+     * @return true if the player has reached the exit
+     */
+    public boolean step() {
+        motion.walk(labyrinth, input, yaw, STEP_DISTANCE);
+        tick++;
+        return PlayerMotion.isAtExit(labyrinth, motion.getX(), motion.getZ(), motion.getLayer());
+    }
+    
+    /**
+     * Generates the next level and places the player at its start.
+     */
+    public void nextLevel() {
+        loadLevel(level + 1);
+    }
+    
+    /**
+     * Ticks at a fixed rate until stopped.
+     * The latency of a tick is the time from its scheduled start to its completion,
+     * so it includes both scheduling delays and the tick itself.
+     */
+    @Override
+    public void run() {
+        long deadline = System.nanoTime();
+        while (running) {
+            deadline += TICK_NANOS;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            
+            tick();
+            latency.record(System.nanoTime() - deadline);
+            
+            if (listener != null) {
+                listener.onTick(this);
+            }
+        }
+    }
+    
+    /**
+     * Generates a level and places the player at its start.
+     *
+     * @param levelNumber the level number
+     */
+    private void loadLevel(int levelNumber) {
+        level = levelNumber;
+        labyrinth = new LabyrinthGenerator(labyrinthSize, labyrinthSize, seed * 31 + levelNumber);
+        labyrinth.generate();
+        motion.reset(labyrinth.getStartX(), labyrinth.getStartZ());
+    }
+    
+    /**
+     * Gets the session id.
+     *
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Gets the number of ticks run so far.
+     *
+     * @return the tick count
+     */
+    public long getTick() {
+        return tick;
+    }
+    
+    /**
+     * Gets the current level number.
+     *
+     * @return the level number
+     */
+    public int getLevel() {
+        return level;
+    }
+    
+    /**
+     * Gets the current labyrinth.
+     *
+     * @return the labyrinth
+     */
+    public LabyrinthGenerator getLabyrinth() {
+        return labyrinth;
+    }
+    
+    /**
+     * Gets the player motion.
+     *
+     * @return the player motion
+     */
+    public PlayerMotion getMotion() {
+        return motion;
+    }
+    
+    /**
+     * Gets the tick latencies recorded while running.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free handoff of immutable snapshots from exactly one producer thread
+ * to exactly one consumer thread.
+ * Only the newest snapshot is kept: the producer never blocks and replaces a snapshot
+ * the consumer has not taken yet, so after a stall the consumer gets the latest state
+ * rather than the one from the start of the stall.
+ *
+ * @param <T> the snapshot type, must be immutable
+ */
+public class SnapshotBuffer<T> {
+    // Newest snapshot not taken yet
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    
+    // Snapshots replaced before the consumer took them, written by the producer only
+    private volatile long dropped = 0;
+    
+    /**
+     * Publishes a snapshot. Must only be called from the producer thread.
+     *
+     * @param snapshot the snapshot
+     * @return the snapshot it replaced because the consumer had not taken it, or null
+     */
+    public T offer(T snapshot) {
+        T replaced = latest.getAndSet(snapshot);
+        if (replaced != null) {
+            dropped++;
+        }
+        return replaced;
+    }
+    
+    /**
+     * Takes the newest snapshot. Must only be called from the consumer thread.
+     *
+     * @return the newest snapshot, or null if nothing was published since the last call
+     */
+    public T pollLatest() {
+        return latest.getAndSet(null);
+    }
+    
+    /**
+     * Gets the number of snapshots replaced because the consumer fell behind.
+     *
+     * @return the dropped snapshot count
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.bot;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.PlayerMotion;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationSession;
+
+/**
+ * Steers a simulation session from cell center to cell center.
+ * The strategy picks the next cell, the bot turns towards it and holds forward,
+ * so the regular movement and collision rules move the player.
+ */
+public class BotPlayer {
+    // How close to a cell center counts as arrived, a session player walks this far per tick
+    private static final double ARRIVAL_DISTANCE = SimulationSession.STEP_DISTANCE;
+    
+    private final BotStrategy strategy;
+    private final double arrivalDistance;
+    
+    // Level the strategy was last prepared for
+    private int level = -1;
+    
+    // Cell the bot is walking to
+    private int targetX;
+    private int targetZ;
+    
+    /**
+     * Creates a bot for the player of a {@link SimulationSession}.
+     *
+     * @param strategy the strategy choosing the next cell
+     */
+    public BotPlayer(BotStrategy strategy) {
+        this(strategy, ARRIVAL_DISTANCE);
+    }
+    
+    /**
+     * Creates a bot for players that walk another distance per tick.
+     *
+     * @param strategy the strategy choosing the next cell
+     * @param arrivalDistance how close to a cell center counts as arrived, at least half a step
+     */
+    public BotPlayer(BotStrategy strategy, double arrivalDistance) {
+        this.strategy = strategy;
+        this.arrivalDistance = arrivalDistance;
+    }
+    
+    /**
+     * Sets the input of the session for the next tick.
+     *
+     * @param session the session to steer
+     */
+    public void steer(SimulationSession session) {
+        PlayerMotion motion = session.getMotion();
+        double yaw = steer(session.getLabyrinth(), session.getLevel(), motion.getX(), motion.getZ());
+        session.setInput(SimulationSession.FORWARD, yaw);
+    }
+    
+    /**
+     * Chooses the look direction for the next tick, walking forward along it.
+     *
+     * @param labyrinth the labyrinth
+     * @param levelNumber the current level number
+     * @param x the x-coordinate of the player in the 3D world
+     * @param z the z-coordinate of the player in the 3D world
+     * @return the yaw in degrees
+     */
+    public double steer(LabyrinthGenerator labyrinth, int levelNumber, double x, double z) {
+        double cellSize = LabyrinthGenerator.getCellSize();
+        
+        // Prepare the strategy for a new level
+        if (levelNumber != level) {
+            level = levelNumber;
+            strategy.onLevelStart(labyrinth);
+            targetX = LabyrinthGenerator.toCell(x);
+            targetZ = LabyrinthGenerator.toCell(z);
+        }
+        
+        // Pick the next cell once the current target has been reached
+        double dx = targetX * cellSize - x;
+        double dz = targetZ * cellSize - z;
+        if (dx * dx + dz * dz < arrivalDistance * arrivalDistance) {
+            int direction = strategy.nextDirection(labyrinth, targetX, targetZ);
+            targetX += BotStrategy.DX[direction];
+            targetZ += BotStrategy.DZ[direction];
+            dx = targetX * cellSize - x;
+            dz = targetZ * cellSize - z;
+        }
+        
+        // Forward moves along (sin(yaw), cos(yaw))
+        return Math.toDegrees(Math.atan2(dx, dz));
+    }
+    
+    /**
+     * Gets the strategy of this bot.
+     *
+     * @return the strategy
+     */
+    public BotStrategy getStrategy() {
+        return strategy;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.bot;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * Decides which neighboring cell a bot walks to next.
+ * Directions are numbered clockwise: 0 = +x, 1 = +z, 2 = -x, 3 = -z.
+ */
+public interface BotStrategy {
+    // Cell offsets for each direction
+    int[] DX = {1, 0, -1, 0};
+    int[] DZ = {0, 1, 0, -1};
+    
+    /**
+     * Gets the name used in reports.
+     *
+     * @return the strategy name
+     */
+    String getName();
+    
+    /**
+     * Called when a new labyrinth has been loaded.
+     *
+     * @param labyrinth the new labyrinth
+     */
+    void onLevelStart(LabyrinthGenerator labyrinth);
+    
+    /**
+     * Chooses the direction to leave the current cell in.
+     *
+     * @param labyrinth the labyrinth
+     * @param cellX the x-coordinate of the current cell
+     * @param cellZ the z-coordinate of the current cell
+     * @return the direction to move in
+     */
+    int nextDirection(LabyrinthGenerator labyrinth, int cellX, int cellZ);
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.bot;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Walks the shortest path to the exit.
+ * A distance field from the exit is computed once per level, after that every
+ * decision is a lookup of the neighbor closest to the exit.
+ */
+public class ShortestPathBot implements BotStrategy {
+    // Distance to the exit per cell, reused between levels when large enough
+    private int[] distance = new int[0];
+    private int[] queue = new int[0];
+    private int width;
+    
+    /**
+     * Gets the name used in reports.
+     *
+     * @return the strategy name
+     */
+    @Override
+    public String getName() {
+        return "shortest-path";
+    }
+    
+    /**
+     * Called when a new labyrinth has been loaded.
+     *
+     * @param labyrinth the new labyrinth
+     */
+    @Override
+    public void onLevelStart(LabyrinthGenerator labyrinth) {
+        width = labyrinth.getWidth();
+        int cells = width * labyrinth.getHeight();
+        if (distance.length < cells) {
+            distance = new int[cells];
+            queue = new int[cells];
+        }
+        Arrays.fill(distance, 0, cells, Integer.MAX_VALUE);
+        
+        // Breadth-first search from the exit
+        int exitX = LabyrinthGenerator.toCell(labyrinth.getExitX());
+        int exitZ = LabyrinthGenerator.toCell(labyrinth.getExitZ());
+        int head = 0;
+        int tail = 0;
+        distance[exitZ * width + exitX] = 0;
+        queue[tail++] = exitZ * width + exitX;
+        
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int z = cell / width;
+            for (int direction = 0; direction < 4; direction++) {
+                int nextX = x + DX[direction];
+                int nextZ = z + DZ[direction];
+                if (!labyrinth.isWall(nextX, nextZ) && distance[nextZ * width + nextX] == Integer.MAX_VALUE) {
+                    distance[nextZ * width + nextX] = distance[cell] + 1;
+                    queue[tail++] = nextZ * width + nextX;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Chooses the direction to leave the current cell in.
+     *
+     * @param labyrinth the labyrinth
+     * @param cellX the x-coordinate of the current cell
+     * @param cellZ the z-coordinate of the current cell
+     * @return the direction to move in
+     */
+    @Override
+    public int nextDirection(LabyrinthGenerator labyrinth, int cellX, int cellZ) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            int nextX = cellX + DX[direction];
+            int nextZ = cellZ + DZ[direction];
+            if (!labyrinth.isWall(nextX, nextZ) && distance[nextZ * width + nextX] < bestDistance) {
+                best = direction;
+                bestDistance = distance[nextZ * width + nextX];
+            }
+        }
+        return best;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.bot;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.LatencyHistogram;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationSession;
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Soak benchmark for the gameplay hot paths.
+ * Bots play thousands of levels of growing size at uncapped speed, walking with the
+ * movement, collision and exit rules of the game through {@link SimulationSession}.
+ * Reports ticks per second, allocation per tick and level transition latency,
+ * and exits with status 1 when a bot gets stuck or a threshold is exceeded.
+ *
+ * <p>Usage: {@code SoakBenchmark [--levels N] [--min-size N] [--max-size N]
+ * [--min-ticks-per-second N] [--max-bytes-per-tick N]}.
+ */
+public class SoakBenchmark {
+    // Ticks a bot may spend per cell before it is considered stuck, a step is an eighth of a cell
+    private static final int MAX_TICKS_PER_CELL = 100;
+    
+    // Seed all benchmark levels are derived from
+    private static final long SEED = 42;
+    
+    /**
+     * Runs the benchmark for all strategies.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int levels = 2000;
+        int minSize = 11;
+        int maxSize = 61;
+        double minTicksPerSecond = 0;
+        double maxBytesPerTick = Double.MAX_VALUE;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--levels" -> levels = Integer.parseInt(args[++i]);
+                case "--min-size" -> minSize = Integer.parseInt(args[++i]);
+                case "--max-size" -> maxSize = Integer.parseInt(args[++i]);
+                case "--min-ticks-per-second" -> minTicksPerSecond = Double.parseDouble(args[++i]);
+                case "--max-bytes-per-tick" -> maxBytesPerTick = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        boolean passed = true;
+        for (BotStrategy strategy : List.of(new ShortestPathBot(), new WallFollowerBot())) {
+            passed &= run(new BotPlayer(strategy), levels, minSize, maxSize, minTicksPerSecond, maxBytesPerTick);
+        }
+        
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Lets a bot play all levels and prints its report.
+     *
+     * @param bot the bot
+     * @param levels the number of levels to play
+     * @param minSize the size of the first level
+     * @param maxSize the size of the last level
+     * @param minTicksPerSecond the lowest acceptable tick rate
+     * @param maxBytesPerTick the highest acceptable steady state allocation per tick
+     * @return true if the bot finished all levels within the thresholds
+     */
+    private static boolean run(BotPlayer bot, int levels, int minSize, int maxSize,
+                               double minTicksPerSecond, double maxBytesPerTick) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SimulationSession session = new SimulationSession(0, SEED, minSize);
+        session.setLabyrinthSize(sizeOf(2, levels, minSize, maxSize));
+        
+        LatencyHistogram transitions = new LatencyHistogram();
+        long ticks = 0;
+        long levelTicks = 0;
+        long transitionBytes = 0;
+        long transitionNanos = 0;
+        
+        long startBytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        
+        while (session.getLevel() <= levels) {
+            bot.steer(session);
+            ticks++;
+            levelTicks++;
+            
+            if (session.step()) {
+                // Measure the level transition on its own
+                long transitionStartBytes = threads.getCurrentThreadAllocatedBytes();
+                long transitionStart = System.nanoTime();
+                session.nextLevel();
+                long elapsed = System.nanoTime() - transitionStart;
+                transitionNanos += elapsed;
+                transitions.record(elapsed);
+                transitionBytes += threads.getCurrentThreadAllocatedBytes() - transitionStartBytes;
+                
+                session.setLabyrinthSize(sizeOf(session.getLevel() + 1, levels, minSize, maxSize));
+                levelTicks = 0;
+            } else if (levelTicks > (long) MAX_TICKS_PER_CELL * session.getLabyrinth().getWidth()
+                    * session.getLabyrinth().getHeight()) {
+                System.out.printf("%s: FAILED, stuck on level %d after %d ticks%n",
+                        bot.getStrategy().getName(), session.getLevel(), levelTicks);
+                return false;
+            }
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+        
+        double tickSeconds = (elapsed - transitionNanos) / 1e9;
+        double ticksPerSecond = ticks / tickSeconds;
+        double bytesPerTick = (double) (bytes - transitionBytes) / ticks;
+        
+        System.out.printf("%s: %d levels (size %d..%d), %d ticks in %.2f s%n",
+                bot.getStrategy().getName(), levels, minSize, maxSize, ticks, elapsed / 1e9);
+        System.out.printf("  ticks/sec: %.0f%n", ticksPerSecond);
+        System.out.printf("  allocation per tick: %.2f bytes (level transitions: %d KiB total)%n",
+                bytesPerTick, transitionBytes / 1024);
+        System.out.printf("  level transition: %s%n", transitions.summary());
+        
+        boolean passed = true;
+        if (ticksPerSecond < minTicksPerSecond) {
+            System.out.printf("  FAILED: %.0f ticks/sec is below %.0f%n", ticksPerSecond, minTicksPerSecond);
+            passed = false;
+        }
+        if (bytesPerTick > maxBytesPerTick) {
+            System.out.printf("  FAILED: %.2f bytes per tick is above %.2f%n", bytesPerTick, maxBytesPerTick);
+            passed = false;
+        }
+        return passed;
+    }
+    
+    /**
+     * Gets the labyrinth size of a level, growing linearly from the first to the last level.
+     *
+     * @param level the level number starting at 1
+     * @param levels the number of levels
+     * @param minSize the size of the first level
+     * @param maxSize the size of the last level
+     * @return the labyrinth size
+     */
+    private static int sizeOf(int level, int levels, int minSize, int maxSize) {
+        if (levels <= 1) {
+            return minSize;
+        }
+        int clamped = Math.min(level, levels);
+        return minSize + (int) ((long) (maxSize - minSize) * (clamped - 1) / (levels - 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.bot;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+/**
+ * Follows the wall on its left hand side.
+ * Always finds the exit of a perfect labyrinth, but usually walks through many dead ends.
+ */
+public class WallFollowerBot implements BotStrategy {
+    // Direction the bot is facing
+    private int heading = 0;
+    
+    /**
+     * Gets the name used in reports.
+     *
+     * @return the strategy name
+     */
+    @Override
+    public String getName() {
+        return "wall-follower";
+    }
+    
+    /**
+     * Called when a new labyrinth has been loaded.
+     *
+     * @param labyrinth the new labyrinth
+     */
+    @Override
+    public void onLevelStart(LabyrinthGenerator labyrinth) {
+        heading = 0;
+    }
+    
+    /**
+     * Chooses the direction to leave the current cell in.
+     *
+     * @param labyrinth the labyrinth
+     * @param cellX the x-coordinate of the current cell
+     * @param cellZ the z-coordinate of the current cell
+     * @return the direction to move in
+     */
+    @Override
+    public int nextDirection(LabyrinthGenerator labyrinth, int cellX, int cellZ) {
+        // Prefer left, then straight, then right, then back
+        for (int turn = 3; turn < 7; turn++) {
+            int direction = (heading + turn) % 4;
+            if (!labyrinth.isWall(cellX + DX[direction], cellZ + DZ[direction])) {
+                heading = direction;
+                return direction;
+            }
+        }
+        return heading;
+    }
+}
\ No newline at end of file
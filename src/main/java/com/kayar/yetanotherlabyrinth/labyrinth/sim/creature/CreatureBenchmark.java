@@ -0,0 +1,71 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.creature;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.LatencyHistogram;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.SimulationSession;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.BotPlayer;
+import com.kayar.yetanotherlabyrinth.labyrinth.sim.bot.ShortestPathBot;
+
+/**
+ * Benchmark for the creature swarm.
+ * A bot walks through large labyrinths while the swarm chases it, and the time of
+ * every swarm update is compared against the 60 Hz tick budget.
+ * Exits with status 1 when the 99th percentile does not fit into the budget.
+ *
+ * <p>Usage: {@code CreatureBenchmark [--creatures N] [--size N] [--ticks N]}.
+ */
+public class CreatureBenchmark {
+    // Seed all benchmark levels are derived from
+    private static final long SEED = 42;
+    
+    /**
+     * Runs the benchmark.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int creatures = 5000;
+        int size = 101;
+        int ticks = 20_000;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--creatures" -> creatures = Integer.parseInt(args[++i]);
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                case "--ticks" -> ticks = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        
+        SimulationSession session = new SimulationSession(0, SEED, size);
+        BotPlayer bot = new BotPlayer(new ShortestPathBot());
+        CreatureSwarm swarm = new CreatureSwarm();
+        swarm.spawn(session.getLabyrinth(), creatures, SEED);
+        
+        LatencyHistogram updates = new LatencyHistogram();
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            bot.steer(session);
+            if (session.tick()) {
+                swarm.spawn(session.getLabyrinth(), creatures, SEED + session.getLevel());
+            }
+            
+            long updateStart = System.nanoTime();
+            swarm.update(session.getMotion().getX(), session.getMotion().getZ());
+            updates.record(System.nanoTime() - updateStart);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        long p99 = updates.getPercentile(99);
+        System.out.printf("Creatures: %d in %dx%d labyrinths, %d ticks, %d levels%n",
+                creatures, size, size, ticks, session.getLevel());
+        System.out.printf("Swarm update: %s%n", updates.summary());
+        System.out.printf("Creature updates per second: %.0f%n", (double) creatures * ticks / seconds);
+        System.out.printf("p99 uses %.1f%% of the %d Hz tick budget%n",
+                100.0 * p99 / SimulationSession.TICK_NANOS, SimulationSession.TICKS_PER_SECOND);
+        
+        if (p99 > SimulationSession.TICK_NANOS) {
+            System.out.println("FAILED: swarm update does not fit into a tick");
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.creature;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Creatures roaming the labyrinth towards the player.
+ * Their state is kept in parallel primitive arrays, one slot per creature, and
+ * every creature steers by a single shared {@link FlowField}, so a tick costs a
+ * few array reads per creature no matter how many of them there are.
+ * Creatures never touch each other's slots, so chunks of them update in parallel.
+ */
+public class CreatureSwarm {
+    // Creatures updated by one worker
+    private static final int CHUNK_SIZE = 1024;
+    
+    // Walking speed per tick, varied per creature
+    private static final float MIN_SPEED = 0.05f;
+    private static final float MAX_SPEED = 0.09f;
+    
+    // Creatures never spawn closer than this to the player, in cells
+    private static final int SPAWN_DISTANCE = 6;
+    
+    // Creature state
+    private float[] positionX = new float[0];
+    private float[] positionZ = new float[0];
+    private float[] speed = new float[0];
+    private int count = 0;
+    
+    // Shared navigation towards the player
+    private final FlowField flowField = new FlowField();
+    private LabyrinthGenerator labyrinth;
+    
+    /**
+     * Places creatures on random open cells of a new labyrinth, away from the start.
+     *
+     * @param labyrinth the generated labyrinth
+     * @param creatureCount the number of creatures
+     * @param seed the seed for the placement
+     */
+    public void spawn(LabyrinthGenerator labyrinth, int creatureCount, long seed) {
+        this.labyrinth = labyrinth;
+        if (positionX.length < creatureCount) {
+            positionX = new float[creatureCount];
+            positionZ = new float[creatureCount];
+            speed = new float[creatureCount];
+        }
+        count = creatureCount;
+        
+        int startX = LabyrinthGenerator.toCell(labyrinth.getStartX());
+        int startZ = LabyrinthGenerator.toCell(labyrinth.getStartZ());
+        flowField.update(labyrinth, startX, startZ);
+        
+        // Collect the spawn cells, or any reachable cell in labyrinths too small for the distance
+        int width = labyrinth.getWidth();
+        int cells = width * labyrinth.getHeight();
+        int[] candidates = new int[cells];
+        int candidateCount = 0;
+        for (int minDistance = SPAWN_DISTANCE; candidateCount == 0 && minDistance >= 0; minDistance -= SPAWN_DISTANCE) {
+            for (int cell = 0; cell < cells; cell++) {
+                int distance = flowField.getDistance(cell);
+                if (distance != Integer.MAX_VALUE && distance >= minDistance) {
+                    candidates[candidateCount++] = cell;
+                }
+            }
+        }
+        
+        double cellSize = LabyrinthGenerator.getCellSize();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            int cell = candidates[random.nextInt(candidateCount)];
+            positionX[i] = (float) ((cell % width) * cellSize);
+            positionZ[i] = (float) ((cell / width) * cellSize);
+            speed[i] = MIN_SPEED + (float) random.nextDouble() * (MAX_SPEED - MIN_SPEED);
+        }
+    }
+    
+    /**
+     * Moves every creature one tick closer to the player.
+     *
+     * @param playerX the x-coordinate of the player in the 3D world
+     * @param playerZ the z-coordinate of the player in the 3D world
+     */
+    public void update(double playerX, double playerZ) {
+        if (count == 0) {
+            return;
+        }
+        flowField.update(labyrinth, LabyrinthGenerator.toCell(playerX), LabyrinthGenerator.toCell(playerZ));
+        
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks == 1) {
+            updateRange(0, count, (float) playerX, (float) playerZ);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(chunk ->
+                    updateRange(chunk * CHUNK_SIZE, Math.min(count, (chunk + 1) * CHUNK_SIZE),
+                            (float) playerX, (float) playerZ));
+        }
+    }
+    
+    /**
+     * Moves a range of creatures.
+     * A creature heads for the center of the next cell of the flow field; moving
+     * between the centers of neighboring open cells never crosses a wall.
+     *
+     * @param from the first creature
+     * @param to the creature after the last one
+     * @param playerX the x-coordinate of the player
+     * @param playerZ the z-coordinate of the player
+     */
+    private void updateRange(int from, int to, float playerX, float playerZ) {
+        float cellSize = (float) LabyrinthGenerator.getCellSize();
+        int width = labyrinth.getWidth();
+        int playerCell = LabyrinthGenerator.toCell(playerZ) * width + LabyrinthGenerator.toCell(playerX);
+        
+        for (int i = from; i < to; i++) {
+            float x = positionX[i];
+            float z = positionZ[i];
+            int cellX = Math.round(x / cellSize);
+            int cellZ = Math.round(z / cellSize);
+            
+            // Head for the player in its own cell, else for the next cell. The field may still lead
+            // to a cell the player just left, creatures there wait until it catches up
+            float targetX = playerX;
+            float targetZ = playerZ;
+            int cell = cellZ * width + cellX;
+            if (cell != playerCell) {
+                byte direction = flowField.getDirection(cell);
+                if (direction == FlowField.NONE) {
+                    continue;
+                }
+                targetX = (cellX + FlowField.DX[direction]) * cellSize;
+                targetZ = (cellZ + FlowField.DZ[direction]) * cellSize;
+            }
+            
+            float dx = targetX - x;
+            float dz = targetZ - z;
+            float length = (float) Math.sqrt(dx * dx + dz * dz);
+            if (length <= speed[i]) {
+                positionX[i] = targetX;
+                positionZ[i] = targetZ;
+            } else {
+                positionX[i] = x + dx / length * speed[i];
+                positionZ[i] = z + dz / length * speed[i];
+            }
+        }
+    }
+    
+    /**
+     * Copies the creature positions for rendering.
+     *
+     * @return the positions as x, z pairs
+     */
+    public float[] copyPositions() {
+        float[] positions = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            positions[i * 2] = positionX[i];
+            positions[i * 2 + 1] = positionZ[i];
+        }
+        return positions;
+    }
+    
+    /**
+     * Gets the number of creatures.
+     *
+     * @return the creature count
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    /**
+     * Gets the x-coordinate of a creature.
+     *
+     * @param index the creature index
+     * @return the x-coordinate in the 3D world
+     */
+    public float getX(int index) {
+        return positionX[index];
+    }
+    
+    /**
+     * Gets the z-coordinate of a creature.
+     *
+     * @param index the creature index
+     * @return the z-coordinate in the 3D world
+     */
+    public float getZ(int index) {
+        return positionZ[index];
+    }
+}
\ No newline at end of file
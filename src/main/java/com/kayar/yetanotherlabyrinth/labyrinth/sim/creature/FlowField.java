@@ -0,0 +1,222 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.sim.creature;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path directions from every cell of a labyrinth towards one target cell.
+ * All creatures share one field, and its arrays are reused between updates and levels.
+ *
+ * <p>A breadth-first search over a whole planned labyrinth of 1001x1001 cells takes about
+ * 26 ms, more than a tick, so when the target moves the field is not recomputed at once.
+ * A second field is searched towards the new target a bounded number of cells per update,
+ * while the complete field keeps steering, and the two are swapped when the search is done.
+ * Labyrinths of up to {@link #CELLS_PER_UPDATE} cells are still searched within one update.
+ * A new labyrinth is searched at once, as part of loading the level.
+ */
+public class FlowField {
+    // Possible directions: right, down, left, up
+    static final int[] DX = {1, 0, -1, 0};
+    static final int[] DZ = {0, 1, 0, -1};
+    
+    // Direction value of cells without a path and of the target itself
+    public static final byte NONE = -1;
+    
+    // Cells searched per update while the target moves, about 1.5 ms
+    private static final int CELLS_PER_UPDATE = 1 << 15;
+    
+    // Field steering the creatures, and the one being searched towards a newer target
+    private Field current = new Field();
+    private Field next = new Field();
+    
+    // Search state of the next field, the queue is shared as only one field is searched at a time
+    private int[] queue = new int[0];
+    private int head = 0;
+    private int tail = 0;
+    private boolean searching = false;
+    
+    // Grid the fields were computed for
+    private LabyrinthGenerator labyrinth;
+    private int width;
+    
+    /**
+     * Points the field at a target cell. A new labyrinth is searched right away, a new target
+     * in the same labyrinth over the following updates.
+     *
+     * @param labyrinth the labyrinth
+     * @param targetX the x-coordinate of the target cell
+     * @param targetZ the z-coordinate of the target cell
+     * @return true if the field now leads to another target
+     */
+    public boolean update(LabyrinthGenerator labyrinth, int targetX, int targetZ) {
+        int target = targetZ * labyrinth.getWidth() + targetX;
+        if (labyrinth != this.labyrinth) {
+            this.labyrinth = labyrinth;
+            this.width = labyrinth.getWidth();
+            int cells = width * labyrinth.getHeight();
+            if (queue.length < cells) {
+                current.allocate(cells);
+                next.allocate(cells);
+                queue = new int[cells];
+            }
+            start(target);
+            search(Integer.MAX_VALUE);
+            swap();
+            return true;
+        }
+        
+        // Finish the search in progress before starting one towards the newest target
+        if (!searching && target != current.target) {
+            start(target);
+        }
+        if (searching && search(CELLS_PER_UPDATE)) {
+            swap();
+            return true;
+        }
+        return false;
+    }
+        
+    /**
+     * Starts searching the next field towards a target.
+     *
+     * @param target the target cell index
+     */
+    private void start(int target) {
+        next.reset(target);
+        head = 0;
+        tail = 0;
+        searching = true;
+        if (!labyrinth.isWall(target % width, target / width)) {
+            next.visit(target, 0, NONE);
+            queue[tail++] = target;
+        }
+    }
+    
+    /**
+     * Continues the breadth-first search of the next field from its target,
+     * every cell points back where it was reached from.
+     *
+     * @param maxCells the number of cells to take from the queue at most
+     * @return true if the search is done
+     */
+    private boolean search(int maxCells) {
+        int searched = 0;
+        while (head < tail && searched++ < maxCells) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int z = cell / width;
+            int distance = next.distance[cell] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int nextX = x + DX[dir];
+                int nextZ = z + DZ[dir];
+                int neighbor = nextZ * width + nextX;
+                if (!labyrinth.isWall(nextX, nextZ) && !next.isVisited(neighbor)) {
+                    next.visit(neighbor, distance, (byte) ((dir + 2) & 3));
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        searching = head < tail;
+        return !searching;
+    }
+    
+    /**
+     * Lets the completed next field steer.
+     */
+    private void swap() {
+        Field completed = next;
+        next = current;
+        current = completed;
+    }
+    
+    /**
+     * Gets the target cell the field leads to.
+     *
+     * @return the cell index, z * width + x
+     */
+    public int getTarget() {
+        return current.target;
+    }
+    
+    /**
+     * Gets the direction to leave a cell in to get closer to the target.
+     *
+     * @param cell the cell index, z * width + x
+     * @return the direction index, or {@link #NONE} at the target and for unreachable cells
+     */
+    public byte getDirection(int cell) {
+        return current.isVisited(cell) ? current.direction[cell] : NONE;
+    }
+    
+    /**
+     * Gets the walking distance from a cell to the target.
+     *
+     * @param cell the cell index, z * width + x
+     * @return the distance in cells, or Integer.MAX_VALUE if the target cannot be reached
+     */
+    public int getDistance(int cell) {
+        return current.isVisited(cell) ? current.distance[cell] : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Distances and directions towards one target. Cells are only valid when stamped with
+     * the current search, so a new search does not have to clear the arrays first.
+     */
+    private static class Field {
+        private int[] distance = new int[0];
+        private byte[] direction = new byte[0];
+        private int[] stamp = new int[0];
+        private int generation = 0;
+        private int target = -1;
+        
+        /**
+         * Makes room for a number of cells, forgetting the previous search.
+         *
+         * @param cells the number of cells
+         */
+        void allocate(int cells) {
+            distance = new int[cells];
+            direction = new byte[cells];
+            stamp = new int[cells];
+            generation = 0;
+        }
+        
+        /**
+         * Forgets the previous search and starts one towards a target.
+         *
+         * @param target the target cell index
+         */
+        void reset(int target) {
+            this.target = target;
+            if (++generation == 0) {
+                // The stamps wrapped around, old stamps could look current
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+        }
+        
+        /**
+         * Checks whether the search reached a cell.
+         *
+         * @param cell the cell index
+         * @return true if the cell is valid in this search
+         */
+        boolean isVisited(int cell) {
+            return stamp[cell] == generation;
+        }
+        
+        /**
+         * Records a reached cell.
+         *
+         * @param cell the cell index
+         * @param cellDistance the walking distance to the target
+         * @param cellDirection the direction towards the target
+         */
+        void visit(int cell, int cellDistance, byte cellDirection) {
+            stamp[cell] = generation;
+            distance[cell] = cellDistance;
+            direction[cell] = cellDirection;
+        }
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.kayar.yetanotherlabyrinth.labyrinth.ui;
 import com.almasb.fxgl.app.scene.FXGLMenu;
 import com.almasb.fxgl.app.scene.MenuType;
 import com.almasb.fxgl.dsl.FXGL;
+import com.almasb.fxgl.scene.Scene;
 import javafx.geometry.Pos;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.layout.VBox;
@@ -14,6 +15,12 @@ import javafx.scene.text.Text;
  * Main menu for the 3D Labyrinth game.
  */
 public class LabyrinthMainMenu extends FXGLMenu {
+    
+    // Called once when the menu shows its first frame, or null
+    private Runnable onFirstFrame;
+    
+    // Called every time the menu is shown, or null
+    private Runnable onShown;
 
     /**
      * Creates a new main menu.
@@ -49,6 +56,51 @@ public class LabyrinthMainMenu extends FXGLMenu {
         getContentRoot().getChildren().addAll(background, menuBox);
     }
     
+    /**
+     * Sets an action to run once the menu shows its first frame, e.g. to measure startup time.
+     *
+     * @param onFirstFrame the action
+     */
+    public void setOnFirstFrame(Runnable onFirstFrame) {
+        this.onFirstFrame = onFirstFrame;
+    }
+    
+    /**
+     * Sets an action to run every time the menu is shown, e.g. to silence the game.
+     *
+     * @param onShown the action
+     */
+    public void setOnShown(Runnable onShown) {
+        this.onShown = onShown;
+    }
+    
+    /**
+     * Runs the shown action when the menu is entered.
+     *
+     * @param prevState the scene shown before the menu
+     */
+    @Override
+    public void onEnteredFrom(Scene prevState) {
+        super.onEnteredFrom(prevState);
+        if (onShown != null) {
+            onShown.run();
+        }
+    }
+    
+    /**
+     * Runs the first frame action once the menu is on screen.
+     *
+     * @param tpf time per frame
+     */
+    @Override
+    protected void onUpdate(double tpf) {
+        if (onFirstFrame != null) {
+            Runnable action = onFirstFrame;
+            onFirstFrame = null;
+            action.run();
+        }
+    }
+    
     /**
      * Shows the instructions screen.
      */
@@ -62,7 +114,8 @@ public class LabyrinthMainMenu extends FXGLMenu {
                 "D - Strafe Right\n" +
                 "SPACE - Jump\n" +
                 "C - Crouch\n" +
-                "MOUSE - Look Around\n\n" +
+                "MOUSE - Look Around\n" +
+                "M - Minimap Zoom\n\n" +
                 "GOAL:\n\n" +
                 "Find the exit (highlighted in green) to advance to the next level.",
                 Color.WHITE, 20);
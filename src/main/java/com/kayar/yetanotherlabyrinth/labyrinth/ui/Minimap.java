@@ -0,0 +1,343 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.ui;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Top-down minimap HUD element.
+ * The whole labyrinth is rendered once per level into a WritableImage,
+ * after that only the cells that changed (player marker, newly explored cells)
+ * are written, so the per-frame cost does not depend on the labyrinth size.
+ * Labyrinths wider than the largest image are downsampled, several cells sharing a pixel.
+ */
+public class Minimap extends ImageView {
+    // Size of the visible part of the minimap in pixels
+    private static final int VIEW_SIZE = 200;
+    
+    // Pixels per cell for each zoom level
+    private static final int[] ZOOM_LEVELS = {2, 4, 8};
+    
+    // Largest image side we are willing to allocate, larger labyrinths are downsampled
+    private static final int MAX_IMAGE_SIZE = 4096;
+    
+    // How many cells around the player are revealed
+    private static final int REVEAL_RADIUS = 1;
+    
+    // Colors in ARGB format
+    private static final int COLOR_UNEXPLORED = 0xC0101010;
+    private static final int COLOR_WALL = 0xFF8C8C8C;
+    private static final int COLOR_PATH = 0xFF2E2E2E;
+    private static final int COLOR_EXIT = 0xFF20C020;
+    private static final int COLOR_STAIRS = 0xFFFFA500;
+    private static final int COLOR_PLAYER = 0xFFFF4040;
+    
+    // The labyrinth being displayed and the storey shown
+    private LabyrinthGenerator labyrinth;
+    private int layer = 0;
+    
+    // Pixel buffer backing the minimap
+    private WritableImage image;
+    private PixelWriter writer;
+    private int cellPixels;
+    
+    // Cells per pixel along each axis, above 1 only when downsampling
+    private int cellsPerPixel = 1;
+    
+    // Reusable buffer holding a single cell worth of pixels
+    private int[] cellBuffer = new int[0];
+    
+    // Explored cells of all storeys, indexed by (layer * height + z) * width + x
+    private BitSet explored = new BitSet();
+    
+    // Current zoom level index
+    private int zoomIndex = 1;
+    
+    // Last known player cell
+    private int playerCellX = -1;
+    private int playerCellZ = -1;
+    
+    /**
+     * Creates a new empty minimap.
+     */
+    public Minimap() {
+        setSmooth(false);
+    }
+    
+    /**
+     * Sets the labyrinth to display and renders it from scratch.
+     * Should be called once per level.
+     *
+     * @param labyrinth the labyrinth to display
+     */
+    public void setLabyrinth(LabyrinthGenerator labyrinth) {
+        this.labyrinth = labyrinth;
+        this.layer = 0;
+        this.explored = new BitSet(labyrinth.getWidth() * labyrinth.getHeight() * labyrinth.getLayers());
+        this.playerCellX = -1;
+        this.playerCellZ = -1;
+        redraw();
+    }
+    
+    /**
+     * Shows another storey of the labyrinth, keeping what has been explored on every storey.
+     *
+     * @param layer the storey
+     */
+    public void setLayer(int layer) {
+        if (labyrinth == null || layer == this.layer) {
+            return;
+        }
+        this.layer = layer;
+        redraw();
+    }
+    
+    /**
+     * Gets the explored cells of the current labyrinth, indexed by (layer * height + z) * width + x.
+     * With a single storey that is z * width + x.
+     *
+     * @return the explored cells
+     */
+    public BitSet getExplored() {
+        return explored;
+    }
+    
+    /**
+     * Restores the explored cells of the current labyrinth, e.g. from a saved game.
+     *
+     * @param explored the explored cells, indexed as by {@link #getExplored()}
+     */
+    public void setExplored(BitSet explored) {
+        if (labyrinth == null) {
+            return;
+        }
+        this.explored = (BitSet) explored.clone();
+        redraw();
+    }
+    
+    /**
+     * Switches to the next zoom level and re-renders the minimap.
+     */
+    public void cycleZoom() {
+        zoomIndex = (zoomIndex + 1) % ZOOM_LEVELS.length;
+        if (labyrinth != null) {
+            redraw();
+        }
+    }
+    
+    /**
+     * Updates the minimap for the current player position.
+     * Only does work when the player enters a different cell.
+     *
+     * @param worldX the player x-coordinate in the 3D world
+     * @param worldZ the player z-coordinate in the 3D world
+     */
+    public void update(double worldX, double worldZ) {
+        if (labyrinth == null) {
+            return;
+        }
+        
+        int cellX = LabyrinthGenerator.toCell(worldX);
+        int cellZ = LabyrinthGenerator.toCell(worldZ);
+        if (cellX == playerCellX && cellZ == playerCellZ) {
+            return;
+        }
+        
+        int oldX = playerCellX;
+        int oldZ = playerCellZ;
+        playerCellX = cellX;
+        playerCellZ = cellZ;
+        
+        // Reveal cells around the player, drawing only the newly explored ones
+        for (int z = cellZ - REVEAL_RADIUS; z <= cellZ + REVEAL_RADIUS; z++) {
+            for (int x = cellX - REVEAL_RADIUS; x <= cellX + REVEAL_RADIUS; x++) {
+                if (inBounds(x, z) && !explored.get(index(x, z))) {
+                    explored.set(index(x, z));
+                    drawCell(x, z);
+                }
+            }
+        }
+        
+        // Move the player marker
+        if (inBounds(oldX, oldZ)) {
+            drawCell(oldX, oldZ);
+        }
+        if (inBounds(cellX, cellZ)) {
+            drawCell(cellX, cellZ);
+        }
+        
+        updateViewport();
+    }
+    
+    /**
+     * Renders the whole labyrinth into a new image at the current zoom level.
+     */
+    private void redraw() {
+        int width = labyrinth.getWidth();
+        int height = labyrinth.getHeight();
+        
+        // Clamp zoom so huge labyrinths still fit into a reasonable image, and downsample larger ones
+        int size = Math.max(width, height);
+        cellsPerPixel = (size + MAX_IMAGE_SIZE - 1) / MAX_IMAGE_SIZE;
+        cellPixels = cellsPerPixel > 1 ? 1 : Math.min(ZOOM_LEVELS[zoomIndex], MAX_IMAGE_SIZE / size);
+        
+        int columns = (width + cellsPerPixel - 1) / cellsPerPixel;
+        int rows = (height + cellsPerPixel - 1) / cellsPerPixel;
+        int imageWidth = columns * cellPixels;
+        image = new WritableImage(imageWidth, rows * cellPixels);
+        writer = image.getPixelWriter();
+        cellBuffer = new int[cellPixels * cellPixels];
+        
+        // Write the image one row of cells at a time
+        int[] rowBuffer = new int[imageWidth * cellPixels];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int color = colorOfPixel(column, row);
+                for (int py = 0; py < cellPixels; py++) {
+                    int offset = py * imageWidth + column * cellPixels;
+                    Arrays.fill(rowBuffer, offset, offset + cellPixels, color);
+                }
+            }
+            writer.setPixels(0, row * cellPixels, imageWidth, cellPixels,
+                    PixelFormat.getIntArgbInstance(), rowBuffer, 0, imageWidth);
+        }
+        
+        setImage(image);
+        updateViewport();
+    }
+    
+    /**
+     * Redraws a single cell.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     */
+    private void drawCell(int x, int z) {
+        int column = x / cellsPerPixel;
+        int row = z / cellsPerPixel;
+        Arrays.fill(cellBuffer, colorOfPixel(column, row));
+        writer.setPixels(column * cellPixels, row * cellPixels, cellPixels, cellPixels,
+                PixelFormat.getIntArgbInstance(), cellBuffer, 0, cellPixels);
+    }
+    
+    /**
+     * Gets the color of the cells sharing a pixel, the most important cell wins:
+     * the player, then the exit, stairs, paths and walls. Explored cells beat unexplored ones.
+     *
+     * @param column the pixel column, the cell x-coordinate unless downsampling
+     * @param row the pixel row, the cell z-coordinate unless downsampling
+     * @return the ARGB color
+     */
+    private int colorOfPixel(int column, int row) {
+        if (cellsPerPixel == 1) {
+            return colorOf(column, row);
+        }
+        
+        int color = COLOR_UNEXPLORED;
+        int toX = Math.min(labyrinth.getWidth(), (column + 1) * cellsPerPixel);
+        int toZ = Math.min(labyrinth.getHeight(), (row + 1) * cellsPerPixel);
+        for (int z = row * cellsPerPixel; z < toZ; z++) {
+            for (int x = column * cellsPerPixel; x < toX; x++) {
+                int cellColor = colorOf(x, z);
+                if (priorityOf(cellColor) > priorityOf(color)) {
+                    color = cellColor;
+                }
+            }
+        }
+        return color;
+    }
+    
+    /**
+     * Gets how important a color is when cells share a pixel.
+     *
+     * @param color the ARGB color of a cell
+     * @return the priority, higher wins
+     */
+    private static int priorityOf(int color) {
+        return switch (color) {
+            case COLOR_PLAYER -> 5;
+            case COLOR_EXIT -> 4;
+            case COLOR_STAIRS -> 3;
+            case COLOR_PATH -> 2;
+            case COLOR_WALL -> 1;
+            default -> 0;
+        };
+    }
+    
+    /**
+     * Gets the color a cell should currently be drawn with.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the ARGB color
+     */
+    private int colorOf(int x, int z) {
+        if (x == playerCellX && z == playerCellZ) {
+            return COLOR_PLAYER;
+        }
+        if (!explored.get(index(x, z))) {
+            return COLOR_UNEXPLORED;
+        }
+        if (labyrinth.isExit(x, z, layer)) {
+            return COLOR_EXIT;
+        }
+        if (labyrinth.getStairs(x, z, layer) != 0) {
+            return COLOR_STAIRS;
+        }
+        return labyrinth.isWall(x, z, layer) ? COLOR_WALL : COLOR_PATH;
+    }
+    
+    /**
+     * Centers the visible part of the image on the player.
+     */
+    private void updateViewport() {
+        double viewWidth = Math.min(VIEW_SIZE, image.getWidth());
+        double viewHeight = Math.min(VIEW_SIZE, image.getHeight());
+        double centerX = (playerCellX + 0.5) * cellPixels / cellsPerPixel;
+        double centerZ = (playerCellZ + 0.5) * cellPixels / cellsPerPixel;
+        
+        double minX = clamp(centerX - viewWidth / 2, 0, image.getWidth() - viewWidth);
+        double minY = clamp(centerZ - viewHeight / 2, 0, image.getHeight() - viewHeight);
+        setViewport(new Rectangle2D(minX, minY, viewWidth, viewHeight));
+    }
+    
+    /**
+     * Checks whether the specified cell lies inside the labyrinth.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return true if the cell is inside the grid
+     */
+    private boolean inBounds(int x, int z) {
+        return x >= 0 && x < labyrinth.getWidth() && z >= 0 && z < labyrinth.getHeight();
+    }
+    
+    /**
+     * Gets the explored bit index of a cell.
+     *
+     * @param x the x-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @return the bit index
+     */
+    private int index(int x, int z) {
+        return (layer * labyrinth.getHeight() + z) * labyrinth.getWidth() + x;
+    }
+    
+    /**
+     * Clamps a value to the specified range.
+     *
+     * @param value the value
+     * @param min the lower bound
+     * @param max the upper bound
+     * @return the clamped value
+     */
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ module com.kayar.yetanotherlabyrinth.labyrinth {
     requires javafx.fxml;
     requires javafx.media;
     requires com.almasb.fxgl.all;
+    requires jdk.management;
 
     exports com.kayar.yetanotherlabyrinth.labyrinth;
 }
\ No newline at end of file
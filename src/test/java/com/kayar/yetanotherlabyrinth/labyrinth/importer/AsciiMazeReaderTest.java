@@ -0,0 +1,64 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads mazes drawn as text.
+ */
+class AsciiMazeReaderTest {
+    
+    @Test
+    void readsCells() throws IOException {
+        MazeGrid grid = read("#####\n#S. #\n#  E#\n#####\n");
+        assertEquals(5, grid.getWidth());
+        assertEquals(4, grid.getHeight());
+        assertEquals(6, grid.getStart());
+        assertEquals(13, grid.getExit());
+        assertTrue(grid.getOpen().get(7));
+        assertTrue(grid.getOpen().get(8));
+        assertTrue(grid.getOpen().get(11));
+        assertFalse(grid.getOpen().get(9));
+        assertEquals(6, grid.getOpen().cardinality());
+    }
+    
+    @Test
+    void fillsShortRowsWithWalls() throws IOException {
+        // Trailing spaces trimmed by an editor and an empty line inside the maze
+        MazeGrid grid = read("#####\n#S.\n\n#..E#\n#####\n\n\n");
+        assertEquals(5, grid.getHeight());
+        assertFalse(grid.getOpen().get(8));
+        for (int x = 0; x < 5; x++) {
+            assertFalse(grid.getOpen().get(10 + x));
+        }
+        assertEquals(18, grid.getExit());
+    }
+    
+    @Test
+    void rejectsBadMazes() {
+        assertThrows(MazeFormatException.class, () -> read(""));
+        assertThrows(MazeFormatException.class, () -> read("###\n#S#\n#x#\n"));
+        assertThrows(MazeFormatException.class, () -> read("###\n#S##\n###\n"));
+        assertThrows(MazeFormatException.class, () -> read("#####\n#S.S#\n#####\n"));
+        assertThrows(MazeFormatException.class, () -> read("#####\n#E.E#\n#####\n"));
+    }
+    
+    /**
+     * Reads a maze from a string.
+     *
+     * @param text the maze
+     * @return the grid
+     * @throws IOException if the text is not a maze
+     */
+    private static MazeGrid read(String text) throws IOException {
+        return AsciiMazeReader.read(new BufferedReader(new StringReader(text)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,404 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes small PNG files written by the test itself, every row using the next of the five filter types
+ * and the image data split over several chunks.
+ */
+class PngMazeReaderTest {
+    // Odd width, so sub-byte samples leave unused bits at the end of every row
+    private static final String[] MAZE = {
+            "#########",
+            "#S..#...#",
+            "#.#.#.#.#",
+            "#.#...#.#",
+            "#.#####.#",
+            "#...#...#",
+            "###.#.###",
+            "#...#..E#",
+            "#.#####.#",
+            "#########",
+    };
+    
+    // Colors of the cells in the truecolor images, channels differ so a wrong pixel offset shows
+    private static final int WALL_COLOR = 0x14283C;
+    private static final int OPEN_COLOR = 0xE6DCD2;
+    private static final int START_COLOR = 0xFA0A0A;
+    private static final int EXIT_COLOR = 0x0AFA0A;
+    
+    // Color types
+    private static final int GRAY = 0;
+    private static final int RGB = 2;
+    private static final int PALETTE = 3;
+    private static final int RGBA = 6;
+    
+    // Image data bytes per IDAT chunk
+    private static final int CHUNK_SIZE = 7;
+    
+    @Test
+    void readsRgb() throws IOException {
+        assertMaze(read(RGB, 8, PngMazeReaderTest::color, null, null), true);
+    }
+    
+    @Test
+    void readsRgb16() throws IOException {
+        assertMaze(read(RGB, 16, PngMazeReaderTest::color, null, null), true);
+    }
+    
+    @Test
+    void readsRgba() throws IOException {
+        // Transparent pixels are walls whatever their color
+        assertMaze(read(RGBA, 8, c -> c == '#' ? OPEN_COLOR : color(c), null, null), true);
+    }
+    
+    @Test
+    void readsGray() throws IOException {
+        for (int bitDepth : new int[] {1, 2, 4, 8, 16}) {
+            int white = (1 << bitDepth) - 1;
+            assertMaze(read(GRAY, bitDepth, c -> c == '#' ? 0 : white, null, null), false);
+        }
+    }
+    
+    @Test
+    void readsPalette() throws IOException {
+        int[] palette = {WALL_COLOR, OPEN_COLOR, START_COLOR, EXIT_COLOR};
+        assertMaze(read(PALETTE, 1, c -> c == '#' ? 0 : 1, palette, null), false);
+        for (int bitDepth : new int[] {2, 4, 8}) {
+            assertMaze(read(PALETTE, bitDepth, PngMazeReaderTest::index, palette, null), true);
+        }
+    }
+    
+    @Test
+    void readsPaletteTransparency() throws IOException {
+        // A transparent entry of the open color is a wall
+        int[] palette = {OPEN_COLOR, OPEN_COLOR, START_COLOR, EXIT_COLOR};
+        assertMaze(read(PALETTE, 4, PngMazeReaderTest::index, palette, new byte[] {0, (byte) 255}), true);
+    }
+    
+    @Test
+    void rejectsDamagedChunk() throws IOException {
+        byte[] png = write(RGB, 8, PngMazeReaderTest::color, null, null, 0);
+        
+        // Last byte of the first image data chunk
+        int offset = indexOf(png, "IDAT") + 4 + CHUNK_SIZE - 1;
+        png[offset] ^= 1;
+        assertThrows(MazeFormatException.class, () -> PngMazeReader.read(new ByteArrayInputStream(png)));
+    }
+    
+    @Test
+    void rejectsUnknownFilter() throws IOException {
+        byte[] png = write(GRAY, 8, c -> c == '#' ? 0 : 255, null, null, 5);
+        MazeFormatException e = assertThrows(MazeFormatException.class,
+                () -> PngMazeReader.read(new ByteArrayInputStream(png)));
+        assertTrue(e.getMessage().contains("filter 5"), e.getMessage());
+    }
+    
+    @Test
+    void rejectsTruncatedImageData() throws IOException {
+        byte[] png = write(RGB, 8, PngMazeReaderTest::color, null, null, 0);
+        
+        // Keep the header and the first image data chunk only
+        int end = indexOf(png, "IDAT") + 4 + CHUNK_SIZE + 4;
+        byte[] truncated = Arrays.copyOf(png, end + 12);
+        System.arraycopy(chunk("IEND", new byte[0]), 0, truncated, end, 12);
+        assertThrows(MazeFormatException.class, () -> PngMazeReader.read(new ByteArrayInputStream(truncated)));
+    }
+    
+    @Test
+    void rejectsOtherFiles() {
+        byte[] text = "#####\n#S.E#\n#####\n".getBytes();
+        assertThrows(MazeFormatException.class, () -> PngMazeReader.read(new ByteArrayInputStream(text)));
+    }
+    
+    /**
+     * Checks a grid holds the maze.
+     *
+     * @param grid the decoded grid
+     * @param marked true if the image marks the start and the exit, false if they are plain open cells
+     */
+    private static void assertMaze(MazeGrid grid, boolean marked) {
+        assertEquals(MAZE[0].length(), grid.getWidth());
+        assertEquals(MAZE.length, grid.getHeight());
+        for (int z = 0; z < MAZE.length; z++) {
+            for (int x = 0; x < MAZE[z].length(); x++) {
+                int cell = z * grid.getWidth() + x;
+                assertEquals(MAZE[z].charAt(x) != '#', grid.getOpen().get(cell), "cell " + x + ", " + z);
+            }
+        }
+        assertEquals(marked ? find('S') : -1, grid.getStart());
+        assertEquals(marked ? find('E') : -1, grid.getExit());
+    }
+    
+    /**
+     * Finds a character in the maze.
+     *
+     * @param c the character
+     * @return the cell index
+     */
+    private static int find(char c) {
+        String cells = String.join("", MAZE);
+        return cells.indexOf(c);
+    }
+    
+    /**
+     * Finds the type of the first chunk of a kind.
+     *
+     * @param png the file
+     * @param type the chunk type
+     * @return the offset of the type
+     */
+    private static int indexOf(byte[] png, String type) {
+        byte[] name = type.getBytes();
+        for (int i = 0; i + name.length <= png.length; i++) {
+            if (Arrays.equals(png, i, i + name.length, name, 0, name.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("No " + type + " chunk");
+    }
+    
+    /**
+     * Gets the truecolor of a maze character.
+     *
+     * @param c the maze character
+     * @return the RGB color
+     */
+    private static int color(char c) {
+        return switch (c) {
+            case 'S' -> START_COLOR;
+            case 'E' -> EXIT_COLOR;
+            case '#' -> WALL_COLOR;
+            default -> OPEN_COLOR;
+        };
+    }
+    
+    /**
+     * Gets the palette index of a maze character.
+     *
+     * @param c the maze character
+     * @return the index into a palette of wall, open, start and exit colors
+     */
+    private static int index(char c) {
+        return switch (c) {
+            case 'S' -> 2;
+            case 'E' -> 3;
+            case '#' -> 0;
+            default -> 1;
+        };
+    }
+    
+    /**
+     * Writes the maze as a PNG file cycling through the filter types and reads it back.
+     *
+     * @param colorType the color type
+     * @param bitDepth the bits per sample
+     * @param sampler the sample value, or RGB color, of every maze character
+     * @param palette the palette colors, or null
+     * @param alpha the palette transparency, or null
+     * @return the decoded grid
+     * @throws IOException if the file is not read as a maze
+     */
+    private static MazeGrid read(int colorType, int bitDepth, Sampler sampler, int[] palette, byte[] alpha)
+            throws IOException {
+        byte[] png = write(colorType, bitDepth, sampler, palette, alpha, -1);
+        return PngMazeReader.read(new ByteArrayInputStream(png));
+    }
+    
+    /**
+     * Writes the maze as a PNG file.
+     *
+     * @param colorType the color type
+     * @param bitDepth the bits per sample
+     * @param sampler the sample value, or RGB color, of every maze character
+     * @param palette the palette colors, or null
+     * @param alpha the palette transparency, or null
+     * @param filter the filter type of every row, or -1 to cycle through all of them
+     * @return the file contents
+     * @throws IOException if writing fails
+     */
+    private static byte[] write(int colorType, int bitDepth, Sampler sampler, int[] palette, byte[] alpha,
+            int filter) throws IOException {
+        int width = MAZE[0].length();
+        int channels = switch (colorType) {
+            case RGB -> 3;
+            case RGBA -> 4;
+            default -> 1;
+        };
+        int bitsPerPixel = channels * bitDepth;
+        int bpp = Math.max(1, bitsPerPixel / 8);
+        int stride = (width * bitsPerPixel + 7) / 8;
+        
+        // Raw scanlines, filtered against the previous raw scanline
+        ByteArrayOutputStream scanlines = new ByteArrayOutputStream();
+        byte[] previous = new byte[stride];
+        for (int z = 0; z < MAZE.length; z++) {
+            byte[] raw = new byte[stride];
+            for (int x = 0; x < width; x++) {
+                char c = MAZE[z].charAt(x);
+                int value = sampler.sample(c);
+                if (channels == 1) {
+                    putSample(raw, x, bitDepth, value);
+                } else {
+                    int[] samples = {value >> 16 & 0xFF, value >> 8 & 0xFF, value & 0xFF, c == '#' ? 0 : 255};
+                    for (int i = 0; i < channels; i++) {
+                        // 16 bit samples repeat the byte, the reader only uses the high one
+                        putSample(raw, x * channels + i, bitDepth, samples[i] * (bitDepth == 16 ? 0x101 : 1));
+                    }
+                }
+            }
+            int type = filter >= 0 ? filter : z % 5;
+            scanlines.write(type);
+            scanlines.write(filter(type, raw, previous, bpp));
+            previous = raw;
+        }
+        
+        Deflater deflater = new Deflater();
+        deflater.setInput(scanlines.toByteArray());
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        byte[] data = compressed.toByteArray();
+        
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        new DataOutputStream(file).writeLong(0x89504E470D0A1A0AL);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(MAZE.length);
+        headerData.write(new byte[] {(byte) bitDepth, (byte) colorType, 0, 0, 0});
+        file.write(chunk("IHDR", header.toByteArray()));
+        if (palette != null) {
+            byte[] colors = new byte[palette.length * 3];
+            for (int i = 0; i < palette.length; i++) {
+                colors[i * 3] = (byte) (palette[i] >> 16);
+                colors[i * 3 + 1] = (byte) (palette[i] >> 8);
+                colors[i * 3 + 2] = (byte) palette[i];
+            }
+            file.write(chunk("PLTE", colors));
+        }
+        if (alpha != null) {
+            file.write(chunk("tRNS", alpha));
+        }
+        for (int i = 0; i < data.length; i += CHUNK_SIZE) {
+            file.write(chunk("IDAT", Arrays.copyOfRange(data, i, Math.min(data.length, i + CHUNK_SIZE))));
+        }
+        file.write(chunk("IEND", new byte[0]));
+        return file.toByteArray();
+    }
+    
+    /**
+     * Stores a sample in a scanline, most significant bits first.
+     *
+     * @param raw the scanline
+     * @param index the sample index
+     * @param bitDepth the bits per sample
+     * @param value the sample value
+     */
+    private static void putSample(byte[] raw, int index, int bitDepth, int value) {
+        if (bitDepth == 16) {
+            raw[index * 2] = (byte) (value >> 8);
+            raw[index * 2 + 1] = (byte) value;
+        } else {
+            int bit = index * bitDepth;
+            raw[bit >> 3] |= (byte) (value << (8 - bitDepth - (bit & 7)));
+        }
+    }
+    
+    /**
+     * Applies a filter to a scanline.
+     *
+     * @param type the filter type
+     * @param raw the scanline
+     * @param previous the previous scanline, all zeros for the first one
+     * @param bpp the bytes per complete pixel, at least 1
+     * @return the filtered bytes
+     */
+    private static byte[] filter(int type, byte[] raw, byte[] previous, int bpp) {
+        byte[] filtered = new byte[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            int left = i >= bpp ? raw[i - bpp] & 0xFF : 0;
+            int up = previous[i] & 0xFF;
+            int upLeft = i >= bpp ? previous[i - bpp] & 0xFF : 0;
+            int predictor = switch (type) {
+                case 1 -> left;
+                case 2 -> up;
+                case 3 -> (left + up) / 2;
+                case 4 -> paeth(left, up, upLeft);
+                default -> 0;
+            };
+            filtered[i] = (byte) (raw[i] - predictor);
+        }
+        return filtered;
+    }
+    
+    /**
+     * Predicts a byte from its neighbors like the Paeth filter.
+     *
+     * @param a the byte to the left
+     * @param b the byte above
+     * @param c the byte above to the left
+     * @return the neighbor closest to a + b - c
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+    
+    /**
+     * Builds a chunk with its length and checksum.
+     *
+     * @param type the chunk type
+     * @param data the chunk data
+     * @return the chunk bytes
+     * @throws IOException if writing fails
+     */
+    private static byte[] chunk(String type, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type.getBytes());
+        crc.update(data);
+        
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(chunk);
+        out.writeInt(data.length);
+        out.writeBytes(type);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+        return chunk.toByteArray();
+    }
+    
+    /**
+     * Sample value of a maze character.
+     */
+    private interface Sampler {
+        /**
+         * Gets the sample value of a maze character.
+         *
+         * @param c the maze character
+         * @return the sample value, or RGB color
+         */
+        int sample(char c);
+    }
+}
\ No newline at end of file
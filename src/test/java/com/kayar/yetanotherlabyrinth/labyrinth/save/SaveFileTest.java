@@ -0,0 +1,102 @@
+package com.kayar.yetanotherlabyrinth.labyrinth.save;
+
+import com.kayar.yetanotherlabyrinth.labyrinth.LabyrinthGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes games to save files and reads them back.
+ */
+class SaveFileTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void roundTrip() throws IOException {
+        SaveGame game = game();
+        Path file = directory.resolve("saves").resolve("game.sav");
+        SaveFile.write(game, file);
+        SaveGame read = SaveFile.read(file);
+        
+        LabyrinthGenerator expected = game.labyrinth();
+        LabyrinthGenerator labyrinth = read.labyrinth();
+        assertEquals(game.level(), read.level());
+        assertEquals(expected.getSeed(), labyrinth.getSeed());
+        assertEquals(expected.getWidth(), labyrinth.getWidth());
+        assertEquals(expected.getHeight(), labyrinth.getHeight());
+        assertEquals(expected.getLayers(), labyrinth.getLayers());
+        assertArrayEquals(expected.packOpenCells(), labyrinth.packOpenCells());
+        assertArrayEquals(expected.getStairwells(), labyrinth.getStairwells());
+        assertEquals(expected.getStartX(), labyrinth.getStartX());
+        assertEquals(expected.getStartZ(), labyrinth.getStartZ());
+        assertEquals(expected.getExitX(), labyrinth.getExitX());
+        assertEquals(expected.getExitZ(), labyrinth.getExitZ());
+        assertEquals(expected.getExitLayer(), labyrinth.getExitLayer());
+        assertEquals(game.x(), read.x());
+        assertEquals(game.z(), read.z());
+        assertEquals(game.layer(), read.layer());
+        assertEquals(game.rotationX(), read.rotationX());
+        assertEquals(game.rotationY(), read.rotationY());
+        assertEquals(game.explored(), read.explored());
+        
+        // Written through a temporary file that is moved over the save
+        assertFalse(Files.exists(file.resolveSibling("game.sav.tmp")));
+    }
+    
+    @Test
+    void rejectsDamagedFiles() throws IOException {
+        Path file = directory.resolve("game.sav");
+        SaveFile.write(game(), file);
+        byte[] data = Files.readAllBytes(file);
+        
+        byte[] flipped = data.clone();
+        flipped[flipped.length / 2] ^= 1;
+        assertRejected(flipped, "damaged");
+        assertRejected(Arrays.copyOf(data, data.length - 1), "damaged");
+        
+        byte[] other = data.clone();
+        other[0] ^= 1;
+        assertRejected(other, "Not a save file");
+        assertRejected(new byte[3], "Not a save file");
+    }
+    
+    /**
+     * Checks a file is not read as a game.
+     *
+     * @param data the file contents
+     * @param message part of the expected error message
+     * @throws IOException if the file cannot be written
+     */
+    private void assertRejected(byte[] data, String message) throws IOException {
+        Path file = directory.resolve("broken.sav");
+        Files.write(file, data);
+        IOException e = assertThrows(IOException.class, () -> SaveFile.read(file));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+    
+    /**
+     * Creates a game on the second storey of a generated labyrinth with some explored cells.
+     *
+     * @return the game
+     */
+    private static SaveGame game() {
+        LabyrinthGenerator labyrinth = new LabyrinthGenerator(31, 25, 2, 7);
+        labyrinth.generate();
+        BitSet explored = new BitSet();
+        explored.set(32, 90);
+        explored.set(31 * 25 + 100);
+        return new SaveGame(3, labyrinth, 12.5, -40.25, 1, 15.0, -135.5, explored);
+    }
+}
\ No newline at end of file